@@ -0,0 +1,105 @@
+package de.exware.rre;
+
+import java.util.Random;
+
+/**
+ * Creates reproducible input for the benchmarks.
+ */
+class BenchmarkData
+{
+    private static final String[] WORDS = 
+    {
+        "Rechnung", "Kunde", "Betrag", "Datum", "Lieferung", "Artikel", "Menge", "Preis",
+        "Summe", "Steuer", "Bank", "Konto", "Seite", "Auftrag", "Bestellung", "vom", "und", "der",
+        "die", "das", "mit", "für", "invoice", "customer", "amount", "total", "l0rem", "ipsum", "|", "-"
+    };
+    private static final String[] MONTHS = {"Jan", "Feb", "Mar", "Apr", "Mai", "Jun", "Jul", "Aug", "Sep", "Okt", "Nov", "Dez"};
+    
+    /**
+     * Creates text that looks like the output of an OCR program. Contains words, numbers, dates
+     * and line breaks.
+     * @param size length of the text in characters.
+     */
+    static String createOcrText(int size)
+    {
+        Random random = new Random(42);
+        StringBuilder text = new StringBuilder(size + 100);
+        while(text.length() < size)
+        {
+            int r = random.nextInt(100);
+            if(r < 70)
+            {
+                text.append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            else if(r < 90)
+            {
+                text.append(random.nextInt(100000));
+            }
+            else if(r < 93)
+            {
+                text.append(1 + random.nextInt(28)).append('.').append(1 + random.nextInt(12)).append('.').append(1990 + random.nextInt(40));
+            }
+            else if(r < 95)
+            {
+                text.append(1 + random.nextInt(28)).append(". ").append(MONTHS[random.nextInt(12)]).append(". ").append(1990 + random.nextInt(40));
+            }
+            else
+            {
+                text.append(random.nextInt(1000)).append(',').append(random.nextInt(100));
+            }
+            text.append(random.nextInt(10) == 0 ? "\r\n" : " ");
+        }
+        text.setLength(size);
+        return text.toString();
+    }
+    
+    /**
+     * Creates textual rules like they are written by end users.
+     */
+    static String[] createRules(int count)
+    {
+        Random random = new Random(7);
+        String[] rules = new String[count];
+        for(int i=0;i<count;i++)
+        {
+            String word = WORDS[random.nextInt(WORDS.length - 2)];
+            switch(i % 4)
+            {
+                case 0:
+                    rules[i] = "add('" + word + i + "').whitespace().oneOrMore().digit().count(4,6)";
+                    break;
+                case 1:
+                    rules[i] = word + " Nr.whitespace().capture().digit().oneOrMore().captureEnd()";
+                    break;
+                case 2:
+                    rules[i] = "startOfLine().add(" + word + ").anyCharacter().zeroOrMore().add(" + i + ")";
+                    break;
+                default:
+                    rules[i] = "oneOf('" + word + "','" + word.toUpperCase() + "','X" + i + "').whitespace().date()";
+                    break;
+            }
+        }
+        return rules;
+    }
+    
+    /**
+     * Creates keywords for oneOf() with many entries, like customer names or IBAN prefixes.
+     */
+    static String[] createKeywords(int count)
+    {
+        Random random = new Random(11);
+        String[] keywords = new String[count];
+        for(int i=0;i<count;i++)
+        {
+            StringBuilder keyword = new StringBuilder();
+            keyword.append((char)('A' + random.nextInt(26)));
+            int length = 4 + random.nextInt(8);
+            for(int x=0;x<length;x++)
+            {
+                keyword.append((char)('a' + random.nextInt(26)));
+            }
+            keywords[i] = keyword.toString();
+        }
+        return keywords;
+    }
+}
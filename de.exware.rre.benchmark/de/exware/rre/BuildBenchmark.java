@@ -0,0 +1,170 @@
+package de.exware.rre;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.exware.rre.ReadablePattern.Builder;
+import de.exware.rre.ReadablePattern.ReadablePatternExtension;
+
+/**
+ * Measures the fluent API and the compilation of the Patterns with Builder.build().
+ * compileRules and loadBundle compare the startup with 1000 textual rules and with a precompiled ReadableBundle,
+ * compileRulesLazy and loadBundleLazy the same without compiling the regular expressions.
+ * compileExtension and compileFunction compare an extension, which builds an amount on each use, with amount().
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BuildBenchmark
+{
+    private static final List<ReadablePatternExtension> AMOUNT_EXTENSION = Collections.singletonList(new ReadablePatternExtension()
+    {
+        @Override
+        public String getFunctionName()
+        {
+            return "betrag";
+        }
+        
+        @Override
+        public void createRegEx(Builder builder, String param)
+        {
+            builder.digit().count(1, 3).add(new Builder().oneOf('.', '\'').digit().count(3)).zeroOrMore().oneOf(',', '.').digit().count(2);
+        }
+    });
+    private String[] keywords;
+    private Builder fluentBuilder;
+    private Builder dateBuilder;
+    private Builder oneOfBuilder;
+    private String[] rules;
+    private byte[] bundle;
+    
+    @Setup
+    public void setup() throws IOException
+    {
+        rules = BenchmarkData.createRules(1000);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ReadableBundle.write(compileRules(), out);
+        bundle = out.toByteArray();
+        keywords = BenchmarkData.createKeywords(1000);
+        fluentBuilder = fluent();
+        dateBuilder = new Builder().date();
+        oneOfBuilder = new Builder().oneOf(keywords);
+    }
+    
+    private static Builder fluent()
+    {
+        return new Builder()
+            .startOfLine()
+            .add("Rechnung")
+            .whitespace()
+            .oneOrMore()
+            .capture()
+            .oneOf('R', 'N')
+            .digit()
+            .count(4, 8)
+            .captureEnd()
+            .range('a', 'f', 'A', 'F', '0', '9')
+            .zeroOrMore()
+            .lineBreak();
+    }
+    
+    @Benchmark
+    public Builder fluentBuilding()
+    {
+        return fluent();
+    }
+    
+    @Benchmark
+    public ReadablePattern build()
+    {
+        return fluentBuilder.build();
+    }
+    
+    @Benchmark
+    public ReadablePattern buildDate()
+    {
+        return dateBuilder.build();
+    }
+    
+    @Benchmark
+    public Builder fluentOneOf()
+    {
+        return new Builder().oneOf(keywords);
+    }
+    
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public ReadablePattern buildOneOf()
+    {
+        return oneOfBuilder.build();
+    }
+    
+    @Benchmark
+    public ReadablePattern compileExtension()
+    {
+        return ReadablePattern.compile(AMOUNT_EXTENSION, "add(Summe).whitespace().betrag()", false);
+    }
+    
+    @Benchmark
+    public ReadablePattern compileFunction()
+    {
+        return ReadablePattern.compile("add(Summe).whitespace().amount()");
+    }
+    
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<ReadablePattern> compileRules()
+    {
+        List<ReadablePattern> patterns = new ArrayList<>(rules.length);
+        for(int i=0;i<rules.length;i++)
+        {
+            patterns.add(ReadablePattern.compile(rules[i]));
+        }
+        return patterns;
+    }
+    
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<ReadablePattern> compileRulesLazy()
+    {
+        List<ReadablePattern> patterns = new ArrayList<>(rules.length);
+        for(int i=0;i<rules.length;i++)
+        {
+            patterns.add(new Builder(rules[i]).setLazy(true).build());
+        }
+        return patterns;
+    }
+    
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<ReadablePattern> loadBundle() throws IOException
+    {
+        return ReadableBundle.read(ByteBuffer.wrap(bundle));
+    }
+    
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<ReadablePattern> loadBundleLazy() throws IOException
+    {
+        return ReadableBundle.read(ByteBuffer.wrap(bundle), true);
+    }
+}
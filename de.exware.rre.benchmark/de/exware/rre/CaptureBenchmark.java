@@ -0,0 +1,71 @@
+package de.exware.rre;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the extraction of the capturing groups of all matches with Matcher.group(), which creates a String
+ * for each group, with ReadableCaptures, which only keeps the offsets.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CaptureBenchmark
+{
+    private String ocrText;
+    private ReadablePattern pattern;
+    private ReadableCaptures captures;
+    private int day;
+    private int month;
+    private int year;
+
+    @Setup
+    public void setup()
+    {
+        ocrText = BenchmarkData.createOcrText(256 * 1024);
+        pattern = ReadablePattern.compile("capture(day).digit().count(1,2).captureEnd().add('.')"
+            + ".capture(month).digit().count(1,2).captureEnd().add('.').capture(year).digit().count(4).captureEnd()");
+        captures = pattern.captures();
+        day = pattern.getGroupIndex("day");
+        month = pattern.getGroupIndex("month");
+        year = pattern.getGroupIndex("year");
+    }
+
+    @Benchmark
+    public int matcherGroups()
+    {
+        Matcher matcher = pattern.matcher(ocrText);
+        int sum = 0;
+        while(matcher.find())
+        {
+            sum += matcher.group("day").length() + matcher.group("month").length() + matcher.group("year").length();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int captureOffsets()
+    {
+        int sum = 0;
+        while(captures.findNext(ocrText))
+        {
+            sum += captures.end(day) - captures.start(day) + captures.end(month) - captures.start(month)
+                + captures.end(year) - captures.start(year);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,82 @@
+package de.exware.rre;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.exware.rre.ReadablePattern.Builder;
+
+/**
+ * Compares the DateScanner, which is used by find() and findAll() of date(), with the Matcher of
+ * java.util.regex, which is used by matcher(text).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DateBenchmark
+{
+    private static final String SHORT_TEXT = "Rechnung 4711 vom 31.12.2020 ";
+    private String ocrText;
+    private ReadablePattern datePattern;
+
+    @Setup
+    public void setup()
+    {
+        ocrText = BenchmarkData.createOcrText(256 * 1024);
+        datePattern = new Builder().date().build();
+    }
+
+    @Benchmark
+    public int findAllScanner()
+    {
+        return datePattern.findAll(ocrText).size();
+    }
+
+    @Benchmark
+    public int findAllRegex()
+    {
+        Matcher matcher = datePattern.matcher(ocrText);
+        int count = 0;
+        while(matcher.find())
+        {
+            count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public boolean findShortScanner()
+    {
+        return datePattern.find(SHORT_TEXT);
+    }
+
+    @Benchmark
+    public boolean findShortRegex()
+    {
+        return datePattern.matcher(SHORT_TEXT).find();
+    }
+
+    @Benchmark
+    public int findAllDates()
+    {
+        int year = 0;
+        for(ReadableMatch match : datePattern.findAll(ocrText))
+        {
+            year += match.getDate() == null ? 0 : match.getDate().getYear();
+        }
+        return year;
+    }
+}
@@ -0,0 +1,86 @@
+package de.exware.rre;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.exware.rre.ReadablePattern.Builder;
+
+/**
+ * Compares find() and matches() of the DFA with the Matcher of java.util.regex, which is used by
+ * matcher(text). The OCR text contains no match, so it is searched completely. The adversarial text lets
+ * java.util.regex backtrack exponentially.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DfaBenchmark
+{
+    private static final String SHORT_TEXT = "Rechnung 4711 vom 31.12.2020 ";
+    private static final String ADVERSARIAL_TEXT = "aaaaaaaaaaaaaaaaaaaa!x";
+    private String ocrText;
+    private ReadablePattern numberPattern;
+    private ReadablePattern linePattern;
+    private ReadablePattern adversarialPattern;
+
+    @Setup
+    public void setup()
+    {
+        ocrText = BenchmarkData.createOcrText(256 * 1024);
+        numberPattern = ReadablePattern.compile("whitespace().digit().count(6).whitespace()");
+        linePattern = ReadablePattern.compile("alpha().oneOrMore().whitespace().digit().oneOrMore().whitespace().range(a,z).oneOrMore()");
+        adversarialPattern = new Builder().add(new Builder().alpha().oneOrMore().whitespace().zeroOrOne()).count(1, 30).add("!").build();
+        if(numberPattern.usesDfa() == false || linePattern.usesDfa() == false || adversarialPattern.usesDfa() == false)
+        {
+            throw new IllegalStateException("The patterns are not matched by the DFA");
+        }
+    }
+
+    @Benchmark
+    public boolean findDfa()
+    {
+        return numberPattern.find(ocrText);
+    }
+
+    @Benchmark
+    public boolean findRegex()
+    {
+        return numberPattern.matcher(ocrText).find();
+    }
+
+    @Benchmark
+    public boolean matchesShortDfa()
+    {
+        return linePattern.matches(SHORT_TEXT);
+    }
+
+    @Benchmark
+    public boolean matchesShortRegex()
+    {
+        return linePattern.matcher(SHORT_TEXT).matches();
+    }
+
+    @Benchmark
+    public boolean matchesAdversarialDfa()
+    {
+        return adversarialPattern.matches(ADVERSARIAL_TEXT);
+    }
+
+    @Benchmark
+    public boolean matchesAdversarialRegex()
+    {
+        return adversarialPattern.matcher(ADVERSARIAL_TEXT).matches();
+    }
+}
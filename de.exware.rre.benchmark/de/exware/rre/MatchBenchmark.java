@@ -0,0 +1,224 @@
+package de.exware.rre;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.exware.rre.ReadablePattern.Builder;
+
+/**
+ * Measures matches() and find() on short strings, on a large OCR text and
+ * with many rules on the same document.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatchBenchmark
+{
+    private static final String SHORT_TEXT = "Rechnung 4711 vom 31.12.2020 ";
+    private static final StringBuilder SHORT_BUFFER = new StringBuilder(SHORT_TEXT);
+    private String ocrText;
+    private String pageText;
+    private ReadablePattern invoicePattern;
+    private ReadablePattern missingPattern;
+    private ReadablePattern missingInnerPattern;
+    private ReadablePattern datePattern;
+    private ReadablePattern oneOfPattern;
+    private ReadablePattern[] rules;
+    private ReadableRuleSet ruleSet;
+    private Path latin1File;
+    private Path utf8File;
+    private List<String> pages;
+    
+    @Setup
+    public void setup() throws IOException
+    {
+        ocrText = BenchmarkData.createOcrText(1024 * 1024);
+        pageText = BenchmarkData.createOcrText(4 * 1024);
+        invoicePattern = ReadablePattern.compile("add(Rechnung).whitespace().capture().digit().oneOrMore().captureEnd()");
+        missingPattern = ReadablePattern.compile("add('Rechnungsnummer:').whitespace().oneOrMore().digit().count(6)");
+        missingInnerPattern = ReadablePattern.compile("whitespace().add(Rechnungsnummer).whitespace().oneOrMore().digit().count(6)");
+        datePattern = new Builder().date().build();
+        oneOfPattern = new Builder().whitespace().oneOf(BenchmarkData.createKeywords(1000)).whitespace().build();
+        String[] textRules = BenchmarkData.createRules(200);
+        rules = new ReadablePattern[textRules.length];
+        for(int i=0;i<textRules.length;i++)
+        {
+            rules[i] = ReadablePattern.compile(textRules[i]);
+        }
+        ruleSet = new ReadableRuleSet(rules);
+        pages = new ArrayList<>();
+        for(int i=0;i<256;i++)
+        {
+            pages.add(ocrText.substring(i * 4096, (i + 1) * 4096));
+        }
+        latin1File = Files.createTempFile("ocr", ".txt");
+        Files.write(latin1File, ocrText.getBytes(StandardCharsets.ISO_8859_1));
+        utf8File = Files.createTempFile("ocr", ".txt");
+        Files.write(utf8File, ocrText.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        Files.delete(latin1File);
+        Files.delete(utf8File);
+    }
+    
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public boolean matchesShort()
+    {
+        return invoicePattern.matches(SHORT_TEXT);
+    }
+    
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public boolean findShort()
+    {
+        return invoicePattern.find(SHORT_TEXT);
+    }
+    
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public boolean findShortCharSequence()
+    {
+        return invoicePattern.find(SHORT_BUFFER);
+    }
+    
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public boolean findDateShort()
+    {
+        return datePattern.find(SHORT_TEXT);
+    }
+    
+    @Benchmark
+    public boolean findMissingInOcr()
+    {
+        return missingPattern.find(ocrText);
+    }
+    
+    @Benchmark
+    public boolean findMissingInnerLiteralInOcr()
+    {
+        return missingInnerPattern.find(ocrText);
+    }
+    
+    @Benchmark
+    public int findAllDatesInOcr()
+    {
+        return count(datePattern, ocrText);
+    }
+    
+    @Benchmark
+    public int findAllDatesInOcrStream() throws IOException
+    {
+        ReadableStreamMatcher matcher = datePattern.streamMatcher(new StringReader(ocrText));
+        int count = 0;
+        while(matcher.find())
+        {
+            count++;
+        }
+        return count;
+    }
+    
+    @Benchmark
+    public int findAllDatesInOcrParallel()
+    {
+        return datePattern.findAllParallel(ocrText).size();
+    }
+    
+    @Benchmark
+    public int findAllDatesInLatin1File() throws IOException
+    {
+        return datePattern.findAll(latin1File, StandardCharsets.ISO_8859_1).size();
+    }
+    
+    @Benchmark
+    public int findAllDatesInUtf8File() throws IOException
+    {
+        return datePattern.findAll(utf8File).size();
+    }
+    
+    @Benchmark
+    public int findAllInPages()
+    {
+        int count = 0;
+        for(int i=0;i<pages.size();i++)
+        {
+            count += ruleSet.findAll(pages.get(i)).size();
+        }
+        return count;
+    }
+    
+    @Benchmark
+    public int findAllInPagesBatch()
+    {
+        int count = 0;
+        List<List<ReadableRuleSet.RuleMatch>> matches = ruleSet.findAll(pages);
+        for(int i=0;i<matches.size();i++)
+        {
+            count += matches.get(i).size();
+        }
+        return count;
+    }
+    
+    @Benchmark
+    public int findAllOneOfInOcr()
+    {
+        return count(oneOfPattern, ocrText);
+    }
+    
+    @Benchmark
+    public int manyRulesOnPage()
+    {
+        int found = 0;
+        for(int i=0;i<rules.length;i++)
+        {
+            if(rules[i].find(pageText))
+            {
+                found++;
+            }
+        }
+        return found;
+    }
+    
+    @Benchmark
+    public int manyRulesOnPageRuleSet()
+    {
+        return ruleSet.matchingRules(pageText).cardinality();
+    }
+    
+    private static int count(ReadablePattern pattern, String text)
+    {
+        Matcher matcher = pattern.matcher(text);
+        int count = 0;
+        while(matcher.find())
+        {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,55 @@
+package de.exware.rre;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.exware.rre.ReadablePattern.Builder;
+
+/**
+ * Measures the cost of ReadablePatternMetrics for a short find(), which is the worst case, because the
+ * search itself takes less time than reading the clock twice.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark
+{
+    private static final String SHORT_TEXT = "Rechnung RE-2020-4711 vom 31.12.2020 ";
+    @Param({"false", "true"})
+    public boolean metrics;
+    private ReadablePattern pattern;
+
+    @Setup
+    public void setup()
+    {
+        pattern = new Builder().add("RE-").digit().count(4).add("-").digit().oneOrMore().build();
+        ReadablePattern.setListener(metrics ? new ReadablePatternMetrics() : null);
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        ReadablePattern.setListener(null);
+    }
+
+    @Benchmark
+    public boolean find()
+    {
+        return pattern.find(SHORT_TEXT);
+    }
+}
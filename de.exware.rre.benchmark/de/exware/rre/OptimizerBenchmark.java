@@ -0,0 +1,81 @@
+package de.exware.rre;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.exware.rre.ReadablePattern.Builder;
+
+/**
+ * Compares the matching speed of Patterns with and without the optimization of the regular expression.
+ * Run with -p optimize=false to get the numbers before the optimization.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OptimizerBenchmark
+{
+    @Param({"true", "false"})
+    public boolean optimize;
+    private String ocrText;
+    private ReadablePattern wordsPattern;
+    private ReadablePattern monthPattern;
+    private ReadablePattern groupPattern;
+
+    @Setup
+    public void setup()
+    {
+        ocrText = BenchmarkData.createOcrText(256 * 1024);
+        wordsPattern = new Builder(null, "whitespace().oneOf(Rechnung,Rechnungsnummer,Rabatt,Kunde,Kundennummer,Konto,Betrag,Bank)"
+            + ".whitespace()", false).setOptimize(optimize).build();
+        monthPattern = new Builder(null, "digit().oneOf(Jan,Jun,Jul,Mar,Mai,Apr,Aug).dot()", false).setOptimize(optimize).build();
+        groupPattern = new Builder()
+            .add(new Builder().add("Rechnung").whitespace())
+            .add(new Builder().oneOf("vom", "der", "die").whitespace())
+            .setOptimize(optimize)
+            .build();
+    }
+
+    @Benchmark
+    public int findAllWords()
+    {
+        return count(wordsPattern);
+    }
+
+    @Benchmark
+    public int findAllMonths()
+    {
+        return count(monthPattern);
+    }
+
+    @Benchmark
+    public int findAllNestedGroups()
+    {
+        return count(groupPattern);
+    }
+
+    private int count(ReadablePattern pattern)
+    {
+        Matcher matcher = pattern.matcher(ocrText);
+        int count = 0;
+        while(matcher.find())
+        {
+            count++;
+        }
+        return count;
+    }
+}
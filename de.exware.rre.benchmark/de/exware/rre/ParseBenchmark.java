@@ -0,0 +1,95 @@
+package de.exware.rre;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.exware.rre.ReadablePattern.Builder;
+
+/**
+ * Measures the time needed to parse textual Patterns with Builder(String).
+ * The parse time must grow linear with the number of tokens, so doubling the
+ * number of tokens should roughly double the time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark
+{
+    @Param({"2500", "5000", "10000", "20000"})
+    public int tokens;
+    private String longRule;
+    private String[] userRules;
+    
+    @Setup
+    public void setup()
+    {
+        longRule = createRule(tokens);
+        userRules = BenchmarkData.createRules(100);
+    }
+    
+    /**
+     * Creates a rule with the given number of tokens. Contains method calls, plain text
+     * and whitespace between methods.
+     */
+    static String createRule(int tokens)
+    {
+        StringBuilder rule = new StringBuilder();
+        for(int i=0;i<tokens;i++)
+        {
+            if(i > 0)
+            {
+                rule.append(i % 7 == 0 ? ")\r\n    ." : ".");
+            }
+            switch(i % 5)
+            {
+                case 0:
+                    rule.append("add('abc").append(i).append("'");
+                    break;
+                case 1:
+                    rule.append("digit(");
+                    break;
+                case 2:
+                    rule.append("oneOf(a,b,'c d'");
+                    break;
+                case 3:
+                    rule.append("count(1,3");
+                    break;
+                default:
+                    rule.append("addRegEx('[x-z]'");
+                    break;
+            }
+            if(i % 7 != 6 || i == tokens - 1)
+            {
+                rule.append(")");
+            }
+        }
+        return rule.toString();
+    }
+    
+    @Benchmark
+    public Builder parseLongRule()
+    {
+        return new Builder(longRule);
+    }
+    
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Builder parseUserRule()
+    {
+        return new Builder(userRules[tokens % userRules.length]);
+    }
+}
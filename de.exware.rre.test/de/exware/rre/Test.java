@@ -1,12 +1,33 @@
 package de.exware.rre;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 import de.exware.rre.ReadablePattern.Builder;
 import de.exware.rre.ReadablePattern.ReadablePatternExtension;
@@ -96,4 +117,847 @@ public class Test
         matcher = pat2.matcher("ABC hello DEF");
         assertFalse(matcher.matches());
     }
+
+    @org.junit.Test
+    public void testCache()
+    {
+        ReadablePatternCache cache = new ReadablePatternCache(2, 1024 * 1024);
+        ReadablePattern pat = cache.compile("add(xyz)");
+        assertTrue(pat == cache.compile("add(xyz)"));
+        assertTrue(pat != cache.compile("add(xyz)", true));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        cache.compile("add(abc)");
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        Properties properties = new Properties();
+        properties.setProperty("einfuegen", "add");
+        ReadablePattern.Builder.addLanguage(properties);
+        assertTrue(pat != cache.compile("add(xyz)"));
+        cache.invalidate();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getEstimatedHeapSize());
+    }
+
+    @org.junit.Test
+    public void testTranslatedExtension()
+    {
+        List<ReadablePatternExtension> extensions = new ArrayList<>();
+        extensions.add(new ReadablePatternExtension()
+        {
+            @Override
+            public String getFunctionName()
+            {
+                return "hello";
+            }
+            
+            @Override
+            public void createRegEx(Builder builder, String param)
+            {
+                builder.add("hello" + param);
+            }
+        });
+        Properties properties = new Properties();
+        properties.setProperty("hallo", "hello");
+        ReadablePattern.Builder.addLanguage(properties);
+        ReadablePattern pat = ReadablePattern.compile(extensions, "hallo(X).digit()", false);
+        assertTrue(pat.matches("helloX1"));
+        pat = ReadablePattern.compile("hallo(X)");
+        assertFalse(pat.matches("helloX"));
+    }
+
+    @org.junit.Test
+    public void testRuleSet()
+    {
+        String[] textRules = 
+        {
+            "add(Rechnung).whitespace().capture().digit().oneOrMore().captureEnd()",
+            "add(Lieferschein)",
+            "date()",
+            "add(Rechnungs).zeroOrOne().add(nummer)",
+            "oneOf(Kunde,Customer).whitespace()",
+            "ignoreCase().add(BETRAG)",
+        };
+        String[] texts = 
+        {
+            "Rechnung 4711 vom 31.12.2020 ",
+            "Lieferschein Rechnungnummer",
+            "Kunde Betrag ",
+            "xx ABC yy",
+            "",
+        };
+        List<ReadablePattern> patterns = new ArrayList<>();
+        for(int i=0;i<textRules.length;i++)
+        {
+            patterns.add(ReadablePattern.compile(textRules[i]));
+        }
+        patterns.add(ReadablePattern.compile("addRegEx('(?i)').add(abc)", true));
+        ReadableRuleSet rules = new ReadableRuleSet(patterns);
+        for(int t=0;t<texts.length;t++)
+        {
+            BitSet matching = rules.matchingRules(texts[t]);
+            for(int i=0;i<patterns.size();i++)
+            {
+                assertEquals(texts[t] + " / " + patterns.get(i), patterns.get(i).find(texts[t]), matching.get(i));
+            }
+        }
+        List<ReadableRuleSet.RuleMatch> matches = rules.findAll(texts[0]);
+        assertEquals(2, matches.size());
+        assertEquals(0, matches.get(0).getRule());
+        assertEquals(13, matches.get(0).getEnd());
+        assertEquals(2, matches.get(1).getRule());
+        assertEquals(18, matches.get(1).getStart());
+        matches = rules.findAll(texts[3]);
+        assertEquals(1, matches.size());
+        assertEquals(textRules.length, matches.get(0).getRule());
+        assertEquals(3, matches.get(0).getStart());
+    }
+
+    @org.junit.Test
+    public void testLiteralFilter()
+    {
+        ReadablePattern pat = ReadablePattern.compile("add(Rechnung).whitespace().oneOf(Nr,Nummer).add(':').zeroOrOne()");
+        assertTrue(pat.mayMatch("Rechnung Nr 4711"));
+        assertTrue(pat.find("Rechnung Nr 4711"));
+        assertFalse(pat.mayMatch("Lieferschein Nr 4711"));
+        assertFalse(pat.find("Lieferschein Nr 4711"));
+        assertFalse(pat.mayMatch("Rechnung No 4711"));
+        assertTrue(pat.matches("Rechnung\tNummer"));
+        pat = ReadablePattern.compile("add(Rechnung).zeroOrOne()");
+        assertTrue(pat.mayMatch("Rechnun"));
+        assertTrue(pat.find("Rechnun"));
+        pat = ReadablePattern.compile("add(Rechnung).addRegEx('|Lieferschein')", true);
+        assertTrue(pat.find("Lieferschein"));
+        pat = ReadablePattern.compile("addRegEx('(?i)').add(abc)", true);
+        assertTrue(pat.mayMatch("xx ABC yy"));
+        assertTrue(pat.find("xx ABC yy"));
+        pat = ReadablePattern.compile("add(abc).addRegEx('(?-i)').add(def)", true);
+        assertTrue(pat.find("abcdef"));
+        pat = ReadablePattern.compile("addRegEx('(?i:x)').add(abc)", true);
+        assertTrue(pat.find("Xabc"));
+        assertFalse(pat.mayMatch("XABC"));
+    }
+
+    @org.junit.Test
+    public void testLargeOneOf()
+    {
+        StringBuilder keywords = new StringBuilder();
+        for(int i=0;i<100;i++)
+        {
+            if(i>0)
+            {
+                keywords.append(",");
+            }
+            keywords.append("Konto").append(i);
+        }
+        ReadablePattern pat = ReadablePattern.compile("oneOf(" + keywords + ")");
+        System.out.println(pat.toString());
+        assertEquals(".oneOf(" + keywords + ")", pat.getReadableRegex());
+        assertTrue(pat.getRegex().startsWith("(?:Konto(?:"));
+        assertTrue(pat.find("Saldo Konto42 offen"));
+        assertFalse(pat.find("Saldo Konto offen"));
+        assertTrue(pat.matches("Konto99"));
+        assertFalse(pat.matches("Konto100"));
+        Matcher matcher = pat.matcher("Konto1 Konto12");
+        assertTrue(matcher.find());
+        assertEquals("Konto1", matcher.group());
+        assertTrue(matcher.find());
+        assertEquals("Konto1", matcher.group());
+        pat = ReadablePattern.compile("add(Nr).whitespace().oneOf(" + keywords + ")");
+        assertTrue(pat.find("Nr Konto7"));
+        assertFalse(pat.find("Nr7 Konto"));
+        // a Builder, which is built again, must not keep the keywords of the first build
+        String[] words = keywords.toString().split(",");
+        Builder builder = new Builder().oneOf(words);
+        assertTrue(builder.build().matches("Konto3"));
+        pat = builder.add("ZZZ").build();
+        assertFalse(pat.find("xx Konto3 yy"));
+        assertFalse(pat.matches("Konto3"));
+        assertTrue(pat.matches("Konto3ZZZ"));
+    }
+
+    @org.junit.Test
+    public void testCharSequence()
+    {
+        ReadablePattern pat = ReadablePattern.compile("add(Nr).whitespace().digit().oneOrMore()");
+        StringBuilder text = new StringBuilder("Nr 12 und Nr 13");
+        assertTrue(pat.find(text));
+        assertTrue(pat.find(text, 10));
+        assertFalse(pat.find(text, 11));
+        assertFalse(pat.matches(text));
+        text.setLength(5);
+        assertTrue(pat.matches(text));
+        assertTrue(pat.matches("Nr 4711"));
+        assertFalse(pat.find("Nr x"));
+    }
+
+    @org.junit.Test
+    public void testStreamMatcher() throws Exception
+    {
+        StringBuilder text = new StringBuilder();
+        for(int i=0;i<200;i++)
+        {
+            text.append("Rechnung ").append(i).append(" vom 1.").append(i % 12 + 1).append(".2020 \n");
+        }
+        ReadablePattern pat = ReadablePattern.compile("date()");
+        Matcher matcher = pat.matcher(text.toString());
+        ReadableStreamMatcher streamMatcher = new ReadableStreamMatcher(pat, new StringReader(text.toString()), 32);
+        int count = 0;
+        while(matcher.find())
+        {
+            assertTrue(streamMatcher.find());
+            assertEquals(matcher.start(), streamMatcher.start());
+            assertEquals(matcher.group(), streamMatcher.group());
+            count++;
+        }
+        assertFalse(streamMatcher.find());
+        assertEquals(200, count);
+        pat = ReadablePattern.compile("add(Rechnung).whitespace().capture().digit().oneOrMore().captureEnd()");
+        streamMatcher = pat.streamMatcher(new ByteArrayInputStream(text.toString().getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8);
+        for(int i=0;i<200;i++)
+        {
+            assertTrue(streamMatcher.find());
+            assertEquals(String.valueOf(i), streamMatcher.group(1));
+        }
+        assertFalse(streamMatcher.find());
+        streamMatcher.close();
+        // matches at the end of the window must not be reported, if they need the end of the text
+        String[] regexes = {"b$", "\\.$", "(?-m)b$", "a|b$"};
+        String[] texts = {"ab.b\nxb.b", "b.\n.bb", "bbb\r\nb", "ab\n", "ab"};
+        for(int r=0;r<regexes.length;r++)
+        {
+            pat = new Builder().addRegEx(regexes[r]).build();
+            for(int t=0;t<texts.length;t++)
+            {
+                matcher = pat.matcher(texts[t]);
+                streamMatcher = new ReadableStreamMatcher(pat, new StringReader(texts[t]), 1);
+                while(matcher.find())
+                {
+                    assertTrue(regexes[r] + " / " + texts[t], streamMatcher.find());
+                    assertEquals(regexes[r] + " / " + texts[t], matcher.start(), streamMatcher.start());
+                    assertEquals(matcher.end(), streamMatcher.end());
+                }
+                assertFalse(regexes[r] + " / " + texts[t], streamMatcher.find());
+            }
+        }
+    }
+
+    @org.junit.Test
+    public void testFindAllInFile() throws Exception
+    {
+        ReadablePattern pat = ReadablePattern.compile("add(Nr).whitespace().capture().alpha().oneOrMore().captureEnd()");
+        String text = "Rechnung Nr 4711\nGr\u00fc\u00dfe Nr A12 und Nr Bx";
+        String[] charsets = {"UTF-8", "ISO-8859-1", "US-ASCII"};
+        Path file = Files.createTempFile("rre", ".txt");
+        try
+        {
+            for(int i=0;i<charsets.length;i++)
+            {
+                Charset charset = Charset.forName(charsets[i]);
+                Files.write(file, text.getBytes(charset));
+                List<ReadableMatch> matches = pat.findAll(file, charset);
+                String decoded = new String(text.getBytes(charset), charset);
+                List<ReadableMatch> expected = pat.findAll(decoded);
+                assertEquals(3, matches.size());
+                for(int x=0;x<matches.size();x++)
+                {
+                    assertEquals(expected.get(x).getStart(), matches.get(x).getStart());
+                    assertEquals(expected.get(x).getGroup(1), matches.get(x).getGroup(1));
+                }
+            }
+            Files.write(file, "Nr 1 Nr 2".getBytes(StandardCharsets.UTF_8));
+            assertEquals("2", pat.findAll(file).get(1).getGroup(1));
+        }
+        finally
+        {
+            Files.delete(file);
+        }
+    }
+
+    @org.junit.Test
+    public void testBatch() throws Exception
+    {
+        List<String> texts = new ArrayList<>();
+        for(int i=0;i<100;i++)
+        {
+            texts.add(i % 3 == 0 ? "Lieferschein " + i : "Rechnung " + i + " Rechnung " + (i + 1));
+        }
+        ReadablePattern pat = ReadablePattern.compile("add(Rechnung).whitespace().capture().digit().oneOrMore().captureEnd()");
+        List<List<ReadableMatch>> result = pat.findAll(texts);
+        assertEquals(100, result.size());
+        assertEquals(0, result.get(99).size());
+        assertEquals("99", result.get(98).get(1).getGroup(1));
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try
+        {
+            result = pat.findAll(texts, executor);
+            for(int i=0;i<texts.size();i++)
+            {
+                assertEquals(i % 3 == 0 ? 0 : 2, result.get(i).size());
+            }
+            ReadableRuleSet rules = new ReadableRuleSet(pat, ReadablePattern.compile("add(Lieferschein)"));
+            List<List<ReadableRuleSet.RuleMatch>> ruleMatches = rules.findAll(texts, executor);
+            assertEquals(1, ruleMatches.get(3).get(0).getRule());
+            assertEquals(0, ruleMatches.get(4).get(0).getRule());
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    @org.junit.Test
+    public void testParallelSearch() throws Exception
+    {
+        assertEquals(-1, ReadablePattern.compile("digit().oneOrMore()").getMaxMatchLength());
+        assertEquals(8, ReadablePattern.compile("add(Nr).whitespace().digit().count(2)").getMaxMatchLength());
+        // \0123 is an octal escape followed by 4
+        assertEquals(2, new Builder().addRegEx("\\01234").build().getMaxMatchLength());
+        assertEquals(2, new Builder().addRegEx("\\0777").build().getMaxMatchLength());
+        ReadablePattern pat = ReadablePattern.compile("date()");
+        StringBuilder text = new StringBuilder();
+        for(int i=0;i<300;i++)
+        {
+            text.append("Rechnung ").append(i).append(" vom ").append(i % 28 + 1).append(".").append(i % 12 + 1).append(".2020 ");
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try
+        {
+            List<ReadableMatch> expected = pat.findAll(text);
+            List<ReadableMatch> matches = pat.findAllParallel(text, executor, 50);
+            assertEquals(300, matches.size());
+            for(int i=0;i<matches.size();i++)
+            {
+                assertEquals(expected.get(i).getStart(), matches.get(i).getStart());
+                assertEquals(expected.get(i).getText(), matches.get(i).getText());
+            }
+            pat = ReadablePattern.compile("addRegEx('(?:ab|a|)')", true);
+            assertEquals(pat.findAll("aababbab").toString(), pat.findAllParallel("aababbab", executor, 1).toString());
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    @org.junit.Test
+    public void testLanguageRegistry()
+    {
+        ReadablePattern pat = ReadablePattern.compile("einfuegen(Rechnung).leerzeichen().datum()", Language.german());
+        assertEquals(".add('Rechnung').whitespace().date()", pat.getReadableRegex());
+        assertTrue(pat.find("Rechnung 31.12.2020 "));
+        Map<String, String> words = new HashMap<>();
+        words.put("rechnung", "add");
+        Language language = Language.german().extend(words);
+        pat = ReadablePattern.compile("rechnung(Nr).ziffer()", language);
+        assertTrue(pat.find("Nr4"));
+        assertFalse(Language.german().getTranslation().containsKey("rechnung"));
+        assertFalse(Language.DEFAULT.getTranslation().containsKey("datum"));
+        ReadablePatternCache cache = new ReadablePatternCache(10, 1024 * 1024);
+        assertTrue(cache.compile("ziffer()", Language.german()) != cache.compile("ziffer()", language));
+    }
+
+    @org.junit.Test
+    public void testBundle() throws Exception
+    {
+        String[] keywords = new String[20];
+        for(int i=0;i<keywords.length;i++)
+        {
+            keywords[i] = "Kunde" + i;
+        }
+        List<ReadablePattern> patterns = new ArrayList<>();
+        patterns.add(ReadablePattern.compile("add(Rechnung).whitespace().capture().digit().oneOrMore().captureEnd()"));
+        patterns.add(new Builder().oneOf(keywords).build());
+        patterns.add(ReadablePattern.compile("ignoreCase().date()"));
+        patterns.add(new Builder().addRegEx("(\\w+\\s?)+!").setMatchTimeout(50).setMatchStepLimit(20).build());
+        Path file = Files.createTempFile("rre", ".rre");
+        try
+        {
+            ReadableBundle.write(patterns, file);
+            List<ReadablePattern> loaded = ReadableBundle.read(file);
+            assertEquals(patterns.size(), loaded.size());
+            for(int i=0;i<patterns.size();i++)
+            {
+                assertEquals(patterns.get(i).getReadableRegex(), loaded.get(i).getReadableRegex());
+                assertEquals(patterns.get(i).getRegex(), loaded.get(i).getRegex());
+                assertEquals(patterns.get(i).getFlags(), loaded.get(i).getFlags());
+                assertEquals(patterns.get(i).getMaxMatchLength(), loaded.get(i).getMaxMatchLength());
+                assertEquals(patterns.get(i).getCanonicalForm(), loaded.get(i).getCanonicalForm());
+            }
+            assertEquals("Rechnung", loaded.get(0).getRequiredLiterals()[0][0]);
+            assertFalse(loaded.get(0).mayMatch("Lieferschein 4711"));
+            assertEquals("4711", loaded.get(0).findAll("Rechnung 4711").get(0).getGroup(1));
+            assertEquals(20, loaded.get(1).getKeywords().length);
+            assertTrue(loaded.get(1).matches("Kunde17"));
+            assertTrue(loaded.get(2).find(" 1. MAI. 2020 "));
+            assertEquals(20, loaded.get(3).getStepLimit());
+            try
+            {
+                loaded.get(3).findAll("aaaaaaaaaaaaaaaaaaaaaaaaaaaaaa.!");
+                fail();
+            }
+            catch(ReadablePatternTimeoutException ex)
+            {
+            }
+            ByteBuffer oldVersion = ByteBuffer.allocate(12).putInt(0x52524500).putInt(1).putInt(0);
+            oldVersion.flip();
+            try
+            {
+                ReadableBundle.read(oldVersion);
+                fail();
+            }
+            catch(IOException ex)
+            {
+            }
+            Files.write(file, "add(abc)".getBytes(StandardCharsets.UTF_8));
+            try
+            {
+                ReadableBundle.read(file);
+                assertTrue(false);
+            }
+            catch(IOException ex)
+            {
+            }
+        }
+        finally
+        {
+            Files.delete(file);
+        }
+    }
+
+    @org.junit.Test
+    public void testExpressionTree()
+    {
+        Builder builder = new Builder().add("abc").zeroOrMore().capture().digit().count(2).captureEnd().startOfLine();
+        Node.Sequence tree = builder.tree();
+        assertEquals("^abc*(\\d{2})", tree.toRegex());
+        assertEquals(".startOfLine().add('abc').zeroOrMore().capture().digit().count(2).captureEnd()", tree.toReadable());
+        List<Node> nodes = tree.getNodes();
+        assertEquals(4, nodes.size());
+        assertTrue(nodes.get(0) instanceof Node.Anchor);
+        assertEquals("ab", ((Node.Literal) nodes.get(1)).getText());
+        Node.Quantifier quantifier = (Node.Quantifier) nodes.get(2);
+        assertEquals("c", ((Node.Literal) quantifier.getElement()).getText());
+        assertEquals(Node.Quantifier.UNBOUNDED, quantifier.getMax());
+        Node.Capture capture = (Node.Capture) nodes.get(3);
+        assertEquals(2, ((Node.Quantifier) capture.getContent().getNodes().get(0)).getMin());
+        builder = new Builder().add("x").add(new Builder().oneOf("ab", "cd").oneOrMore().lazy());
+        Node.Group group = (Node.Group) builder.tree().getNodes().get(1);
+        assertTrue(((Node.Quantifier) group.getContent().getNodes().get(0)).isLazy());
+        ReadablePattern pat = builder.build();
+        assertEquals("x(?:ab|cd)+?", pat.getRegex());
+        assertEquals(".add('x').addRegEx('(?:(?:(?:ab)|(?:cd))+?)')", pat.getReadableRegex());
+        assertEquals("(a", new Builder().capture().add("a").tree().toRegex());
+    }
+
+    @org.junit.Test
+    public void testOptimizer()
+    {
+        assertEquals("(?:aa|bb|cc)", new Builder().oneOf("aa", "bb", "cc").build().getRegex());
+        assertEquals("(?:ab[cd])", new Builder().oneOf("abc", "abd").build().getRegex());
+        assertEquals("(?:(?:abc)|(?:abd))", new Builder().oneOf("abc", "abd").setOptimize(false).build().getRegex());
+        Builder builder = new Builder().add("x").addGroup("abc").add(new Builder().add("y").digit());
+        assertEquals("xabcy\\d", builder.build().getRegex());
+        builder = new Builder().add("x").addGroup("abc").add(new Builder().add("y").digit()).setOptimize(false);
+        assertEquals("x(?:abc)(?:y\\d)", builder.build().getRegex());
+        assertEquals(builder.build().getReadableRegex(), new Builder().add("x").addGroup("abc")
+            .add(new Builder().add("y").digit()).build().getReadableRegex());
+        // the group limits the alternative and the quantifier
+        assertEquals("x(?:a|b)", new Builder().add("x").add(new Builder().addRegEx("a|b")).build().getRegex());
+        assertEquals("(?:ab)+", new Builder().add(new Builder().add("ab")).oneOrMore().build().getRegex());
+        // incomplete regular expressions are not optimized
+        assertEquals("(?:(x)(?:ab))", new Builder().addRegEx("(?:(x)").addGroup("ab").addRegEx(")").build().getRegex());
+        String text = "x abd abc ABD abx";
+        ReadablePattern optimized = new Builder().whitespace().capture().oneOf("abc", "abd", "ab").captureEnd().ignoreCase(true).build();
+        ReadablePattern plain = new Builder().whitespace().capture().oneOf("abc", "abd", "ab").captureEnd().ignoreCase(true)
+            .setOptimize(false).build();
+        List<ReadableMatch> expected = plain.findAll(text);
+        List<ReadableMatch> found = optimized.findAll(text);
+        assertEquals(expected.size(), found.size());
+        for(int i=0;i<expected.size();i++)
+        {
+            assertEquals(expected.get(i).getStart(), found.get(i).getStart());
+            assertEquals(expected.get(i).getGroup(1), found.get(i).getGroup(1));
+        }
+    }
+
+    @org.junit.Test
+    public void testDfa()
+    {
+        ReadablePattern pattern = ReadablePattern.compile("add(Rechnung).whitespace().digit().count(2,6).oneOf(a,b).zeroOrOne()");
+        assertTrue(pattern.usesDfa());
+        assertTrue(pattern.matches("Rechnung 4711a"));
+        assertFalse(pattern.matches("Rechnung 4711ab"));
+        assertTrue(pattern.find("Die Rechnung 47 vom"));
+        assertFalse(pattern.find("Die Rechnung 4 vom"));
+        assertFalse(pattern.find("Rechnung 4711", 1));
+        assertFalse(new Builder().date().build().usesDfa());
+        assertFalse(new Builder().startOfLine().add("a").build().usesDfa());
+        assertFalse(new Builder().addRegEx("(a)\\1").build().usesDfa());
+        pattern = new Builder().range('a', 'c').oneOrMore().anyCharacter().ignoreCase(true).build();
+        assertTrue(pattern.usesDfa());
+        assertTrue(pattern.matches("aBc\uD835\uDC9C"));
+        assertFalse(pattern.matches("abc\n"));
+        // exponential for java.util.regex
+        pattern = new Builder().add(new Builder().alpha().oneOrMore().whitespace().zeroOrOne()).count(1, 30).add("!").build();
+        assertFalse(pattern.matches("aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa!x"));
+        assertTrue(pattern.find("aaaaaaaaaa aaaaaaaaaa!x"));
+        // more states than cached
+        String regex = "[ab]*a[ab]{14}c";
+        LazyDfa dfa = LazyDfa.of(regex, 0);
+        Random random = new Random(1);
+        for(int i=0;i<50;i++)
+        {
+            StringBuilder text = new StringBuilder();
+            for(int x=0;x<2000;x++)
+            {
+                text.append("abbc".charAt(random.nextInt(random.nextInt(20) == 0 ? 4 : 3)));
+            }
+            assertEquals(Pattern.compile(regex).matcher(text).find(), dfa.find(text, 0));
+        }
+    }
+
+    @org.junit.Test
+    public void testBacktracking()
+    {
+        Builder words = new Builder().add(new Builder().alpha().oneOrMore().whitespace().zeroOrOne()).count(1, 30).add("!");
+        assertEquals(1, words.build().getWarnings().size());
+        assertTrue(words.build().getWarnings().get(0).contains("exponentially"));
+        ReadablePattern pattern = ReadablePattern.compile("anyCharacter().zeroOrMore().add(a).anyCharacter().zeroOrMore()"
+            + ".add(b).anyCharacter().zeroOrMore().add(c)");
+        assertTrue(pattern.getWarnings().get(0).contains("polynomially with degree 3"));
+        assertTrue(new Builder().date().build().getWarnings().isEmpty());
+        assertTrue(new Builder().digit().oneOrMore().dot().digit().oneOrMore().build().getWarnings().isEmpty());
+        // possessive quantifiers do not backtrack
+        assertTrue(new Builder().addRegEx("(?:\\w++\\s?)+!").build().getWarnings().isEmpty());
+        try
+        {
+            words.setStrict(true).build();
+            fail();
+        }
+        catch(IllegalArgumentException ex)
+        {
+        }
+        // the anchor is not supported by the DFA, so java.util.regex backtracks
+        String text = "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa!x";
+        Builder anchored = new Builder().startOfLine().add(new Builder().alpha().oneOrMore().whitespace().zeroOrOne()).count(1, 30).add("!");
+        pattern = anchored.setMatchStepLimit(100000).build();
+        assertFalse(pattern.usesDfa());
+        assertTrue(pattern.find("aaa aa!"));
+        try
+        {
+            pattern.matches(text);
+            fail();
+        }
+        catch(ReadablePatternTimeoutException ex)
+        {
+            assertTrue(ex.getSteps() > 100000);
+        }
+        pattern = new Builder().startOfLine().add(new Builder().alpha().oneOrMore().whitespace().zeroOrOne()).count(1, 30).add("!")
+            .setMatchTimeout(50).build();
+        long start = System.nanoTime();
+        try
+        {
+            pattern.findAll("aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa.!");
+            fail();
+        }
+        catch(ReadablePatternTimeoutException ex)
+        {
+        }
+        assertTrue(System.nanoTime() - start < 5000000000L);
+        // all other ways to search are limited too
+        String sentence = "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa.!";
+        ReadablePattern unbounded = new Builder().addRegEx("(\\w+\\s?)+!").setMatchStepLimit(20).build();
+        ReadablePattern bounded = new Builder().addRegEx("(\\w{1,3}\\s?){1,30}!").setMatchStepLimit(20).build();
+        assertTimeout(() -> unbounded.findAll(sentence));
+        assertTimeout(() -> new ReadableRuleSet(unbounded).findAll(sentence));
+        assertTimeout(() -> new ReadableStreamMatcher(unbounded, new StringReader(sentence), 16).find());
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try
+        {
+            assertTimeout(() -> bounded.findAllParallel(sentence, executor, 16));
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+        ReadableMatchSession session = bounded.matchSession("x");
+        assertTimeout(() -> session.edit(1, 0, sentence));
+        assertEquals("x", session.getText());
+        assertTrue(session.getMatches().isEmpty());
+    }
+
+    private static void assertTimeout(TimeoutCall call)
+    {
+        try
+        {
+            call.run();
+            fail();
+        }
+        catch(ReadablePatternTimeoutException ex)
+        {
+        }
+        catch(IOException ex)
+        {
+            throw new AssertionError(ex);
+        }
+    }
+
+    private interface TimeoutCall
+    {
+        void run() throws IOException;
+    }
+
+    @org.junit.Test
+    public void testDateScanner()
+    {
+        String text = "Rechnung vom 31.12.2020 und 1. Jan. 2021, 2021-1-5 x2020-01-05 09/1/1999\t3. dez. 1999 39.19.2020 ";
+        ReadablePattern pattern = new Builder().date().build();
+        assertTrue(DateScanner.of(pattern.getRegex(), pattern.getFlags()) != null);
+        assertTrue(DateScanner.of(new Builder().whitespace().date().build().getRegex(), 0) == null);
+        List<ReadableMatch> dates = pattern.findAll(text);
+        assertEquals("[13-23: 31.12.2020, 42-50: 2021-1-5, 63-72: 09/1/1999, 86-96: 39.19.2020]", dates.toString());
+        assertEquals(LocalDate.of(2020, 12, 31), dates.get(0).getDate());
+        assertEquals(LocalDate.of(2021, 1, 5), dates.get(1).getDate());
+        assertEquals(LocalDate.of(1999, 1, 9), dates.get(2).getDate());
+        assertEquals(null, dates.get(3).getDate());
+        pattern = new Builder().date().ignoreCase(true).build();
+        assertEquals(LocalDate.of(1999, 12, 3), pattern.findAll(text).get(3).getDate());
+        Matcher matcher = Pattern.compile(pattern.getRegex(), pattern.getFlags()).matcher(text);
+        for(ReadableMatch date : pattern.findAll(text))
+        {
+            assertTrue(matcher.find());
+            assertEquals(matcher.start(), date.getStart());
+            assertEquals(matcher.end(), date.getEnd());
+        }
+        assertFalse(matcher.find());
+        assertTrue(pattern.find(text, 86));
+        assertFalse(pattern.find(text, 87));
+        assertFalse(pattern.matches(" 31.12.2020 "));
+        assertEquals(LocalDate.of(2020, 2, 29), DateScanner.toDate("2020-2-29"));
+        assertEquals(null, DateScanner.toDate("29.02.2021"));
+    }
+
+    @org.junit.Test
+    public void testStandardFunctions()
+    {
+        ReadablePattern pattern = ReadablePattern.compile("add('IBAN:').whitespace().iban()");
+        assertEquals("IBAN: DE89 3704 0044 0532 0130 00", pattern.findAll("IBAN: DE89 3704 0044 0532 0130 00 BIC COBADEFFXXX").get(0).getText());
+        assertEquals(".add('IBAN:').whitespace().iban()", pattern.getReadableRegex());
+        pattern = ReadablePattern.compile("einfuegen(Betrag).leerzeichen().betrag()", Language.german());
+        assertEquals(".add('Betrag').whitespace().amount()", pattern.getReadableRegex());
+        assertTrue(pattern.find("Betrag 1.234,56 EUR"));
+        pattern = new Builder().add(StandardFunctions.AMOUNT).build();
+        assertEquals("[6-14: 1.234,56, 20-28: 1,234.56, 30-36: -12.50]", pattern.findAll("Summe 1.234,56 EUR, 1,234.56, -12.50, 123.456").toString());
+        assertEquals("[3-7: 9:30, 12-20: 23:59:59]", ReadablePattern.compile("time()").findAll("um 9:30 bis 23:59:59, nicht 24:00").toString());
+        assertEquals("[9-13: 4711, 14-26: RE-2020-0001]", ReadablePattern.compile("invoiceNumber()").findAll("Rechnung 4711 RE-2020-0001 Re-12").toString());
+        assertEquals("[8-21: info@firma.de]", ReadablePattern.compile("email()").findAll("Mail an info@firma.de. Oder a@b").toString());
+        for(ReadablePatternExtension function : new StandardFunctions().getFunctions())
+        {
+            assertTrue(ReadablePattern.compile(function.getFunctionName() + "()").getWarnings().isEmpty());
+        }
+        // extensions, which are passed to compile(), take precedence
+        List<ReadablePatternExtension> extensions = new ArrayList<>();
+        extensions.add(new ReadableFunction("time", "\\d{2}:\\d{2}"));
+        assertEquals("(?:\\d{2}:\\d{2})", ReadablePattern.compile(extensions, "time()", false).getRegex());
+    }
+
+    @org.junit.Test
+    public void testMetrics()
+    {
+        ReadablePatternMetrics metrics = new ReadablePatternMetrics();
+        ReadablePattern.setListener(metrics);
+        try
+        {
+            ReadablePattern invoice = ReadablePattern.compile("add('RE-').digit().count(4)");
+            ReadablePattern amount = new Builder().digit().oneOrMore().add(",").digit().count(2).build();
+            assertTrue(invoice.find("Rechnung RE-2020"));
+            assertFalse(invoice.find("Rechnung 4711"));
+            assertFalse(invoice.matches("RE-20"));
+            assertEquals(1, amount.findAll("Summe 12,50 EUR").size());
+            PatternMetrics invoiceMetrics = metrics.getMetrics(invoice.getReadableRegex());
+            assertEquals(1, invoiceMetrics.getCompileCount());
+            assertEquals(3, invoiceMetrics.getMatchCount());
+            assertEquals(1, invoiceMetrics.getHitCount());
+            assertEquals(2, invoiceMetrics.getMissCount());
+            assertEquals(16, invoiceMetrics.getMaxTextLength());
+            assertTrue(invoiceMetrics.getNanosAtPercentile(99) > 0);
+            assertTrue(invoiceMetrics.getNanosAtPercentile(99) <= invoiceMetrics.getMaxNanos());
+            assertEquals(1, metrics.getMetrics(amount.getReadableRegex()).getHitCount());
+            assertEquals(2, metrics.getPatternCount());
+            assertEquals(4, metrics.getMatchCount());
+            List<PatternMetrics> slowest = metrics.getSlowest(2);
+            assertTrue(slowest.get(0).getTotalNanos() >= slowest.get(1).getTotalNanos());
+            assertTrue(metrics.report(10).contains(invoice.getReadableRegex()));
+            // each rule of a ReadableRuleSet, which needs to be searched, is measured
+            ReadableRuleSet rules = new ReadableRuleSet(invoice, amount);
+            assertEquals(1, rules.findAll("RE-2020").size());
+            assertEquals(4, invoiceMetrics.getMatchCount());
+            metrics.reset();
+            assertEquals(0, metrics.getPatternCount());
+            assertEquals(null, metrics.getMetrics(invoice.getReadableRegex()));
+        }
+        finally
+        {
+            ReadablePattern.setListener(null);
+        }
+    }
+
+    @org.junit.Test
+    public void testMatchSession()
+    {
+        ReadablePattern pattern = new Builder().date().build();
+        String text = "Rechnung vom 31.12.2020 , Lieferung am 2.1.2021 und Zahlung am 15.1.2021 ";
+        ReadableMatchSession session = pattern.matchSession(text);
+        assertEquals("[13-23: 31.12.2020, 39-47: 2.1.2021, 63-72: 15.1.2021]", session.getMatches().toString());
+        // OCR correction of the second date, which moves the third one
+        assertEquals("[13-23: 31.12.2020, 39-49: 02.01.2021, 65-74: 15.1.2021]", session.edit(39, 3, "02.01").toString());
+        assertEquals(pattern.findAll(session.getText()).toString(), session.getMatches().toString());
+        // the whitespace before the first date is removed, so that the look behind fails
+        assertEquals("[38-48: 02.01.2021, 64-73: 15.1.2021]", session.edit(12, 1, "").toString());
+        assertEquals("[38-48: 02.01.2021, 64-73: 15.1.2021, 74-84: 01.02.2021]", session.edit(74, 0, "01.02.2021 ").toString());
+        // the reach of octal escapes
+        StringBuilder octal = new StringBuilder();
+        for(int i=0;i<10;i++)
+        {
+            octal.append("S4");
+        }
+        session = new Builder().addRegEx("(?:\\01234){10}").build().matchSession(octal);
+        assertEquals(1, session.getMatches().size());
+        assertEquals(0, session.edit(19, 1, "5").size());
+        assertEquals(0, session.getPattern().findAll(session.getText()).size());
+        // unbounded patterns are searched again completely
+        session = new Builder().digit().oneOrMore().build().matchSession("12 345");
+        assertEquals("[0-2: 12, 3-7: 3945]", session.edit(4, 0, "9").toString());
+        assertEquals("[0-6: 123945]", session.edit(2, 1, "").toString());
+        try
+        {
+            session.edit(5, 2, "");
+            fail();
+        }
+        catch(IndexOutOfBoundsException ex)
+        {
+        }
+    }
+
+    @org.junit.Test
+    public void testLazyPattern() throws IOException
+    {
+        ReadablePattern pattern = new Builder("add('RE-').digit().count(4)").setLazy(true).build();
+        assertTrue(pattern.isLazy());
+        assertTrue(pattern.find("Rechnung RE-2020"));
+        assertEquals("[9-16: RE-2020]", pattern.findAll("Rechnung RE-2020").toString());
+        Matcher matcher = pattern.matcher("RE-2020");
+        assertTrue(matcher.matches());
+        assertTrue(matcher.pattern() == pattern.getPattern());
+        pattern = new Builder().startOfLine().date().setLazy(true).build();
+        assertFalse(pattern.usesDfa());
+        assertEquals(0, pattern.findAll(" 31.12.2020 ").size());
+        // the syntax is still checked by build()
+        try
+        {
+            new Builder().addRegEx("(?<n>a)(?<n>b)").setLazy(true).build();
+            fail();
+        }
+        catch(PatternSyntaxException ex)
+        {
+        }
+        try
+        {
+            new Builder().addRegEx("a{3,2}").setLazy(true).build();
+            fail();
+        }
+        catch(PatternSyntaxException ex)
+        {
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ReadableBundle.write(Arrays.asList(ReadablePattern.compile("add('RE-').digit().count(4)"), new Builder().date().build()), out);
+        List<ReadablePattern> patterns = ReadableBundle.read(ByteBuffer.wrap(out.toByteArray()), true);
+        assertTrue(patterns.get(0).isLazy());
+        assertTrue(patterns.get(0).matches("RE-2020"));
+        assertTrue(patterns.get(0).usesDfa());
+        assertTrue(patterns.get(1).find("vom 31.12.2020 "));
+        // a Builder, which is built again, must not keep the compiled Pattern of the first build
+        Builder builder = new Builder().add("abc");
+        assertTrue(builder.build().matches("abc"));
+        pattern = builder.add("def").setLazy(true).build();
+        assertTrue(pattern.isLazy());
+        assertFalse(pattern.matcher("abc").matches());
+        assertFalse(pattern.matches("abc"));
+        assertTrue(pattern.matches("abcdef"));
+        pattern = builder.add("(").setLazy(false).build();
+        assertFalse(pattern.isLazy());
+        assertTrue(pattern.matcher("abcdef(").matches());
+    }
+
+    @org.junit.Test
+    public void testPatternPool()
+    {
+        ReadablePatternPool pool = new ReadablePatternPool();
+        ReadablePattern pattern = pool.compile("add(Rechnung).whitespace().digit().count(4)");
+        assertTrue(pattern == pool.compile("add('Rechnung') .whitespace().digit().count(4)"));
+        assertTrue(pattern == pool.compile("einfuegen(\"Rechnung\").leerzeichen().ziffer().anzahl(4)", Language.german()));
+        assertTrue(pattern == pool.intern(new Builder().add("Rechnung").whitespace().digit().count(4).build()));
+        assertFalse(pattern == pool.intern(new Builder().add("Rechnung").whitespace().digit().count(4).ignoreCase(true).build()));
+        assertFalse(pattern == pool.intern(new Builder("add(Rechnung).whitespace().digit().count(4)").setMatchStepLimit(1000).build()));
+        assertEquals(3, pool.getHitCount());
+        assertEquals(3, pool.getMissCount());
+        assertEquals(3, pool.size());
+        // a rule set searches rules with the same canonical form once and reports them for each rule
+        ReadableRuleSet rules = new ReadableRuleSet(ReadablePattern.compile("add(RE-).digit().count(4)"), ReadablePattern.compile("date()"),
+            ReadablePattern.compile("add('RE-').digit().count(4)"));
+        assertEquals("{0, 2}", rules.matchingRules("Rechnung RE-2020").toString());
+        assertEquals("[Rule 0: 9-16, Rule 2: 9-16]", rules.findAll("Rechnung RE-2020").toString());
+    }
+
+    @org.junit.Test
+    public void testCaptures()
+    {
+        ReadablePattern pattern = ReadablePattern.compile("add(RE).capture(year).digit().count(4).captureEnd().add('-')"
+            + ".capture().add(X).captureEnd().zeroOrOne().capture('number').digit().oneOrMore().captureEnd()");
+        assertEquals(".add('RE').capture('year').digit().count(4).captureEnd().add('-').capture().add('X').captureEnd().zeroOrOne()"
+            + ".capture('number').digit().oneOrMore().captureEnd()", pattern.getReadableRegex());
+        assertEquals(3, pattern.getGroupCount());
+        assertEquals(1, pattern.getGroupIndex("year"));
+        assertEquals(3, pattern.getGroupIndex("number"));
+        String text = "RE2020-4711, RE2021-X12";
+        int[] offsets = new int[8];
+        assertTrue(pattern.find(text, 0, offsets));
+        assertEquals("[0, 11, 2, 6, -1, -1, 7, 11]", Arrays.toString(offsets));
+        assertFalse(pattern.find(text, 14, offsets));
+        ReadableCaptures captures = pattern.captures();
+        List<String> found = new ArrayList<>();
+        while(captures.findNext(text))
+        {
+            found.add(captures.group("year") + "/" + captures.group(2) + "/" + captures.group(pattern.getGroupIndex("number")));
+        }
+        assertEquals("[2020/null/4711, 2021/X/12]", found.toString());
+        assertTrue(captures.find(text, 1));
+        assertEquals(13, captures.start(0));
+        assertEquals(19, captures.end("year"));
+        // the group names are also known to java.util.regex
+        Matcher matcher = pattern.matcher(text);
+        assertTrue(matcher.find());
+        assertEquals("4711", matcher.group("number"));
+        try
+        {
+            pattern.getGroupIndex("customer");
+            fail();
+        }
+        catch(IllegalArgumentException ex)
+        {
+        }
+        try
+        {
+            new Builder().capture("1st");
+            fail();
+        }
+        catch(IllegalArgumentException ex)
+        {
+        }
+        captures = new Builder().date().build().captures();
+        assertTrue(captures.find("vom 31.12.2020 "));
+        assertEquals("31.12.2020", captures.group(0).toString());
+        assertEquals(0, captures.groupCount());
+    }
 }
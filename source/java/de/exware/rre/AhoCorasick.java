@@ -0,0 +1,206 @@
+package de.exware.rre;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Aho-Corasick automaton, which finds all occurrences of many keywords with a single
+ * pass over the text. The time needed is linear to the length of the text and does not depend
+ * on the number of keywords.
+ * Instances are immutable and may be used by many threads.
+ */
+class AhoCorasick
+{
+    private static final char[] NO_CHARS = new char[0];
+    private static final int[] NO_STATES = new int[0];
+    private final String[] keywords;
+    /** Sorted edge characters of each state. */
+    private final char[][] edgeChars;
+    /** The target states for the edge characters. */
+    private final int[][] edgeTargets;
+    private final int[] fail;
+    /** The keyword ending in each state, or -1. */
+    private final int[] output;
+    /** The next state in the fail chain, which has an output, or -1. */
+    private final int[] outputLink;
+    private final int[] keywordLength;
+
+    /**
+     * Creates the automaton. Duplicate keywords are allowed. Empty keywords are ignored.
+     */
+    AhoCorasick(String[] keywords)
+    {
+        this.keywords = keywords.clone();
+        List<char[]> chars = new ArrayList<>();
+        List<int[]> targets = new ArrayList<>();
+        List<Integer> outputs = new ArrayList<>();
+        chars.add(NO_CHARS);
+        targets.add(NO_STATES);
+        outputs.add(-1);
+        keywordLength = new int[keywords.length];
+        for(int k=0;k<keywords.length;k++)
+        {
+            String keyword = keywords[k];
+            keywordLength[k] = keyword.length();
+            if(keyword.isEmpty())
+            {
+                continue;
+            }
+            int state = 0;
+            for(int i=0;i<keyword.length();i++)
+            {
+                char c = keyword.charAt(i);
+                char[] stateChars = chars.get(state);
+                int index = Arrays.binarySearch(stateChars, c);
+                if(index >= 0)
+                {
+                    state = targets.get(state)[index];
+                }
+                else
+                {
+                    int next = chars.size();
+                    chars.add(NO_CHARS);
+                    targets.add(NO_STATES);
+                    outputs.add(-1);
+                    index = -index - 1;
+                    chars.set(state, insert(stateChars, index, c));
+                    targets.set(state, insert(targets.get(state), index, next));
+                    state = next;
+                }
+            }
+            if(outputs.get(state) < 0)
+            {
+                outputs.set(state, k);
+            }
+        }
+        int count = chars.size();
+        edgeChars = chars.toArray(new char[count][]);
+        edgeTargets = targets.toArray(new int[count][]);
+        output = new int[count];
+        for(int i=0;i<count;i++)
+        {
+            output[i] = outputs.get(i);
+        }
+        fail = new int[count];
+        outputLink = new int[count];
+        outputLink[0] = -1;
+        int[] queue = new int[count];
+        int head = 0;
+        int tail = 0;
+        for(int i=0;i<edgeTargets[0].length;i++)
+        {
+            int child = edgeTargets[0][i];
+            fail[child] = 0;
+            outputLink[child] = -1;
+            queue[tail++] = child;
+        }
+        while(head < tail)
+        {
+            int state = queue[head++];
+            for(int i=0;i<edgeChars[state].length;i++)
+            {
+                char c = edgeChars[state][i];
+                int child = edgeTargets[state][i];
+                int f = fail[state];
+                int target = next(f, c);
+                while(target < 0 && f != 0)
+                {
+                    f = fail[f];
+                    target = next(f, c);
+                }
+                fail[child] = target < 0 ? 0 : target;
+                int link = fail[child];
+                outputLink[child] = output[link] >= 0 ? link : outputLink[link];
+                queue[tail++] = child;
+            }
+        }
+    }
+
+    private static char[] insert(char[] array, int index, char c)
+    {
+        char[] result = new char[array.length + 1];
+        System.arraycopy(array, 0, result, 0, index);
+        result[index] = c;
+        System.arraycopy(array, index, result, index + 1, array.length - index);
+        return result;
+    }
+
+    private static int[] insert(int[] array, int index, int value)
+    {
+        int[] result = new int[array.length + 1];
+        System.arraycopy(array, 0, result, 0, index);
+        result[index] = value;
+        System.arraycopy(array, index, result, index + 1, array.length - index);
+        return result;
+    }
+
+    /**
+     * @return the following state or -1 if there's no edge for the character.
+     */
+    private int next(int state, char c)
+    {
+        char[] chars = edgeChars[state];
+        if(chars.length == 0)
+        {
+            return -1;
+        }
+        int index = Arrays.binarySearch(chars, c);
+        return index >= 0 ? edgeTargets[state][index] : -1;
+    }
+
+    private int step(int state, char c)
+    {
+        int target = next(state, c);
+        while(target < 0 && state != 0)
+        {
+            state = fail[state];
+            target = next(state, c);
+        }
+        return target < 0 ? 0 : target;
+    }
+
+    /**
+     * Marks all keywords, which occur in the text. Duplicate keywords are marked with
+     * the index of their first occurrence in the keyword list.
+     * @param found the indexes of the keywords, which were found, will be set.
+     */
+    void findAll(CharSequence text, BitSet found)
+    {
+        int state = 0;
+        int length = text.length();
+        for(int i=0;i<length;i++)
+        {
+            state = step(state, text.charAt(i));
+            int out = output[state] >= 0 ? state : outputLink[state];
+            while(out >= 0)
+            {
+                found.set(output[out]);
+                out = outputLink[out];
+            }
+        }
+    }
+
+    /**
+     * Checks if any of the keywords occurs in the text.
+     */
+    boolean containsAny(CharSequence text, int from, int to)
+    {
+        int state = 0;
+        for(int i=from;i<to;i++)
+        {
+            state = step(state, text.charAt(i));
+            if(output[state] >= 0 || outputLink[state] >= 0)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    String[] getKeywords()
+    {
+        return keywords.clone();
+    }
+}
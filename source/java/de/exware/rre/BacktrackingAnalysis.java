@@ -0,0 +1,430 @@
+package de.exware.rre;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Finds quantifiers, which may let java.util.regex backtrack exponentially, like (?:\w+\s?)+!, or with a high
+ * polynomial degree, like .*.*.*x. Such a regex can hang a thread for hours on a text, which almost matches.
+ * <BR>The regex is translated into a position automaton, which has one state for each character of the regex.
+ * The engine backtracks exponentially, if a state can be left and reached again with the same text on two different
+ * paths. It backtracks polynomially with degree k, if there are k loops, which can each consume the same text, and
+ * each loop can be reached from the previous one with that text. Both are found by walking through pairs of states,
+ * which read the same characters.
+ * <BR>Possessive quantifiers and atomic groups are not backtracked into, so loops inside them are ignored.
+ * Lookarounds and back references are ignored. Counted repetitions like {1,30} are treated like +, if they are too
+ * large to be analyzed exactly. The result is a warning, not a proof.
+ */
+class BacktrackingAnalysis
+{
+    /** Polynomial backtracking is reported from this degree on. Quadratic backtracking like in .*x.* is common. */
+    static final int MIN_REPORTED_DEGREE = 3;
+    /** Larger regular expressions are not analyzed, because the pairs of states need too much time and memory. */
+    private static final int MAX_POSITIONS = 300;
+    /** Counted repetitions up to this maximum are analyzed exactly. */
+    private static final int MAX_EXPANDED_COUNT = 4;
+    /** The maximum number of visited transitions. The analysis stops with the results found so far. */
+    private static final int MAX_WORK = 1000000;
+    private final String regex;
+    private final List<CharSet> sets = new ArrayList<>();
+    private final List<BitSet> follow = new ArrayList<>();
+    /** The following positions, which are reached on two different ways, like in (?:a+)+. */
+    private final List<BitSet> followTwice = new ArrayList<>();
+    /** Positions inside of possessive quantifiers and atomic groups. */
+    private final BitSet atomic = new BitSet();
+    /** The outermost repeating quantifier of each position, or null. */
+    private final List<RegexParser.Repetition> outerRepetitions = new ArrayList<>();
+    /** The innermost repeating quantifier of each position, or null. */
+    private final List<RegexParser.Repetition> innerRepetitions = new ArrayList<>();
+    private final Deque<RegexParser.Repetition> enclosing = new ArrayDeque<>();
+    private int size;
+    private BitSet[] compatible;
+    private BitSet[] preceding;
+    private int work;
+
+    private BacktrackingAnalysis(String regex)
+    {
+        this.regex = regex;
+    }
+
+    /**
+     * @return a description of each part of the regex, which may backtrack exponentially or polynomially with
+     * a degree of at least MIN_REPORTED_DEGREE. Empty, if nothing has been found or if the regex is too large.
+     */
+    static List<String> analyze(String regex, int flags)
+    {
+        RegexParser.Expr expr = RegexParser.parse(regex, flags, true);
+        List<String> warnings = new ArrayList<>();
+        if(expr == null)
+        {
+            return warnings;
+        }
+        BacktrackingAnalysis analysis = new BacktrackingAnalysis(regex);
+        try
+        {
+            analysis.positions(expr, false);
+            analysis.findAmbiguities(warnings);
+        }
+        catch(TooLargeException ex)
+        {
+        }
+        return warnings;
+    }
+
+    /**
+     * The first and last positions of an expression, and if it matches the empty text.
+     */
+    private static class Info
+    {
+        private final BitSet first = new BitSet();
+        private final BitSet last = new BitSet();
+        private boolean nullable = true;
+    }
+
+    private Info positions(RegexParser.Expr expr, boolean inAtomic)
+    {
+        if(expr instanceof RegexParser.Chars)
+        {
+            int position = addPosition(((RegexParser.Chars) expr).set, inAtomic);
+            Info info = new Info();
+            info.first.set(position);
+            info.last.set(position);
+            info.nullable = false;
+            return info;
+        }
+        if(expr instanceof RegexParser.Concatenation)
+        {
+            Info info = new Info();
+            for(RegexParser.Expr element : ((RegexParser.Concatenation) expr).elements)
+            {
+                info = concat(info, positions(element, inAtomic));
+            }
+            return info;
+        }
+        if(expr instanceof RegexParser.Alternation)
+        {
+            Info info = new Info();
+            info.nullable = false;
+            for(RegexParser.Expr alternative : ((RegexParser.Alternation) expr).alternatives)
+            {
+                Info next = positions(alternative, inAtomic);
+                info.first.or(next.first);
+                info.last.or(next.last);
+                info.nullable |= next.nullable;
+            }
+            return info;
+        }
+        if(expr instanceof RegexParser.Atomic)
+        {
+            return positions(((RegexParser.Atomic) expr).content, true);
+        }
+        if(expr instanceof RegexParser.Repetition)
+        {
+            return repetition((RegexParser.Repetition) expr, inAtomic);
+        }
+        return new Info();
+    }
+
+    private Info repetition(RegexParser.Repetition repetition, boolean inAtomic)
+    {
+        boolean repeating = repetition.max == RegexParser.Repetition.UNBOUNDED || repetition.max > 1;
+        if(repeating)
+        {
+            enclosing.push(repetition);
+        }
+        inAtomic |= repetition.possessive;
+        Info info = new Info();
+        if(repetition.max != RegexParser.Repetition.UNBOUNDED && repetition.max <= MAX_EXPANDED_COUNT)
+        {
+            for(int i=0;i<repetition.min;i++)
+            {
+                info = concat(info, positions(repetition.element, inAtomic));
+            }
+            info = concat(info, optional(repetition.element, repetition.max - repetition.min, inAtomic));
+        }
+        else if(repetition.min == repetition.max)
+        {
+            // Like {10}. A single copy shows, if the element itself is ambiguous.
+            info = positions(repetition.element, inAtomic);
+        }
+        else
+        {
+            // Like {2,} or {1,30}, which is analyzed like a{1}a+
+            int copies = Math.min(repetition.min, MAX_EXPANDED_COUNT);
+            for(int i=1;i<copies;i++)
+            {
+                info = concat(info, positions(repetition.element, inAtomic));
+            }
+            Info loop = positions(repetition.element, inAtomic);
+            link(loop.last, loop.first);
+            loop.nullable |= copies == 0;
+            info = concat(info, loop);
+        }
+        if(repeating)
+        {
+            enclosing.pop();
+        }
+        return info;
+    }
+
+    /**
+     * Nested optional copies of the element like (?:a(?:a)?)?, which is the way {0,2} is matched.
+     */
+    private Info optional(RegexParser.Expr element, int count, boolean inAtomic)
+    {
+        Info info = new Info();
+        if(count > 0)
+        {
+            info = concat(positions(element, inAtomic), optional(element, count - 1, inAtomic));
+            info.nullable = true;
+        }
+        return info;
+    }
+
+    private Info concat(Info first, Info second)
+    {
+        link(first.last, second.first);
+        Info info = new Info();
+        info.first.or(first.first);
+        if(first.nullable)
+        {
+            info.first.or(second.first);
+        }
+        info.last.or(second.last);
+        if(second.nullable)
+        {
+            info.last.or(first.last);
+        }
+        info.nullable = first.nullable && second.nullable;
+        return info;
+    }
+
+    private void link(BitSet from, BitSet to)
+    {
+        for(int p=from.nextSetBit(0);p>=0;p=from.nextSetBit(p + 1))
+        {
+            BitSet twice = (BitSet) follow.get(p).clone();
+            twice.and(to);
+            followTwice.get(p).or(twice);
+            follow.get(p).or(to);
+        }
+    }
+
+    private int addPosition(CharSet set, boolean inAtomic)
+    {
+        if(sets.size() >= MAX_POSITIONS)
+        {
+            throw new TooLargeException();
+        }
+        int position = sets.size();
+        sets.add(set);
+        follow.add(new BitSet());
+        followTwice.add(new BitSet());
+        atomic.set(position, inAtomic);
+        outerRepetitions.add(enclosing.peekLast());
+        innerRepetitions.add(enclosing.peekFirst());
+        return position;
+    }
+
+    private void findAmbiguities(List<String> warnings)
+    {
+        size = sets.size();
+        compatible = new BitSet[size];
+        preceding = new BitSet[size];
+        for(int p=0;p<size;p++)
+        {
+            compatible[p] = new BitSet();
+            preceding[p] = new BitSet();
+            for(int q=0;q<size;q++)
+            {
+                if(sets.get(p).intersects(sets.get(q)))
+                {
+                    compatible[p].set(q);
+                }
+            }
+        }
+        for(int p=0;p<size;p++)
+        {
+            BitSet next = follow.get(p);
+            for(int q=next.nextSetBit(0);q>=0;q=next.nextSetBit(q + 1))
+            {
+                preceding[q].set(p);
+            }
+        }
+        Set<String> found = new LinkedHashSet<>();
+        BitSet[] reached = new BitSet[size];
+        BitSet[] reaching = new BitSet[size];
+        for(int p=0;p<size;p++)
+        {
+            if(atomic.get(p) || follow.get(p).isEmpty())
+            {
+                continue;
+            }
+            reached[p] = walk(p, true);
+            if(reached[p].get(pair(p, p)) == false)
+            {
+                // not a loop
+                reached[p] = null;
+                continue;
+            }
+            reaching[p] = walk(p, false);
+            if(isExponential(reached[p], reaching[p]))
+            {
+                found.add("Nested quantifiers may backtrack exponentially: " + span(outerRepetitions.get(p), outerRepetitions.get(p)));
+            }
+        }
+        int[] degrees = new int[size];
+        int[] chain = new int[size];
+        for(int p=0;p<size;p++)
+        {
+            if(reached[p] != null && degree(p, reached, reaching, degrees, chain) >= MIN_REPORTED_DEGREE)
+            {
+                int last = p;
+                while(chain[last] >= 0 && chain[last] != last)
+                {
+                    last = chain[last];
+                }
+                found.add("Quantifiers may backtrack polynomially with degree " + degrees[p] + ": "
+                    + span(innerRepetitions.get(p), innerRepetitions.get(last)));
+                break;
+            }
+        }
+        warnings.addAll(found);
+    }
+
+    /**
+     * Two paths, which read the same text, start at the loop, split and meet again at the loop.
+     */
+    private boolean isExponential(BitSet reached, BitSet reaching)
+    {
+        BitSet cycle = (BitSet) reached.clone();
+        cycle.and(reaching);
+        for(int index=cycle.nextSetBit(0);index>=0;index=cycle.nextSetBit(index + 1))
+        {
+            int a = index / size;
+            int b = index % size;
+            if(a != b)
+            {
+                return true;
+            }
+            if(atomic.get(a) == false)
+            {
+                BitSet twice = followTwice.get(a);
+                for(int r=twice.nextSetBit(0);r>=0;r=twice.nextSetBit(r + 1))
+                {
+                    if(cycle.get(pair(r, r)))
+                    {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The number of loops, which can follow each other on the same text, starting with the loop at position p.
+     * @param chain the next loop of each position.
+     */
+    private int degree(int p, BitSet[] reached, BitSet[] reaching, int[] degrees, int[] chain)
+    {
+        if(degrees[p] != 0)
+        {
+            return Math.abs(degrees[p]);
+        }
+        // Mark the position, so that cycles end here.
+        degrees[p] = -1;
+        chain[p] = -1;
+        int best = 1;
+        for(int q=0;q<size;q++)
+        {
+            // Both loops read the same text, and the first one leads to the second one.
+            if(q != p && reached[q] != null && reached[p].get(pair(p, q)) && reaching[q].get(pair(p, q))
+                && reached[q].get(pair(q, p)) == false)
+            {
+                int degree = 1 + degree(q, reached, reaching, degrees, chain);
+                if(degree > best)
+                {
+                    best = degree;
+                    chain[p] = q;
+                }
+            }
+        }
+        degrees[p] = best;
+        return best;
+    }
+
+    /**
+     * Finds all pairs of positions, which are reached from the pair (p, p), or which reach it, if forward is false.
+     * Both positions of a pair read the same character, and they are reached with the same text.
+     */
+    private BitSet walk(int p, boolean forward)
+    {
+        BitSet visited = new BitSet(size * size);
+        int[] queue = new int[size * size + 1];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = pair(p, p);
+        while(head < tail)
+        {
+            int index = queue[head++];
+            int a = index / size;
+            int b = index % size;
+            BitSet nextA = forward ? follow.get(a) : preceding[a];
+            BitSet nextB = forward ? follow.get(b) : preceding[b];
+            for(int x=nextA.nextSetBit(0);x>=0;x=nextA.nextSetBit(x + 1))
+            {
+                for(int y=nextB.nextSetBit(0);y>=0;y=nextB.nextSetBit(y + 1))
+                {
+                    if(++work > MAX_WORK)
+                    {
+                        throw new TooLargeException();
+                    }
+                    // Paths do not split, where the engine does not backtrack.
+                    boolean split = forward ? a == b && x != y && atomic.get(a) : x == y && a != b && atomic.get(x);
+                    if(compatible[x].get(y) && split == false && visited.get(pair(x, y)) == false)
+                    {
+                        visited.set(pair(x, y));
+                        queue[tail++] = pair(x, y);
+                    }
+                }
+            }
+        }
+        return visited;
+    }
+
+    private int pair(int a, int b)
+    {
+        return a * size + b;
+    }
+
+    /**
+     * The part of the regex from the first to the second repetition.
+     */
+    private String span(RegexParser.Repetition first, RegexParser.Repetition second)
+    {
+        if(first == null || second == null)
+        {
+            return regex;
+        }
+        return regex.substring(Math.min(first.start, second.start), Math.max(first.end, second.end));
+    }
+
+    /**
+     * Thrown, if the regex is too large to be analyzed.
+     */
+    private static class TooLargeException extends RuntimeException
+    {
+        private static final long serialVersionUID = 1L;
+
+        TooLargeException()
+        {
+            super(null, null, false, false);
+        }
+    }
+}
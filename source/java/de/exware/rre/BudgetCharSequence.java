@@ -0,0 +1,70 @@
+package de.exware.rre;
+
+/**
+ * Limits the work of a Matcher on a text. java.util.regex can not be interrupted, but it reads each character
+ * with charAt(), also when it backtracks. So the number of reads is a measure of the work, and the Matcher is
+ * aborted with a ReadablePatternTimeoutException, when it reads more characters than allowed, or when the time is over.
+ * The time is only checked every CLOCK_INTERVAL reads, because System.nanoTime() is much slower than charAt().
+ */
+class BudgetCharSequence implements CharSequence
+{
+    private static final int CLOCK_INTERVAL = 1024;
+    private final CharSequence text;
+    private final String readableRegex;
+    /** The maximum number of reads, or Long.MAX_VALUE. */
+    private final long stepLimit;
+    /** The value of System.nanoTime(), when the time is over. Only used, if timed is true. */
+    private final long deadline;
+    private final boolean timed;
+    private long steps;
+    private int untilClock = CLOCK_INTERVAL;
+
+    /**
+     * @param timeoutNanos the time limit in nanoseconds, or 0 for no limit.
+     * @param stepLimit the maximum number of reads, or 0 for no limit.
+     */
+    BudgetCharSequence(CharSequence text, String readableRegex, long timeoutNanos, long stepLimit)
+    {
+        this.text = text;
+        this.readableRegex = readableRegex;
+        this.stepLimit = stepLimit > 0 ? stepLimit : Long.MAX_VALUE;
+        timed = timeoutNanos > 0;
+        deadline = timed ? System.nanoTime() + timeoutNanos : 0;
+    }
+
+    @Override
+    public char charAt(int index)
+    {
+        if(++steps > stepLimit)
+        {
+            throw new ReadablePatternTimeoutException("Matching needs more than " + stepLimit + " steps", readableRegex, steps);
+        }
+        if(--untilClock == 0)
+        {
+            untilClock = CLOCK_INTERVAL;
+            if(timed && System.nanoTime() - deadline > 0)
+            {
+                throw new ReadablePatternTimeoutException("Matching takes too long", readableRegex, steps);
+            }
+        }
+        return text.charAt(index);
+    }
+
+    @Override
+    public int length()
+    {
+        return text.length();
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end)
+    {
+        return text.subSequence(start, end);
+    }
+
+    @Override
+    public String toString()
+    {
+        return text.toString();
+    }
+}
@@ -0,0 +1,88 @@
+package de.exware.rre;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A CharSequence view of a ByteBuffer with single byte characters, for example a memory mapped file
+ * in ISO-8859-1. Each byte is one character, so the bytes are never copied or decoded.
+ * Only the text of a match is copied, when it is converted to a String.
+ */
+class ByteCharSequence implements CharSequence
+{
+    private final ByteBuffer buffer;
+    private final int offset;
+    private final int length;
+    /** true, if bytes above 127 are not valid and must be read as the replacement character like a US-ASCII decoder does. */
+    private final boolean ascii;
+
+    ByteCharSequence(ByteBuffer buffer, boolean ascii)
+    {
+        this(buffer, 0, buffer.limit(), ascii);
+    }
+
+    private ByteCharSequence(ByteBuffer buffer, int offset, int length, boolean ascii)
+    {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+        this.ascii = ascii;
+    }
+
+    /**
+     * Checks if all bytes are below 128. Then the text is the same in US-ASCII, ISO-8859-1 and UTF-8.
+     */
+    static boolean isAscii(ByteBuffer buffer)
+    {
+        int limit = buffer.limit();
+        for(int i=0;i<limit;i++)
+        {
+            if(buffer.get(i) < 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int length()
+    {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index)
+    {
+        if(index < 0 || index >= length)
+        {
+            throw new IndexOutOfBoundsException("Index: " + index + ", length: " + length);
+        }
+        int b = buffer.get(offset + index);
+        if(b < 0 && ascii)
+        {
+            return '\uFFFD';
+        }
+        return (char) (b & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end)
+    {
+        if(start < 0 || end > length || start > end)
+        {
+            throw new IndexOutOfBoundsException("Start: " + start + ", end: " + end + ", length: " + length);
+        }
+        return new ByteCharSequence(buffer, offset + start, end - start, ascii);
+    }
+
+    @Override
+    public String toString()
+    {
+        char[] chars = new char[length];
+        for(int i=0;i<length;i++)
+        {
+            chars[i] = charAt(i);
+        }
+        return new String(chars);
+    }
+}
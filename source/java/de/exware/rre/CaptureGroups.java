@@ -0,0 +1,199 @@
+package de.exware.rre;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * The capturing groups of a regular expression: their number and the indexes of the named groups, like
+ * (?&lt;number&gt;\d+) of capture(number). They are found once by scanning the regex, so that a name does not need to
+ * be resolved by the Matcher for each match. Like java.util.regex, quoted texts are replaced by escapes and, with the flag
+ * COMMENTS, whitespace and comments are removed first. The groups are numbered by their opening brace from left to right.
+ * The inline flag (?x) is not supported.
+ */
+class CaptureGroups
+{
+    static final CaptureGroups NONE = new CaptureGroups(0, Collections.<String, Integer>emptyMap());
+    private final int count;
+    private final Map<String, Integer> indexes;
+
+    private CaptureGroups(int count, Map<String, Integer> indexes)
+    {
+        this.count = count;
+        this.indexes = indexes;
+    }
+
+    static CaptureGroups of(String regex, int flags)
+    {
+        if((flags & Pattern.LITERAL) != 0)
+        {
+            return NONE;
+        }
+        regex = removeQuoting(regex);
+        if((flags & Pattern.COMMENTS) != 0)
+        {
+            regex = removeComments(regex);
+        }
+        Map<String, Integer> indexes = new HashMap<>();
+        int count = 0;
+        // The nesting of character classes.
+        int depth = 0;
+        int length = regex.length();
+        for(int i=0;i<length;i++)
+        {
+            char c = regex.charAt(i);
+            if(c == '\\')
+            {
+                i++;
+            }
+            else if(c == '[')
+            {
+                depth++;
+                // A ] directly after [ or [^ is a char of the class.
+                if(regex.startsWith("^", i + 1))
+                {
+                    i++;
+                }
+                if(regex.startsWith("]", i + 1))
+                {
+                    i++;
+                }
+            }
+            else if(c == ']' && depth > 0)
+            {
+                depth--;
+            }
+            else if(c == '(' && depth == 0)
+            {
+                if(regex.startsWith("?", i + 1) == false)
+                {
+                    count++;
+                }
+                else if(regex.startsWith("?<", i + 1) && i + 3 < length && isAsciiLetter(regex.charAt(i + 3)))
+                {
+                    count++;
+                    int end = regex.indexOf('>', i);
+                    if(end > 0)
+                    {
+                        indexes.put(regex.substring(i + 3, end), count);
+                    }
+                }
+            }
+        }
+        if(indexes.isEmpty())
+        {
+            indexes = Collections.emptyMap();
+        }
+        return new CaptureGroups(count, indexes);
+    }
+
+    /**
+     * Replaces \Q...\E by escaped chars.
+     */
+    private static String removeQuoting(String regex)
+    {
+        if(regex.contains("\\Q") == false)
+        {
+            return regex;
+        }
+        StringBuilder result = new StringBuilder(regex.length());
+        int length = regex.length();
+        for(int i=0;i<length;i++)
+        {
+            char c = regex.charAt(i);
+            if(c == '\\' && regex.startsWith("Q", i + 1))
+            {
+                int end = regex.indexOf("\\E", i + 2);
+                end = end < 0 ? length : end;
+                for(int x=i+2;x<end;x++)
+                {
+                    if(Character.isLetterOrDigit(regex.charAt(x)) == false)
+                    {
+                        result.append('\\');
+                    }
+                    result.append(regex.charAt(x));
+                }
+                i = end + 1;
+            }
+            else
+            {
+                result.append(c);
+                if(c == '\\' && i + 1 < length)
+                {
+                    result.append(regex.charAt(++i));
+                }
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Removes whitespace and comments, which are ignored with the flag COMMENTS.
+     */
+    private static String removeComments(String regex)
+    {
+        StringBuilder result = new StringBuilder(regex.length());
+        int length = regex.length();
+        for(int i=0;i<length;i++)
+        {
+            char c = regex.charAt(i);
+            if(c == '#')
+            {
+                int end = regex.indexOf('\n', i);
+                i = end < 0 ? length : end;
+            }
+            else if(c != ' ' && (c < '\t' || c > '\r'))
+            {
+                result.append(c);
+                if(c == '\\' && i + 1 < length)
+                {
+                    result.append(regex.charAt(++i));
+                }
+            }
+        }
+        return result.toString();
+    }
+
+    private static boolean isAsciiLetter(char c)
+    {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    /**
+     * Java only accepts names of ASCII letters and digits, which start with a letter.
+     */
+    static boolean isValidName(String name)
+    {
+        if(name.isEmpty() || isAsciiLetter(name.charAt(0)) == false)
+        {
+            return false;
+        }
+        for(int i=1;i<name.length();i++)
+        {
+            char c = name.charAt(i);
+            if(isAsciiLetter(c) == false && (c < '0' || c > '9'))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The number of capturing groups, without group 0.
+     */
+    int getCount()
+    {
+        return count;
+    }
+
+    /**
+     * @return the index of the named group or -1.
+     */
+    int indexOf(String name)
+    {
+        Integer index = indexes.get(name);
+        return index == null ? -1 : index;
+    }
+}
@@ -0,0 +1,160 @@
+package de.exware.rre;
+
+import java.util.Arrays;
+
+/**
+ * A set of code points, stored as sorted ranges of the first and the last code point.
+ */
+class CharSet
+{
+    static final CharSet EMPTY = new CharSet(new int[0]);
+    static final CharSet ALL = range(0, Character.MAX_CODE_POINT);
+    static final CharSet DIGIT = range('0', '9');
+    static final CharSet WORD = DIGIT.union(range('a', 'z')).union(range('A', 'Z')).union(single('_'));
+    static final CharSet WHITESPACE = range('\t', '\r').union(single(' '));
+    static final CharSet LINE_TERMINATORS = single('\n').union(single('\r')).union(single('\u0085'))
+        .union(range('\u2028', '\u2029'));
+    /** first, last, first, last... */
+    final int[] ranges;
+
+    private CharSet(int[] ranges)
+    {
+        this.ranges = ranges;
+    }
+
+    static CharSet single(int c)
+    {
+        return range(c, c);
+    }
+
+    static CharSet range(int first, int last)
+    {
+        return new CharSet(new int[] {first, last});
+    }
+
+    /**
+     * @return the code point, if this set contains a single code point, otherwise -1.
+     */
+    int singleValue()
+    {
+        return ranges.length == 2 && ranges[0] == ranges[1] ? ranges[0] : -1;
+    }
+
+    boolean contains(int c)
+    {
+        int low = 0;
+        int high = ranges.length / 2 - 1;
+        while(low <= high)
+        {
+            int middle = (low + high) >>> 1;
+            if(c < ranges[middle * 2])
+            {
+                high = middle - 1;
+            }
+            else if(c > ranges[middle * 2 + 1])
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * true, if a code point is contained in both sets.
+     */
+    boolean intersects(CharSet other)
+    {
+        int i = 0;
+        int o = 0;
+        while(i < ranges.length && o < other.ranges.length)
+        {
+            if(ranges[i + 1] < other.ranges[o])
+            {
+                i += 2;
+            }
+            else if(other.ranges[o + 1] < ranges[i])
+            {
+                o += 2;
+            }
+            else
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    CharSet union(CharSet other)
+    {
+        int[] all = new int[ranges.length + other.ranges.length];
+        long[] sorted = new long[all.length / 2];
+        for(int i=0;i<ranges.length;i+=2)
+        {
+            sorted[i / 2] = (long) ranges[i] << 32 | ranges[i + 1];
+        }
+        for(int i=0;i<other.ranges.length;i+=2)
+        {
+            sorted[(ranges.length + i) / 2] = (long) other.ranges[i] << 32 | other.ranges[i + 1];
+        }
+        Arrays.sort(sorted);
+        int count = 0;
+        for(int i=0;i<sorted.length;i++)
+        {
+            int first = (int) (sorted[i] >>> 32);
+            int last = (int) sorted[i];
+            if(count > 0 && first <= all[count - 1] + 1)
+            {
+                all[count - 1] = Math.max(all[count - 1], last);
+            }
+            else
+            {
+                all[count++] = first;
+                all[count++] = last;
+            }
+        }
+        return new CharSet(Arrays.copyOf(all, count));
+    }
+
+    CharSet complement()
+    {
+        int[] result = new int[ranges.length + 2];
+        int count = 0;
+        int next = 0;
+        for(int i=0;i<ranges.length;i+=2)
+        {
+            if(ranges[i] > next)
+            {
+                result[count++] = next;
+                result[count++] = ranges[i] - 1;
+            }
+            next = ranges[i + 1] + 1;
+        }
+        if(next <= Character.MAX_CODE_POINT)
+        {
+            result[count++] = next;
+            result[count++] = Character.MAX_CODE_POINT;
+        }
+        return new CharSet(Arrays.copyOf(result, count));
+    }
+
+    /**
+     * Adds the other case of ASCII letters, like CASE_INSENSITIVE without UNICODE_CASE does.
+     */
+    CharSet ignoreCase()
+    {
+        CharSet result = this;
+        for(int c='a';c<='z';c++)
+        {
+            int upper = c - 'a' + 'A';
+            if(contains(c) != contains(upper))
+            {
+                result = result.union(single(c)).union(single(upper));
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,238 @@
+package de.exware.rre;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the dates of date() without java.util.regex. The regex tries its four alternatives with the look behind
+ * and look ahead at every position of the text. This scanner only stops at digits after a whitespace and checks
+ * the forms yyyy-MM-dd, dd/MM/yyyy, dd.MM.yyyy and 'dd. MMM. yyyy' directly. It finds exactly the same matches as REGEX.
+ * Instances are immutable and may be used by many threads.
+ */
+class DateScanner
+{
+    /** The regular expression of date(). */
+    static final String REGEX = "(?:(?:(?<=\\s)\\d{4}\\-[01]{0,1}[0-9]-[0-3]{0,1}[0-9](?=\\s))"
+        + "|(?:(?<=\\s)[0-3]{0,1}[0-9]/[01]{0,1}[0-9]/\\d{4}(?=\\s))"
+        + "|(?:(?<=\\s)[0-3]{0,1}[0-9]\\.[01]{0,1}[0-9]\\.\\d{4}(?=\\s))"
+        + "|(?:(?<=\\s)[0-3]{0,1}[0-9]\\. (?:Jan|Feb|Mar|Apr|May|Mai|Jun|Jul|Aug|Sep|Oct|Okt|Nov|Dec|Dez){1}\\. \\d{4}(?=\\s)))";
+    private static final String[] MONTH_NAMES = {"Jan", "Feb", "Mar", "Apr", "May", "Mai", "Jun", "Jul", "Aug", "Sep", "Oct", "Okt",
+        "Nov", "Dec", "Dez"};
+    private static final int[] MONTH_NUMBERS = {1, 2, 3, 4, 5, 5, 6, 7, 8, 9, 10, 10, 11, 12, 12};
+    private static final DateScanner IGNORE_CASE = new DateScanner(true);
+    private final boolean ignoreCase;
+
+    /**
+     * @param ignoreCase true, if the names of the months are compared like with Pattern.CASE_INSENSITIVE.
+     */
+    DateScanner(boolean ignoreCase)
+    {
+        this.ignoreCase = ignoreCase;
+    }
+
+    /**
+     * @return the scanner for a Pattern, which is nothing else but date(), or null for other Patterns.
+     */
+    static DateScanner of(String regex, int flags)
+    {
+        if(REGEX.equals(regex) == false || (flags & ~(Pattern.CASE_INSENSITIVE | Pattern.DOTALL | Pattern.MULTILINE)) != 0)
+        {
+            return null;
+        }
+        return new DateScanner((flags & Pattern.CASE_INSENSITIVE) != 0);
+    }
+
+    /**
+     * @return the start of the first date at or after from, or -1.
+     */
+    int find(CharSequence text, int from)
+    {
+        int length = text.length();
+        for(int i=Math.max(from, 1);i<length;i++)
+        {
+            char c = text.charAt(i);
+            if(c >= '0' && c <= '9' && isWhitespace(text.charAt(i - 1)) && matchEnd(text, i) >= 0)
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Like Matcher.matches(). The look behind of date() needs a whitespace before the date, so a whole text
+     * never matches.
+     */
+    boolean matches(CharSequence text)
+    {
+        return false;
+    }
+
+    /**
+     * @return the end of the date, which starts at the index, or -1.
+     */
+    int matchEnd(CharSequence text, int start)
+    {
+        if(start == 0 || isWhitespace(text.charAt(start - 1)) == false)
+        {
+            return -1;
+        }
+        int end;
+        if(isDigit(text, start) && isDigit(text, start + 1) && isDigit(text, start + 2) && isDigit(text, start + 3) && at(text, start + 4) == '-')
+        {
+            // yyyy-MM-dd
+            end = number(text, start + 5, '1');
+            if(end < 0 || at(text, end) != '-')
+            {
+                return -1;
+            }
+            end = number(text, end + 1, '3');
+            return end >= 0 && isWhitespace(at(text, end)) ? end : -1;
+        }
+        end = number(text, start, '3');
+        if(end < 0)
+        {
+            return -1;
+        }
+        char separator = at(text, end);
+        if(separator == '.' && at(text, end + 1) == ' ')
+        {
+            // dd. MMM. yyyy
+            end = monthName(text, end + 2);
+            if(end < 0 || at(text, end) != '.' || at(text, end + 1) != ' ')
+            {
+                return -1;
+            }
+            return year(text, end + 2);
+        }
+        if(separator != '.' && separator != '/')
+        {
+            return -1;
+        }
+        // dd.MM.yyyy or dd/MM/yyyy
+        end = number(text, end + 1, '1');
+        if(end < 0 || at(text, end) != separator)
+        {
+            return -1;
+        }
+        return year(text, end + 1);
+    }
+
+    /**
+     * Parses a text in one of the forms of date(). Without leading zeros, like 1.2.2020, and with the month
+     * names in any case.
+     * @return the date or null, if the text is not written like a date or if the date does not exist, like 31.02.2020.
+     */
+    static LocalDate toDate(CharSequence date)
+    {
+        String text = " " + date + " ";
+        if(IGNORE_CASE.matchEnd(text, 1) != text.length() - 1)
+        {
+            return null;
+        }
+        try
+        {
+            if(text.charAt(5) == '-')
+            {
+                String[] parts = text.trim().split("-");
+                return LocalDate.of(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+            }
+            String[] parts = text.trim().split("[/.] ?");
+            int month = parts[1].length() == 3 ? MONTH_NUMBERS[IGNORE_CASE.monthIndex(parts[1], 0)] : Integer.parseInt(parts[1]);
+            return LocalDate.of(Integer.parseInt(parts[2]), month, Integer.parseInt(parts[0]));
+        }
+        catch(DateTimeException ex)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * A number with one digit, or with two digits, where the first one is not greater than maxFirst.
+     * @return the end of the number or -1.
+     */
+    private static int number(CharSequence text, int i, char maxFirst)
+    {
+        if(isDigit(text, i) == false)
+        {
+            return -1;
+        }
+        if(isDigit(text, i + 1) == false)
+        {
+            return i + 1;
+        }
+        return text.charAt(i) <= maxFirst ? i + 2 : -1;
+    }
+
+    /**
+     * Four digits, which are followed by a whitespace.
+     * @return the end of the year or -1.
+     */
+    private static int year(CharSequence text, int i)
+    {
+        for(int x=i;x<i+4;x++)
+        {
+            if(isDigit(text, x) == false)
+            {
+                return -1;
+            }
+        }
+        return isWhitespace(at(text, i + 4)) ? i + 4 : -1;
+    }
+
+    /**
+     * @return the end of the month name or -1.
+     */
+    private int monthName(CharSequence text, int i)
+    {
+        return i + 3 <= text.length() && monthIndex(text, i) >= 0 ? i + 3 : -1;
+    }
+
+    private int monthIndex(CharSequence text, int i)
+    {
+        for(int m=0;m<MONTH_NAMES.length;m++)
+        {
+            String name = MONTH_NAMES[m];
+            if(equals(name.charAt(0), text.charAt(i)) && equals(name.charAt(1), text.charAt(i + 1)) && equals(name.charAt(2), text.charAt(i + 2)))
+            {
+                return m;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Compares like Pattern.CASE_INSENSITIVE without UNICODE_CASE, which only ignores the case of US-ASCII letters.
+     */
+    private boolean equals(char expected, char c)
+    {
+        if(expected == c)
+        {
+            return true;
+        }
+        return ignoreCase && c < 128 && Character.toLowerCase(c) == Character.toLowerCase(expected);
+    }
+
+    /**
+     * The character at the index, or 0 after the end of the text.
+     */
+    private static char at(CharSequence text, int i)
+    {
+        return i < text.length() ? text.charAt(i) : 0;
+    }
+
+    private static boolean isDigit(CharSequence text, int i)
+    {
+        char c = at(text, i);
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Like \s without UNICODE_CHARACTER_CLASS.
+     */
+    private static boolean isWhitespace(char c)
+    {
+        return c == ' ' || (c >= '\t' && c <= '\r');
+    }
+}
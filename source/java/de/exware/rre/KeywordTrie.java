@@ -0,0 +1,248 @@
+package de.exware.rre;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Creates a regular expression for a large list of literal keywords, which is structured like a trie.
+ * <BR>(?:(?:abc)|(?:abd)|(?:xyz)) will become (?:ab[cd]|xyz)
+ * <BR>A flat alternation is tried branch by branch at every position of the text, so it gets slower with every keyword.
+ * In the trie the regex engine only follows the branch of the next character, so the
+ * time per position only depends on the length of the keywords.
+ * <BR>The order of the branches is chosen, so that the regex prefers the same keyword as the
+ * flat alternation would do. If that is not possible, because a keyword is listed
+ * between other keywords it is a prefix of, or because keywords only differ in case, no trie regex is created.
+ */
+class KeywordTrie
+{
+    private final Map<Character, KeywordTrie> children = new TreeMap<>();
+    /** Index of the keyword, which ends at this node. -1 if no keyword ends here. */
+    private int end = -1;
+    private int minIndex = Integer.MAX_VALUE;
+    private int maxIndex = -1;
+
+    /**
+     * @param keywords must be plain literals without special characters.
+     * @return The regex or null, if the preferences of the flat alternation can't be kept,
+     * or a keyword is empty or contains surrogate characters.
+     */
+    static String toRegex(String[] keywords)
+    {
+        KeywordTrie root = new KeywordTrie();
+        for(int i=0;i<keywords.length;i++)
+        {
+            String keyword = keywords[i];
+            if(keyword.isEmpty())
+            {
+                return null;
+            }
+            for(int x=0;x<keyword.length();x++)
+            {
+                if(Character.isSurrogate(keyword.charAt(x)))
+                {
+                    return null;
+                }
+            }
+            root.add(keyword, i);
+        }
+        StringBuilder regex = new StringBuilder();
+        regex.append("(?:");
+        if(root.render(regex) == false)
+        {
+            return null;
+        }
+        regex.append(")");
+        return regex.toString();
+    }
+
+    private void add(String keyword, int index)
+    {
+        KeywordTrie node = this;
+        node.update(index);
+        for(int i=0;i<keyword.length();i++)
+        {
+            char c = keyword.charAt(i);
+            KeywordTrie child = node.children.get(c);
+            if(child == null)
+            {
+                child = new KeywordTrie();
+                node.children.put(c, child);
+            }
+            node = child;
+            node.update(index);
+        }
+        if(node.end < 0)
+        {
+            node.end = index;
+        }
+    }
+
+    private void update(int index)
+    {
+        minIndex = Math.min(minIndex, index);
+        maxIndex = Math.max(maxIndex, index);
+    }
+
+    /**
+     * Append the alternatives of this node.
+     * Branches for different characters can never match at the same position, so their order does not matter.
+     * Only the end of a keyword must be ordered correctly against the longer keywords in the branches.
+     * @return false, if the order of the keywords can't be kept.
+     */
+    private boolean render(StringBuilder regex)
+    {
+        if(hasCaseVariants())
+        {
+            return false;
+        }
+        List<Map.Entry<Character, KeywordTrie>> before = new ArrayList<>();
+        List<Map.Entry<Character, KeywordTrie>> after = new ArrayList<>();
+        for(Map.Entry<Character, KeywordTrie> entry : children.entrySet())
+        {
+            KeywordTrie child = entry.getValue();
+            if(end < 0 || child.minIndex > end)
+            {
+                after.add(entry);
+            }
+            else if(child.maxIndex < end)
+            {
+                before.add(entry);
+            }
+            else
+            {
+                return false;
+            }
+        }
+        int count = appendBranches(regex, before, 0);
+        if(count < 0)
+        {
+            return false;
+        }
+        if(end >= 0 && children.isEmpty() == false)
+        {
+            if(count > 0)
+            {
+                regex.append('|');
+            }
+            count++;
+        }
+        return appendBranches(regex, after, count) >= 0;
+    }
+
+    /**
+     * Branches like 'a' and 'A' can match at the same position, if the Pattern ignores the case.
+     * Then the order of the branches would matter, so the trie can't be used.
+     */
+    private boolean hasCaseVariants()
+    {
+        Set<Character> folded = new HashSet<>();
+        for(Character c : children.keySet())
+        {
+            if(folded.add(Character.toLowerCase(Character.toUpperCase(c.charValue()))) == false)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the node is written without any '|', so it doesn't need a group.
+     */
+    private boolean isSingleBranch()
+    {
+        if(end >= 0)
+        {
+            return false;
+        }
+        for(KeywordTrie child : children.values())
+        {
+            if(children.size() > 1 && child.children.isEmpty() == false)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Append branches, which can't match at the same position. Branches for a single character, which ends a keyword,
+     * are combined into a character class.
+     * @return the number of branches written so far, or -1 if the order of the keywords can't be kept.
+     */
+    private static int appendBranches(StringBuilder regex, List<Map.Entry<Character, KeywordTrie>> branches, int count)
+    {
+        StringBuilder chars = new StringBuilder();
+        for(int i=0;i<branches.size() && count >= 0;i++)
+        {
+            Map.Entry<Character, KeywordTrie> branch = branches.get(i);
+            if(branch.getValue().children.isEmpty())
+            {
+                chars.append(branch.getKey().charValue());
+            }
+            else
+            {
+                count = appendBranch(regex, branch, count);
+            }
+        }
+        if(count < 0 || chars.length() == 0)
+        {
+            return count;
+        }
+        if(count > 0)
+        {
+            regex.append('|');
+        }
+        if(chars.length() == 1)
+        {
+            regex.append(chars);
+            return count + 1;
+        }
+        regex.append('[');
+        for(int i=0;i<chars.length();i++)
+        {
+            char c = chars.charAt(i);
+            if(c == '-' || c == '&')
+            {
+                regex.append('\\');
+            }
+            regex.append(c);
+        }
+        regex.append(']');
+        return count + 1;
+    }
+
+    /**
+     * @return the number of branches written so far, or -1 if the order of the keywords can't be kept.
+     */
+    private static int appendBranch(StringBuilder regex, Map.Entry<Character, KeywordTrie> branch, int count)
+    {
+        if(count > 0)
+        {
+            regex.append('|');
+        }
+        regex.append(branch.getKey().charValue());
+        KeywordTrie child = branch.getValue();
+        if(child.children.isEmpty() == false)
+        {
+            if(child.isSingleBranch() == false)
+            {
+                regex.append("(?:");
+                if(child.render(regex) == false)
+                {
+                    return -1;
+                }
+                regex.append(')');
+            }
+            else if(child.render(regex) == false)
+            {
+                return -1;
+            }
+        }
+        return count + 1;
+    }
+}
@@ -0,0 +1,132 @@
+package de.exware.rre;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import de.exware.rre.ReadablePattern.Builder;
+import de.exware.rre.ReadablePattern.Command;
+
+/**
+ * The vocabulary of the textual representation. Each entry maps a language specific command, like "einsVon"
+ * to the original command "oneOf". The original commands are always known.
+ * <BR>A Language is immutable, so it can be used by many threads without locks. Adding words creates a new Language.
+ * Example:
+ * <pre>
+ * ReadablePattern pattern = ReadablePattern.compile("datum()", Language.german());
+ * Language myLanguage = Language.german().extend(properties);
+ * </pre>
+ */
+public final class Language
+{
+    /** Only the original commands. */
+    public static final Language DEFAULT = new Language(createDefaultTranslation());
+    /** Loaded on first use, so that a missing german.properties only affects german users. */
+    private static volatile Language german;
+    private final Map<String, String> translation;
+    /** The commands for all names of this Language. */
+    private final Map<String, Command> commands;
+
+    private Language(Map<String, String> translation)
+    {
+        this.translation = Collections.unmodifiableMap(translation);
+        commands = Builder.resolveCommands(this.translation, null);
+    }
+
+    private static Map<String, String> createDefaultTranslation()
+    {
+        Map<String, String> translation = new HashMap<>();
+        for(String name : Builder.getBuiltinCommandNames())
+        {
+            translation.put(name, name);
+        }
+        return translation;
+    }
+
+    /**
+     * The original commands and the german commands from german.properties.
+     * @throws IllegalStateException if german.properties is not on the classpath.
+     */
+    public static Language german()
+    {
+        Language language = german;
+        if(language == null)
+        {
+            // Concurrent calls may load it twice, but a Language is immutable.
+            language = DEFAULT.extend(loadProperties("german.properties"));
+            german = language;
+        }
+        return language;
+    }
+
+    private static Properties loadProperties(String resource)
+    {
+        Properties properties = new Properties();
+        try(InputStream in = Language.class.getResourceAsStream(resource))
+        {
+            if(in == null)
+            {
+                throw new IllegalStateException("Missing resource: " + resource);
+            }
+            properties.load(in);
+        }
+        catch(IOException ex)
+        {
+            throw new IllegalStateException("Unable to read " + resource, ex);
+        }
+        return properties;
+    }
+
+    /**
+     * Creates a new Language with all words of this Language and the given words.
+     * @param mappings Each pair consists of the language specific command and the original command.
+     * @return
+     */
+    public Language extend(Map<String, String> mappings)
+    {
+        Map<String, String> extended = new HashMap<>(translation);
+        extended.putAll(mappings);
+        return new Language(extended);
+    }
+
+    /**
+     * Creates a new Language with all words of this Language and the given words.
+     * @param mappings Each pair consists of the language specific command and the original command.
+     * @return
+     */
+    public Language extend(Properties mappings)
+    {
+        Map<String, String> map = new HashMap<>();
+        for(String name : mappings.stringPropertyNames())
+        {
+            map.put(name, mappings.getProperty(name));
+        }
+        return extend(map);
+    }
+
+    /**
+     * Returns all words of this Language and the original command for each of them.
+     * @return an unmodifiable Map.
+     */
+    public Map<String, String> getTranslation()
+    {
+        return translation;
+    }
+
+    /**
+     * The lookup table from each word of this Language to the command, that will be executed.
+     */
+    Map<String, Command> getCommands()
+    {
+        return commands;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Language: " + translation.size() + " words";
+    }
+}
@@ -0,0 +1,104 @@
+package de.exware.rre;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts durations in buckets, which get wider with the duration, like HdrHistogram does. Each power of two is
+ * split into SUB_BUCKETS buckets, so a percentile is accurate to about 12%, from nanoseconds up to MAX_VALUE.
+ * Recording a value needs no lock, only an atomic increment, so many threads can record at the same time.
+ */
+class LatencyHistogram
+{
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /** Larger values are counted in the last bucket. About 18 minutes in nanoseconds. */
+    static final long MAX_VALUE = (1L << 40) - 1;
+    private static final int BUCKETS = index(MAX_VALUE) + 1;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    void record(long value)
+    {
+        value = Math.max(0, value);
+        counts.incrementAndGet(index(Math.min(value, MAX_VALUE)));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * The bucket of a value. Values below SUB_BUCKETS have their own bucket.
+     */
+    private static int index(long value)
+    {
+        if(value < SUB_BUCKETS)
+        {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * The largest value, which falls into the bucket.
+     */
+    private static long highestValue(int index)
+    {
+        if(index < SUB_BUCKETS)
+        {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = index % SUB_BUCKETS;
+        return ((SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    long getCount()
+    {
+        return count.sum();
+    }
+
+    /**
+     * The sum of all recorded values.
+     */
+    long getSum()
+    {
+        return sum.sum();
+    }
+
+    long getMax()
+    {
+        return max.get();
+    }
+
+    /**
+     * @param percentile like 99.9
+     * @return a value, which is at least as large as the given percentage of the recorded values, or 0 if nothing has been recorded.
+     */
+    long getValueAtPercentile(double percentile)
+    {
+        long total = 0;
+        long[] snapshot = new long[BUCKETS];
+        for(int i=0;i<BUCKETS;i++)
+        {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        long needed = (long) Math.ceil(total * Math.min(100, percentile) / 100);
+        long seen = 0;
+        for(int i=0;i<BUCKETS;i++)
+        {
+            seen += snapshot[i];
+            if(seen >= needed && seen > 0)
+            {
+                return Math.min(highestValue(i), getMax());
+            }
+        }
+        return 0;
+    }
+}
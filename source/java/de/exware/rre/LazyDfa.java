@@ -0,0 +1,428 @@
+package de.exware.rre;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Answers matches() and find() for regular expressions without backtracking. Most rules only use texts, character
+ * classes, alternatives and quantifiers, which can be matched by a deterministic automaton in linear time. Texts, which
+ * let java.util.regex backtrack exponentially, like aaaaaaaaaaaaaaaaaaaaaaaa!x for (?:\w+\s?){1,30}!, are no problem for it.
+ * <BR>The regex is translated to a NFA. The states of the DFA are sets of NFA states, which are created lazily, when
+ * a text needs them. They are cached, so that each character of a text usually costs a single array access. The
+ * number of cached states is limited. If a text needs more states, they are computed again each time, which is slower,
+ * but still linear.
+ * <BR>Regular expressions with anchors, lookarounds, back references, possessive quantifiers, inline flags and
+ * everything else, which RegexParser rejects, are left to java.util.regex. The same applies to the flags COMMENTS,
+ * LITERAL, UNICODE_CASE, UNICODE_CHARACTER_CLASS and CANON_EQ. Like java.util.regex, the text is matched by code points.
+ */
+class LazyDfa
+{
+    /** Large counted repetitions like \d{1,5000} are left to java.util.regex. */
+    private static final int MAX_NFA_STATES = 10000;
+    /** The maximum number of cached states of each automaton. */
+    static final int MAX_DFA_STATES = 2000;
+    private static final int SUPPORTED_FLAGS = Pattern.CASE_INSENSITIVE | Pattern.DOTALL | Pattern.MULTILINE
+        | Pattern.UNIX_LINES;
+    /** The NFA state, which is reached at the end of a match. */
+    private static final int MATCH = 0;
+    /** The characters of each NFA state. null for states, which only lead to other states without a character. */
+    private final CharSet[] sets;
+    /** The state, which follows a character, or the first following state of a split. */
+    private final int[] targets;
+    /** The second following state of a split. */
+    private final int[] alternatives;
+    private final int startState;
+    /** The first code point of each class of characters, which lead to the same states. */
+    private final int[] classStarts;
+    private final int[] asciiClasses = new int[128];
+    private final Automaton anchored;
+    private final Automaton unanchored;
+
+    private LazyDfa(Nfa nfa, int startState)
+    {
+        int size = nfa.sets.size();
+        sets = nfa.sets.toArray(new CharSet[size]);
+        targets = new int[size];
+        alternatives = new int[size];
+        for(int i=0;i<size;i++)
+        {
+            targets[i] = nfa.targets.get(i);
+            alternatives[i] = nfa.alternatives.get(i);
+        }
+        this.startState = startState;
+        classStarts = classStarts(sets);
+        for(int c=0;c<asciiClasses.length;c++)
+        {
+            asciiClasses[c] = searchClass(c);
+        }
+        anchored = new Automaton(false);
+        unanchored = new Automaton(true);
+    }
+
+    /**
+     * @return the automaton for the regex, or null if the regex or the flags are not supported.
+     */
+    static LazyDfa of(String regex, int flags)
+    {
+        if((flags & ~SUPPORTED_FLAGS) != 0)
+        {
+            return null;
+        }
+        RegexParser.Expr expr = RegexParser.parse(regex, flags, false);
+        if(expr == null)
+        {
+            return null;
+        }
+        try
+        {
+            Nfa nfa = new Nfa();
+            int start = compile(expr, nfa, MATCH);
+            return new LazyDfa(nfa, start);
+        }
+        catch(TooLargeException ex)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Adds the NFA states of the expression.
+     * @param next the state, which follows the expression.
+     * @return the first state of the expression.
+     */
+    private static int compile(RegexParser.Expr expr, Nfa nfa, int next)
+    {
+        if(expr instanceof RegexParser.Chars)
+        {
+            return nfa.add(((RegexParser.Chars) expr).set, next, -1);
+        }
+        if(expr instanceof RegexParser.Concatenation)
+        {
+            List<RegexParser.Expr> elements = ((RegexParser.Concatenation) expr).elements;
+            for(int i=elements.size()-1;i>=0;i--)
+            {
+                next = compile(elements.get(i), nfa, next);
+            }
+            return next;
+        }
+        if(expr instanceof RegexParser.Alternation)
+        {
+            List<RegexParser.Expr> alternatives = ((RegexParser.Alternation) expr).alternatives;
+            int start = compile(alternatives.get(alternatives.size() - 1), nfa, next);
+            for(int i=alternatives.size()-2;i>=0;i--)
+            {
+                start = nfa.add(null, compile(alternatives.get(i), nfa, next), start);
+            }
+            return start;
+        }
+        RegexParser.Repetition repetition = (RegexParser.Repetition) expr;
+        int start = next;
+        if(repetition.max == RegexParser.Repetition.UNBOUNDED)
+        {
+            start = nfa.add(null, -1, -1);
+            nfa.setSplit(start, compile(repetition.element, nfa, start), next);
+        }
+        else
+        {
+            for(int i=repetition.min;i<repetition.max;i++)
+            {
+                start = nfa.add(null, compile(repetition.element, nfa, start), next);
+            }
+        }
+        for(int i=0;i<repetition.min;i++)
+        {
+            start = compile(repetition.element, nfa, start);
+        }
+        return start;
+    }
+
+    /**
+     * true, if the whole text matches.
+     */
+    boolean matches(CharSequence text)
+    {
+        Automaton automaton = anchored;
+        State state = automaton.start;
+        int length = text.length();
+        int i = 0;
+        while(i < length)
+        {
+            int c = text.charAt(i++);
+            if(Character.isHighSurrogate((char) c) && i < length && Character.isLowSurrogate(text.charAt(i)))
+            {
+                c = Character.toCodePoint((char) c, text.charAt(i++));
+            }
+            state = automaton.next(state, classOf(c));
+            if(state.isDead())
+            {
+                return false;
+            }
+        }
+        return state.accepting;
+    }
+
+    /**
+     * true, if a match starts at or after from.
+     */
+    boolean find(CharSequence text, int from)
+    {
+        Automaton automaton = unanchored;
+        State state = automaton.start;
+        int length = text.length();
+        int i = from;
+        while(state.accepting == false && i < length)
+        {
+            int c = text.charAt(i++);
+            if(Character.isHighSurrogate((char) c) && i < length && Character.isLowSurrogate(text.charAt(i)))
+            {
+                c = Character.toCodePoint((char) c, text.charAt(i++));
+            }
+            state = automaton.next(state, classOf(c));
+        }
+        return state.accepting;
+    }
+
+    private int classOf(int c)
+    {
+        return c < asciiClasses.length ? asciiClasses[c] : searchClass(c);
+    }
+
+    private int searchClass(int c)
+    {
+        int index = Arrays.binarySearch(classStarts, c);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * Splits the code points into classes, so that all code points of a class are contained in the same sets.
+     */
+    private static int[] classStarts(CharSet[] sets)
+    {
+        List<Integer> starts = new ArrayList<>();
+        starts.add(0);
+        for(int i=0;i<sets.length;i++)
+        {
+            if(sets[i] != null)
+            {
+                int[] ranges = sets[i].ranges;
+                for(int r=0;r<ranges.length;r+=2)
+                {
+                    starts.add(ranges[r]);
+                    if(ranges[r + 1] < Character.MAX_CODE_POINT)
+                    {
+                        starts.add(ranges[r + 1] + 1);
+                    }
+                }
+            }
+        }
+        int[] result = new int[starts.size()];
+        for(int i=0;i<result.length;i++)
+        {
+            result[i] = starts.get(i);
+        }
+        Arrays.sort(result);
+        int count = 0;
+        for(int i=0;i<result.length;i++)
+        {
+            if(count == 0 || result[count - 1] != result[i])
+            {
+                result[count++] = result[i];
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * The states of one kind of search. The states are created lazily and shared by all threads.
+     */
+    private class Automaton
+    {
+        /** true for find(), which may start a match at each character. */
+        private final boolean unanchored;
+        private final ConcurrentHashMap<State, State> states = new ConcurrentHashMap<>();
+        private final State start;
+
+        Automaton(boolean unanchored)
+        {
+            this.unanchored = unanchored;
+            start = intern(closure(new int[] {startState}, 1));
+        }
+
+        State next(State state, int characterClass)
+        {
+            State next = state.next[characterClass];
+            if(next == null)
+            {
+                next = step(state, characterClass);
+                if(next.cached)
+                {
+                    // Other threads may not see the transition yet and compute the same state again.
+                    state.next[characterClass] = next;
+                }
+            }
+            return next;
+        }
+
+        private State step(State state, int characterClass)
+        {
+            int c = classStarts[characterClass];
+            int[] following = new int[state.nfaStates.length + 1];
+            int count = 0;
+            for(int i=0;i<state.nfaStates.length;i++)
+            {
+                int nfaState = state.nfaStates[i];
+                if(sets[nfaState] != null && sets[nfaState].contains(c))
+                {
+                    following[count++] = targets[nfaState];
+                }
+            }
+            if(unanchored)
+            {
+                following[count++] = startState;
+            }
+            return intern(closure(following, count));
+        }
+
+        /**
+         * Follows all transitions without a character.
+         */
+        private State closure(int[] nfaStates, int count)
+        {
+            boolean[] visited = new boolean[sets.length];
+            int[] stack = new int[sets.length];
+            int[] result = new int[sets.length];
+            int size = 0;
+            int top = 0;
+            for(int i=count-1;i>=0;i--)
+            {
+                stack[top++] = nfaStates[i];
+            }
+            while(top > 0)
+            {
+                int nfaState = stack[--top];
+                if(visited[nfaState])
+                {
+                    continue;
+                }
+                visited[nfaState] = true;
+                if(nfaState == MATCH || sets[nfaState] != null)
+                {
+                    result[size++] = nfaState;
+                }
+                else
+                {
+                    stack[top++] = alternatives[nfaState];
+                    stack[top++] = targets[nfaState];
+                }
+            }
+            result = Arrays.copyOf(result, size);
+            Arrays.sort(result);
+            return new State(result, classStarts.length);
+        }
+
+        private State intern(State state)
+        {
+            State existing = states.get(state);
+            if(existing != null)
+            {
+                return existing;
+            }
+            if(states.size() >= MAX_DFA_STATES)
+            {
+                return state;
+            }
+            state.cached = true;
+            existing = states.putIfAbsent(state, state);
+            return existing == null ? state : existing;
+        }
+    }
+
+    /**
+     * A state of the DFA, which is a set of NFA states.
+     */
+    private static class State
+    {
+        private final int[] nfaStates;
+        private final boolean accepting;
+        /** The following states for each class of characters, or null if they are not known yet. */
+        private final State[] next;
+        /** true, if the state is shared. Transitions to other states are only stored, if these are shared. */
+        private boolean cached;
+
+        State(int[] nfaStates, int classCount)
+        {
+            this.nfaStates = nfaStates;
+            accepting = nfaStates.length > 0 && nfaStates[0] == MATCH;
+            next = new State[classCount];
+        }
+
+        /**
+         * true, if no text can lead to a match anymore.
+         */
+        boolean isDead()
+        {
+            return nfaStates.length == 0;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Arrays.hashCode(nfaStates);
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            return obj instanceof State && Arrays.equals(nfaStates, ((State) obj).nfaStates);
+        }
+    }
+
+    /**
+     * The NFA, while it is created. State 0 is the MATCH state.
+     */
+    private static class Nfa
+    {
+        private final List<CharSet> sets = new ArrayList<>();
+        private final List<Integer> targets = new ArrayList<>();
+        private final List<Integer> alternatives = new ArrayList<>();
+
+        Nfa()
+        {
+            add(null, -1, -1);
+        }
+
+        int add(CharSet set, int target, int alternative)
+        {
+            if(sets.size() >= MAX_NFA_STATES)
+            {
+                throw new TooLargeException();
+            }
+            sets.add(set);
+            targets.add(target);
+            alternatives.add(alternative);
+            return sets.size() - 1;
+        }
+
+        void setSplit(int state, int target, int alternative)
+        {
+            targets.set(state, target);
+            alternatives.set(state, alternative);
+        }
+    }
+
+    /**
+     * Thrown, if the NFA gets too large.
+     */
+    private static class TooLargeException extends RuntimeException
+    {
+        private static final long serialVersionUID = 1L;
+
+        TooLargeException()
+        {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package de.exware.rre;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Fast rejection of texts, which can't contain a match of a Pattern, because they do not contain
+ * the literal texts the Pattern requires. Searching a literal with String.indexOf() is much faster than
+ * running the regular expression, and most rules never match most documents.
+ * Instances are immutable and may be used by many threads.
+ */
+class LiteralFilter
+{
+    /** Only the most selective requirements are checked, to keep the cost for matching texts low. */
+    private static final int MAX_CHECKS = 3;
+    /** Requirements with more alternatives are searched with an AhoCorasick automaton. */
+    private static final int MAX_INDEXOF_ALTERNATIVES = 4;
+    private final String[][] requirements;
+    private final AhoCorasick[] automatons;
+
+    private LiteralFilter(String[][] requirements)
+    {
+        this.requirements = requirements;
+        automatons = new AhoCorasick[requirements.length];
+        for(int i=0;i<requirements.length;i++)
+        {
+            if(requirements[i].length > MAX_INDEXOF_ALTERNATIVES)
+            {
+                automatons[i] = new AhoCorasick(requirements[i]);
+            }
+        }
+    }
+
+    /**
+     * Creates a filter for the given required literals.
+     * @param requiredLiterals each entry contains alternatives from which one must be contained in the text.
+     * @return the filter or null, if there's nothing to check.
+     */
+    static LiteralFilter create(String[][] requiredLiterals)
+    {
+        if(requiredLiterals.length == 0)
+        {
+            return null;
+        }
+        List<String[]> requirements = new ArrayList<>(Arrays.asList(requiredLiterals));
+        requirements.sort(new Comparator<String[]>()
+        {
+            @Override
+            public int compare(String[] r1, String[] r2)
+            {
+                return Integer.compare(selectivity(r2), selectivity(r1));
+            }
+        });
+        if(requirements.size() > MAX_CHECKS)
+        {
+            requirements = requirements.subList(0, MAX_CHECKS);
+        }
+        return new LiteralFilter(requirements.toArray(new String[requirements.size()][]));
+    }
+
+    /**
+     * Longer literals are found less often. So the length of the shortest alternative is a
+     * good estimation, how many texts are rejected.
+     */
+    static int selectivity(String[] alternatives)
+    {
+        int min = Integer.MAX_VALUE;
+        for(int i=0;i<alternatives.length;i++)
+        {
+            min = Math.min(min, alternatives[i].length());
+        }
+        return min;
+    }
+
+    /**
+     * @param text
+     * @param from the start of the search. Matches can't start before this index.
+     * @return false, if any of the required literals is missing in the text.
+     */
+    boolean mayMatch(CharSequence text, int from)
+    {
+        for(int i=0;i<requirements.length;i++)
+        {
+            boolean found = false;
+            if(automatons[i] != null)
+            {
+                found = automatons[i].containsAny(text, from, text.length());
+            }
+            else
+            {
+                String[] alternatives = requirements[i];
+                for(int x=0;x<alternatives.length && found == false;x++)
+                {
+                    found = indexOf(text, alternatives[x], from) >= 0;
+                }
+            }
+            if(found == false)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Same as String.indexOf(String, int) but for any CharSequence. Uses the intrinsic
+     * of String if possible.
+     */
+    static int indexOf(CharSequence text, String literal, int from)
+    {
+        if(text instanceof String)
+        {
+            return ((String) text).indexOf(literal, from);
+        }
+        char first = literal.charAt(0);
+        int max = text.length() - literal.length();
+        for(int i=from;i<=max;i++)
+        {
+            if(text.charAt(i) != first)
+            {
+                continue;
+            }
+            int x = 1;
+            while(x < literal.length() && text.charAt(i + x) == literal.charAt(x))
+            {
+                x++;
+            }
+            if(x == literal.length())
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,335 @@
+package de.exware.rre;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records the literal texts, which must be contained in every match of a Pattern.
+ * The Builder reports each element it adds. Literals that are made optional by a quantifier, or
+ * are part of an alternation are not required and will be dropped.
+ * If the structure of the expression is unknown, for example because of unbalanced
+ * braces or inline flags like (?i) in a plain regex, no literals will be reported at all.
+ */
+class LiteralTracker
+{
+    private static final String[][] NONE = new String[0][];
+    private final List<Frame> frames = new ArrayList<>();
+    /** The literals added by the last element. null, if it did not add any. */
+    private List<String[]> lastAtom;
+    /** true, if the last element was added with add(text). A quantifier only applies to the last character then. */
+    private boolean lastAtomIsText;
+    private boolean lastWasQuantifier;
+    /** true, if the last element opened a group. A following '?' would change the kind of the group. */
+    private boolean groupOpened;
+    private boolean valid = true;
+
+    LiteralTracker()
+    {
+        frames.add(new Frame());
+    }
+
+    private Frame current()
+    {
+        return frames.get(frames.size() - 1);
+    }
+
+    /**
+     * An element without literals has been added.
+     */
+    void atom()
+    {
+        groupOpened = false;
+        lastAtom = null;
+        lastAtomIsText = false;
+        lastWasQuantifier = false;
+    }
+
+    /**
+     * A literal text has been added.
+     * @param text the unescaped text.
+     * @param quantifierBindsToLastChar true for add(text), where a following quantifier only applies
+     * to the last character. false for addGroup(text).
+     */
+    void literal(String text, boolean quantifierBindsToLastChar)
+    {
+        if(text.isEmpty())
+        {
+            if(quantifierBindsToLastChar == false)
+            {
+                atom();
+            }
+            return;
+        }
+        String[] literal = new String[] {text};
+        current().literals.add(literal);
+        lastAtom = new ArrayList<>();
+        lastAtom.add(literal);
+        lastAtomIsText = quantifierBindsToLastChar;
+        lastWasQuantifier = false;
+        groupOpened = false;
+    }
+
+    /**
+     * An alternation of the given regular expressions has been added. If all of them are plain
+     * literals, one of them must occur in every match.
+     */
+    void alternatives(String[] alternatives)
+    {
+        atom();
+        for(int i=0;i<alternatives.length;i++)
+        {
+            if(alternatives[i].isEmpty() || isLiteral(alternatives[i]) == false)
+            {
+                return;
+            }
+        }
+        String[] literal = alternatives.clone();
+        current().literals.add(literal);
+        lastAtom = new ArrayList<>();
+        lastAtom.add(literal);
+    }
+
+    /**
+     * Checks if the regex does not contain any characters with special meaning.
+     */
+    static boolean isLiteral(String regex)
+    {
+        for(int i=0;i<regex.length();i++)
+        {
+            if("\\^$.|?*+()[]{}".indexOf(regex.charAt(i)) >= 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A quantifier has been added to the previous element.
+     * @param optional true, if the quantifier allows zero occurrences of the previous element.
+     */
+    void quantifier(boolean optional)
+    {
+        valid &= groupOpened == false;
+        if(optional && lastAtom != null)
+        {
+            List<String[]> literals = current().literals;
+            for(int i=0;i<lastAtom.size();i++)
+            {
+                int index = indexOf(literals, lastAtom.get(i));
+                if(index < 0)
+                {
+                    continue;
+                }
+                String text = literals.get(index)[0];
+                if(lastAtomIsText && literals.get(index).length == 1 && text.length() > 1)
+                {
+                    int end = text.offsetByCodePoints(text.length(), -1);
+                    literals.set(index, new String[] {text.substring(0, end)});
+                }
+                else
+                {
+                    literals.remove(index);
+                }
+            }
+        }
+        lastAtom = null;
+        lastAtomIsText = false;
+        lastWasQuantifier = true;
+        groupOpened = false;
+    }
+
+    /**
+     * lazy() makes a previous quantifier lazy. Without a quantifier it is the same as zeroOrOne().
+     */
+    void lazy()
+    {
+        if(lastWasQuantifier == false)
+        {
+            quantifier(true);
+        }
+    }
+
+    private static int indexOf(List<String[]> literals, String[] literal)
+    {
+        for(int i=0;i<literals.size();i++)
+        {
+            if(literals.get(i) == literal)
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    void openGroup()
+    {
+        atom();
+        frames.add(new Frame());
+        groupOpened = true;
+    }
+
+    void closeGroup()
+    {
+        if(frames.size() == 1)
+        {
+            valid = false;
+            atom();
+            return;
+        }
+        Frame frame = frames.remove(frames.size() - 1);
+        atom();
+        if(frame.alternation == false && frame.literals.isEmpty() == false)
+        {
+            current().literals.addAll(frame.literals);
+            lastAtom = frame.literals;
+        }
+    }
+
+    /**
+     * Some literals of an other Pattern have been added as one element.
+     */
+    void embed(String[][] literals)
+    {
+        atom();
+        if(literals.length > 0)
+        {
+            lastAtom = new ArrayList<>();
+            for(int i=0;i<literals.length;i++)
+            {
+                current().literals.add(literals[i]);
+                lastAtom.add(literals[i]);
+            }
+        }
+    }
+
+    /**
+     * A plain regular Expression has been added. It's structure is checked as far as needed
+     * to know if the recorded literals are still required.
+     */
+    void raw(String regex)
+    {
+        if(regex.length() > 0)
+        {
+            char c = regex.charAt(0);
+            if(c == '?' || c == '*' || c == '+' || c == '{')
+            {
+                quantifier(true);
+            }
+        }
+        int depth = 0;
+        boolean escaped = false;
+        boolean charClass = false;
+        for(int i=0;i<regex.length() && valid;i++)
+        {
+            char c = regex.charAt(i);
+            if(escaped)
+            {
+                escaped = false;
+            }
+            else if(c == '\\')
+            {
+                escaped = true;
+            }
+            else if(charClass)
+            {
+                charClass = c != ']';
+            }
+            else if(c == '[')
+            {
+                charClass = true;
+            }
+            else if(c == '(')
+            {
+                // An inline flag like (?i) changes the meaning of all following literals
+                valid = isInlineFlag(regex, i) == false;
+                depth++;
+            }
+            else if(c == ')')
+            {
+                depth--;
+                valid = depth >= 0;
+            }
+            else if(c == '|' && depth == 0)
+            {
+                current().alternation = true;
+            }
+        }
+        if(depth != 0 || charClass || escaped)
+        {
+            valid = false;
+        }
+        atom();
+    }
+
+    /**
+     * Checks if an unscoped group of inline flags like (?i) or (?-x) starts at the given index.
+     * A scoped group like (?i:abc) is an ordinary group.
+     */
+    private static boolean isInlineFlag(String regex, int index)
+    {
+        if(index + 2 >= regex.length() || regex.charAt(index + 1) != '?')
+        {
+            return false;
+        }
+        for(int i=index + 2;i<regex.length();i++)
+        {
+            char c = regex.charAt(i);
+            if(c == ')')
+            {
+                return i > index + 2;
+            }
+            if(c != '-' && Character.isLetter(c) == false)
+            {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if the given regex fragment can be embedded without changing the structure of the expression.
+     */
+    void checkBalanced(String regex)
+    {
+        List<String[]> last = lastAtom;
+        boolean text = lastAtomIsText;
+        boolean quantifier = lastWasQuantifier;
+        lastAtom = null;
+        frames.add(new Frame());
+        raw(regex);
+        frames.remove(frames.size() - 1);
+        lastAtom = last;
+        lastAtomIsText = text;
+        lastWasQuantifier = quantifier;
+    }
+
+    /**
+     * @return The literals, which are required for a match. Each entry contains the alternatives,
+     * from which one must occur.
+     */
+    String[][] getRequiredLiterals()
+    {
+        Frame root = frames.get(0);
+        if(valid == false || frames.size() != 1 || root.alternation)
+        {
+            return NONE;
+        }
+        List<String[]> literals = new ArrayList<>();
+        for(int i=0;i<root.literals.size();i++)
+        {
+            String[] literal = root.literals.get(i);
+            if(literal.length > 1 || literal[0].length() > 0)
+            {
+                literals.add(literal);
+            }
+        }
+        return literals.toArray(new String[literals.size()][]);
+    }
+
+    private static class Frame
+    {
+        private final List<String[]> literals = new ArrayList<>();
+        private boolean alternation;
+    }
+}
@@ -0,0 +1,401 @@
+package de.exware.rre;
+
+/**
+ * Computes the maximum length of a match of a regular expression in chars, or -1 if the length is
+ * not bounded, like for digit().oneOrMore(). The result is an upper bound, which is always safe to use for the
+ * size of overlapping windows. Everything, that can match a supplementary character, is counted with 2 chars.
+ * Constructs which are not understood, like back references, also lead to -1.
+ */
+class MaxMatchLength
+{
+    static final int UNBOUNDED = -1;
+    private final String regex;
+    /** true, if lookarounds are counted with the length of their content. */
+    private final boolean countLookarounds;
+    private int position;
+
+    private MaxMatchLength(String regex, boolean countLookarounds)
+    {
+        this.regex = regex;
+        this.countLookarounds = countLookarounds;
+    }
+
+    /**
+     * @return the maximum length of a match, or -1 if it is unbounded or unknown.
+     */
+    static int of(String regex)
+    {
+        return of(regex, false);
+    }
+
+    /**
+     * Like of(), but lookarounds are counted with the length of their content. A match attempt, which starts at
+     * an index, does not look at chars, which are further away from that index, except for the neighbours, that
+     * anchors and word boundaries look at.
+     * @return the reach of a match attempt, or -1 if it is unbounded or unknown.
+     */
+    static int reach(String regex)
+    {
+        return of(regex, true);
+    }
+
+    private static int of(String regex, boolean countLookarounds)
+    {
+        MaxMatchLength parser = new MaxMatchLength(regex, countLookarounds);
+        try
+        {
+            long length = parser.alternation();
+            if(parser.position != regex.length() || length > Integer.MAX_VALUE)
+            {
+                return UNBOUNDED;
+            }
+            return (int) length;
+        }
+        catch(UnboundedException ex)
+        {
+            return UNBOUNDED;
+        }
+    }
+
+    private boolean more()
+    {
+        return position < regex.length();
+    }
+
+    private char peek()
+    {
+        return regex.charAt(position);
+    }
+
+    private boolean consume(char c)
+    {
+        if(more() && peek() == c)
+        {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Parses alternatives until the end of the regex or a closing brace.
+     */
+    private long alternation()
+    {
+        long max = sequence();
+        while(consume('|'))
+        {
+            max = Math.max(max, sequence());
+        }
+        return max;
+    }
+
+    private long sequence()
+    {
+        long length = 0;
+        while(more() && peek() != '|' && peek() != ')')
+        {
+            length = add(length, quantified());
+        }
+        return length;
+    }
+
+    private long quantified()
+    {
+        long length = atom();
+        if(more() == false)
+        {
+            return length;
+        }
+        char c = peek();
+        long max;
+        if(c == '?')
+        {
+            position++;
+            max = 1;
+        }
+        else if(c == '*' || c == '+')
+        {
+            throw new UnboundedException();
+        }
+        else if(c == '{')
+        {
+            max = counted();
+        }
+        else
+        {
+            return length;
+        }
+        if(more() && (peek() == '?' || peek() == '+'))
+        {
+            position++;
+        }
+        if(more() && "?*+{".indexOf(peek()) >= 0)
+        {
+            // Java does not handle a second quantifier in a consistent way.
+            throw new UnboundedException();
+        }
+        return multiply(length, max);
+    }
+
+    /**
+     * Parses {n}, {n,} or {n,m} and returns the maximum count.
+     */
+    private long counted()
+    {
+        int end = regex.indexOf('}', position);
+        if(end < 0)
+        {
+            throw new UnboundedException();
+        }
+        String count = regex.substring(position + 1, end);
+        position = end + 1;
+        int comma = count.indexOf(',');
+        String max = comma < 0 ? count : count.substring(comma + 1);
+        if(max.isEmpty() || max.length() > 9)
+        {
+            throw new UnboundedException();
+        }
+        for(int i=0;i<max.length();i++)
+        {
+            if(Character.isDigit(max.charAt(i)) == false)
+            {
+                throw new UnboundedException();
+            }
+        }
+        return Long.parseLong(max);
+    }
+
+    private long atom()
+    {
+        char c = peek();
+        position++;
+        switch(c)
+        {
+            case '(':
+                return group();
+            case '[':
+                characterClass();
+                return 2;
+            case '\\':
+                return escape();
+            case '.':
+                return 2;
+            case '^':
+            case '$':
+                return 0;
+            case '?':
+            case '*':
+            case '+':
+            case '{':
+                throw new UnboundedException();
+            default:
+                if(Character.isHighSurrogate(c) && more() && Character.isLowSurrogate(peek()))
+                {
+                    position++;
+                    return 2;
+                }
+                return 1;
+        }
+    }
+
+    private long group()
+    {
+        boolean lookaround = false;
+        if(consume('?'))
+        {
+            if(consume('=') || consume('!'))
+            {
+                lookaround = true;
+            }
+            else if(consume('<'))
+            {
+                if(consume('=') || consume('!'))
+                {
+                    lookaround = true;
+                }
+                else
+                {
+                    skipName();
+                }
+            }
+            else if(consume('>') == false && flags())
+            {
+                return 0;
+            }
+        }
+        long length = alternation();
+        if(consume(')') == false)
+        {
+            throw new UnboundedException();
+        }
+        return lookaround && countLookarounds == false ? 0 : length;
+    }
+
+    private void skipName()
+    {
+        int end = regex.indexOf('>', position);
+        if(end < 0)
+        {
+            throw new UnboundedException();
+        }
+        position = end + 1;
+    }
+
+    /**
+     * Parses inline flags like (?i) or (?i:...).
+     * @return true, if the flags are not followed by a group.
+     */
+    private boolean flags()
+    {
+        while(more() && "idmsuxU-".indexOf(peek()) >= 0)
+        {
+            if(peek() == 'x')
+            {
+                // Comments mode changes the meaning of whitespace and #.
+                throw new UnboundedException();
+            }
+            position++;
+        }
+        if(consume(')'))
+        {
+            return true;
+        }
+        if(consume(':'))
+        {
+            return false;
+        }
+        throw new UnboundedException();
+    }
+
+    private void characterClass()
+    {
+        int depth = 1;
+        while(more() && depth > 0)
+        {
+            char c = peek();
+            position++;
+            if(c == '\\')
+            {
+                if(more() && peek() == 'Q')
+                {
+                    throw new UnboundedException();
+                }
+                position++;
+            }
+            else if(c == '[')
+            {
+                depth++;
+            }
+            else if(c == ']')
+            {
+                depth--;
+            }
+        }
+        if(depth > 0)
+        {
+            throw new UnboundedException();
+        }
+    }
+
+    private long escape()
+    {
+        if(more() == false)
+        {
+            throw new UnboundedException();
+        }
+        char c = peek();
+        position++;
+        if(c >= '1' && c <= '9' || c == 'k' || c == 'Q' || c == 'G' || c == 'X')
+        {
+            throw new UnboundedException();
+        }
+        if(c == 'b' || c == 'B' || c == 'A' || c == 'z' || c == 'Z')
+        {
+            if(c == 'b' && consume('{'))
+            {
+                skip('}');
+            }
+            return 0;
+        }
+        if((c == 'p' || c == 'P' || c == 'N' || c == 'x') && consume('{'))
+        {
+            skip('}');
+        }
+        else if(c == 'p' || c == 'P' || c == 'c')
+        {
+            position++;
+        }
+        else if(c == 'x')
+        {
+            position += 2;
+        }
+        else if(c == 'u')
+        {
+            position += 4;
+            return 1;
+        }
+        else if(c == '0')
+        {
+            // Like java.util.regex: at most three digits, the third only if the first is 0-3.
+            int start = position;
+            while(more() && peek() >= '0' && peek() <= '7' && position - start < 3
+                && (position - start < 2 || regex.charAt(start) <= '3'))
+            {
+                position++;
+            }
+            return 1;
+        }
+        else if(Character.isLetter(c) == false)
+        {
+            return 1;
+        }
+        if(position > regex.length())
+        {
+            throw new UnboundedException();
+        }
+        return 2;
+    }
+
+    private void skip(char end)
+    {
+        int index = regex.indexOf(end, position);
+        if(index < 0)
+        {
+            throw new UnboundedException();
+        }
+        position = index + 1;
+    }
+
+    private static long add(long a, long b)
+    {
+        long sum = a + b;
+        if(sum > Integer.MAX_VALUE)
+        {
+            throw new UnboundedException();
+        }
+        return sum;
+    }
+
+    private static long multiply(long a, long b)
+    {
+        if(a != 0 && b > Integer.MAX_VALUE / a)
+        {
+            throw new UnboundedException();
+        }
+        return a * b;
+    }
+
+    /**
+     * Thrown to stop the analysis, if the length is unbounded or unknown.
+     */
+    private static class UnboundedException extends RuntimeException
+    {
+        private static final long serialVersionUID = 1L;
+
+        UnboundedException()
+        {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,570 @@
+package de.exware.rre;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An element of the expression tree, which the Builder creates from the fluent API calls.
+ * The regular expression and the textual representation are both rendered from the tree, so that
+ * passes can change the structure of the expression before it is compiled.
+ * <BR>Each node knows the text of the Builder call, which created it, so that the textual representation
+ * stays the same as the user has written it. Nodes are immutable.
+ */
+abstract class Node
+{
+    /** The textual representation of the call, which created this node. */
+    private final String readable;
+
+    Node(String readable)
+    {
+        this.readable = readable;
+    }
+
+    /**
+     * The textual representation of the call, which created this node, without the elements it contains.
+     */
+    String getReadable()
+    {
+        return readable;
+    }
+
+    /**
+     * Appends the regular expression of this node.
+     */
+    abstract void appendRegex(StringBuilder regex);
+
+    /**
+     * Appends the textual representation of this node.
+     */
+    void appendReadable(StringBuilder text)
+    {
+        text.append(readable);
+    }
+
+    /**
+     * true, if the node adds nothing to the regular expression.
+     */
+    boolean isEmpty()
+    {
+        return false;
+    }
+
+    String toRegex()
+    {
+        StringBuilder regex = new StringBuilder();
+        appendRegex(regex);
+        return regex.toString();
+    }
+
+    String toReadable()
+    {
+        StringBuilder text = new StringBuilder();
+        appendReadable(text);
+        return text.toString();
+    }
+
+    /**
+     * Elements, which follow each other.
+     */
+    static class Sequence extends Node
+    {
+        private final List<Node> nodes;
+
+        Sequence(List<Node> nodes)
+        {
+            super("");
+            this.nodes = Collections.unmodifiableList(nodes);
+        }
+
+        List<Node> getNodes()
+        {
+            return nodes;
+        }
+
+        @Override
+        void appendRegex(StringBuilder regex)
+        {
+            for(int i=0;i<nodes.size();i++)
+            {
+                nodes.get(i).appendRegex(regex);
+            }
+        }
+
+        @Override
+        void appendReadable(StringBuilder text)
+        {
+            for(int i=0;i<nodes.size();i++)
+            {
+                nodes.get(i).appendReadable(text);
+            }
+        }
+
+        @Override
+        boolean isEmpty()
+        {
+            for(int i=0;i<nodes.size();i++)
+            {
+                if(nodes.get(i).isEmpty() == false)
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * A plain text. Non word characters are escaped with a backslash.
+     */
+    static class Literal extends Node
+    {
+        private final String text;
+        private final String regex;
+
+        Literal(String text, String readable)
+        {
+            super(readable);
+            this.text = text;
+            regex = text.replaceAll("\\W", "\\\\$0");
+        }
+
+        String getText()
+        {
+            return text;
+        }
+
+        /**
+         * The number of characters. A supplementary character is counted once.
+         */
+        int length()
+        {
+            return text.codePointCount(0, text.length());
+        }
+
+        /**
+         * A quantifier after a text only applies to the last character. The text is split,
+         * so that the quantifier can be attached to a Literal with the last character.
+         * @return the text without the last character, which keeps the textual representation.
+         */
+        Literal head()
+        {
+            return new Literal(text.substring(0, lastCharIndex()), getReadable());
+        }
+
+        /**
+         * @return the last character, without a textual representation.
+         */
+        Literal last()
+        {
+            return new Literal(text.substring(lastCharIndex()), "");
+        }
+
+        /**
+         * @return a Literal with the text of this Literal followed by the text of the other one.
+         */
+        Literal append(Literal other)
+        {
+            return new Literal(text + other.text, getReadable() + other.getReadable());
+        }
+
+        private int lastCharIndex()
+        {
+            return text.offsetByCodePoints(text.length(), -1);
+        }
+
+        @Override
+        void appendRegex(StringBuilder regex)
+        {
+            regex.append(this.regex);
+        }
+
+        @Override
+        boolean isEmpty()
+        {
+            return text.isEmpty();
+        }
+    }
+
+    /**
+     * A set of characters like [a-f0-9] or a predefined class like \d. Each member is a single character,
+     * a range like a-f or a predefined class.
+     */
+    static class CharClass extends Node
+    {
+        /** Any character except line breaks. Can't be a member of a set. */
+        static final String ANY = ".";
+        private final String[] members;
+        /** false for a single member, which is written without brackets, like \d. */
+        private final boolean bracketed;
+
+        CharClass(String[] members, boolean bracketed, String readable)
+        {
+            super(readable);
+            this.members = members.clone();
+            this.bracketed = bracketed;
+        }
+
+        /**
+         * A predefined class, which is written without brackets, like \d.
+         */
+        CharClass(String member, String readable)
+        {
+            this(new String[] {member}, false, readable);
+        }
+
+        String[] getMembers()
+        {
+            return members.clone();
+        }
+
+        boolean isBracketed()
+        {
+            return bracketed;
+        }
+
+        @Override
+        void appendRegex(StringBuilder regex)
+        {
+            if(bracketed)
+            {
+                regex.append('[');
+            }
+            for(int i=0;i<members.length;i++)
+            {
+                regex.append(members[i]);
+            }
+            if(bracketed)
+            {
+                regex.append(']');
+            }
+        }
+    }
+
+    /**
+     * One of several regular expressions, like (?:(?:abc)|x). Large lists of literal texts are written as a trie.
+     */
+    static class Alternation extends Node
+    {
+        private final String[] alternatives;
+        /** The regex of the alternatives as a trie, or null. */
+        private final String trie;
+        /** true, if alternatives with more than one character are enclosed by a group. */
+        private final boolean grouped;
+
+        Alternation(String[] alternatives, String trie, String readable)
+        {
+            this(alternatives, trie, true, readable);
+        }
+
+        private Alternation(String[] alternatives, String trie, boolean grouped, String readable)
+        {
+            super(readable);
+            this.alternatives = alternatives.clone();
+            this.trie = trie;
+            this.grouped = grouped;
+        }
+
+        /**
+         * @return a copy, which writes the alternatives as the given trie.
+         */
+        Alternation withTrie(String trie)
+        {
+            return new Alternation(alternatives, trie, grouped, getReadable());
+        }
+
+        /**
+         * @return a copy, which writes the alternatives without enclosing groups, like (?:ab|c).
+         * Only valid if the alternatives are complete regular expressions, which do not change the meaning of the other
+         * alternatives.
+         */
+        Alternation withoutGroups()
+        {
+            return new Alternation(alternatives, trie, false, getReadable());
+        }
+
+        /**
+         * The regular expressions of the alternatives.
+         */
+        String[] getAlternatives()
+        {
+            return alternatives.clone();
+        }
+
+        String getTrie()
+        {
+            return trie;
+        }
+
+        @Override
+        void appendRegex(StringBuilder regex)
+        {
+            if(trie != null)
+            {
+                regex.append(trie);
+                return;
+            }
+            regex.append("(?:");
+            for(int i=0;i<alternatives.length;i++)
+            {
+                if(i>0)
+                {
+                    regex.append('|');
+                }
+                if(grouped && alternatives[i].length() > 1)
+                {
+                    regex.append("(?:").append(alternatives[i]).append(')');
+                }
+                else
+                {
+                    regex.append(alternatives[i]);
+                }
+            }
+            regex.append(')');
+        }
+    }
+
+    /**
+     * Repeats the previous element, like * or {2,5}. The element may be null, if the quantifier is the first element
+     * of a group. Quantifiers after anything else but a Literal, CharClass, Alternation or Group may have an other
+     * meaning in the regular expression, than the tree suggests, for example after an anchor or a plain regex.
+     */
+    static class Quantifier extends Node
+    {
+        static final int UNBOUNDED = -1;
+        private final Node element;
+        /** The quantifier as it is written in the regex, like *? or {2}. */
+        private final String syntax;
+        private final int min;
+        private final int max;
+        private final boolean lazy;
+
+        Quantifier(Node element, String syntax, int min, int max, boolean lazy, String readable)
+        {
+            super(readable);
+            this.element = element;
+            this.syntax = syntax;
+            this.min = min;
+            this.max = max;
+            this.lazy = lazy;
+        }
+
+        Node getElement()
+        {
+            return element;
+        }
+
+        int getMin()
+        {
+            return min;
+        }
+
+        /**
+         * @return the maximum count or UNBOUNDED.
+         */
+        int getMax()
+        {
+            return max;
+        }
+
+        boolean isLazy()
+        {
+            return lazy;
+        }
+
+        /**
+         * @return a copy, which repeats the given element.
+         */
+        Quantifier withElement(Node element)
+        {
+            return new Quantifier(element, syntax, min, max, lazy, getReadable());
+        }
+
+        /**
+         * @return a lazy copy of this greedy quantifier.
+         */
+        Quantifier toLazy(String readable)
+        {
+            return new Quantifier(element, syntax + "?", min, max, true, getReadable() + readable);
+        }
+
+        @Override
+        void appendRegex(StringBuilder regex)
+        {
+            if(element != null)
+            {
+                element.appendRegex(regex);
+            }
+            regex.append(syntax);
+        }
+
+        @Override
+        void appendReadable(StringBuilder text)
+        {
+            if(element != null)
+            {
+                element.appendReadable(text);
+            }
+            super.appendReadable(text);
+        }
+    }
+
+    /**
+     * A non capturing group like (?:abc).
+     */
+    static class Group extends Node
+    {
+        private final Sequence content;
+        /** The textual representation of the call, which closed the group. */
+        private final String closeReadable;
+        /** false, if the group end is missing. */
+        private final boolean closed;
+        /** false, if the textual representation of the content is already part of the opening call, like in addGroup(text). */
+        private final boolean readableContent;
+
+        Group(Sequence content, String openReadable, String closeReadable, boolean closed, boolean readableContent)
+        {
+            super(openReadable);
+            this.content = content;
+            this.closeReadable = closeReadable;
+            this.closed = closed;
+            this.readableContent = readableContent;
+        }
+
+        Sequence getContent()
+        {
+            return content;
+        }
+
+        String getCloseReadable()
+        {
+            return closeReadable;
+        }
+
+        boolean isClosed()
+        {
+            return closed;
+        }
+
+        /**
+         * @return a copy of this group with an other content.
+         */
+        Group withContent(Sequence content)
+        {
+            return new Group(content, getReadable(), closeReadable, closed, readableContent);
+        }
+
+        /**
+         * The regex, which opens the group.
+         */
+        String getOpening()
+        {
+            return "(?:";
+        }
+
+        @Override
+        void appendRegex(StringBuilder regex)
+        {
+            regex.append(getOpening());
+            content.appendRegex(regex);
+            if(closed)
+            {
+                regex.append(')');
+            }
+        }
+
+        @Override
+        void appendReadable(StringBuilder text)
+        {
+            super.appendReadable(text);
+            if(readableContent)
+            {
+                content.appendReadable(text);
+            }
+            text.append(closeReadable);
+        }
+    }
+
+    /**
+     * A capturing group like (abc) or (?<name>abc).
+     */
+    static class Capture extends Group
+    {
+        /** The name of the group, or null. */
+        private final String name;
+
+        Capture(Sequence content, String openReadable, String closeReadable, boolean closed, String name)
+        {
+            super(content, openReadable, closeReadable, closed, true);
+            this.name = name;
+        }
+
+        @Override
+        Group withContent(Sequence content)
+        {
+            return new Capture(content, getReadable(), getCloseReadable(), isClosed(), name);
+        }
+
+        @Override
+        String getOpening()
+        {
+            return name == null ? "(" : "(?<" + name + ">";
+        }
+    }
+
+    /**
+     * A position like the start (^) or the end ($) of a line.
+     */
+    static class Anchor extends Node
+    {
+        private final String syntax;
+
+        Anchor(String syntax, String readable)
+        {
+            super(readable);
+            this.syntax = syntax;
+        }
+
+        String getSyntax()
+        {
+            return syntax;
+        }
+
+        @Override
+        void appendRegex(StringBuilder regex)
+        {
+            regex.append(syntax);
+        }
+    }
+
+    /**
+     * A plain regular expression, like the one of addRegEx(). The structure is unknown, it may even
+     * contain unbalanced braces. Options like ignoreCase() are Raw nodes without regex.
+     */
+    static class Raw extends Node
+    {
+        private final String regex;
+
+        Raw(String regex, String readable)
+        {
+            super(readable);
+            this.regex = regex;
+        }
+
+        String getRegex()
+        {
+            return regex;
+        }
+
+        @Override
+        void appendRegex(StringBuilder regex)
+        {
+            regex.append(this.regex);
+        }
+
+        @Override
+        boolean isEmpty()
+        {
+            return regex.isEmpty();
+        }
+    }
+}
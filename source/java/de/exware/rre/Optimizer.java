@@ -0,0 +1,401 @@
+package de.exware.rre;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Simplifies the expression tree of a Builder, before the regular expression is compiled. The result matches
+ * exactly the same texts with the same groups, but the regex engine has less work to do:
+ * <ul>
+ * <li>Non capturing groups, which are not needed, are removed: add(x).addGroup('abc') becomes xabc instead of x(?:abc),
+ * and nested groups like (?:(?:ab)) become (?:ab).</li>
+ * <li>Alternatives of plain texts are written as a trie: oneOf('abc','abd') becomes (?:ab[cd]) and
+ * oneOf('ab','x','y') becomes (?:ab|[xy]). The order of the alternatives is kept, so the same alternative is preferred.</li>
+ * <li>Other alternatives are not enclosed by a group each: (?:(?:a+)|(?:bc)) becomes (?:a+|bc).</li>
+ * <li>Adjacent texts are merged into a single Literal.</li>
+ * </ul>
+ * Plain regular expressions from addRegEx() are never changed. If they are incomplete, for example because of
+ * unbalanced braces, the structure of the whole expression is unknown and nothing is optimized.
+ */
+class Optimizer
+{
+    private Optimizer()
+    {
+    }
+
+    /**
+     * @return the optimized tree, or the given tree if it can't be optimized safely.
+     */
+    static Node.Sequence optimize(Node.Sequence tree)
+    {
+        if(isSafe(tree) == false)
+        {
+            return tree;
+        }
+        return sequence(tree.getNodes());
+    }
+
+    /**
+     * Checks that all plain regular expressions in the tree are complete, and all groups are closed.
+     */
+    private static boolean isSafe(Node node)
+    {
+        if(node instanceof Node.Raw)
+        {
+            String regex = ((Node.Raw) node).getRegex();
+            return isComplete(regex) && regex.contains("\\Q") == false && hasInlineFlags(regex, true) == false;
+        }
+        if(node instanceof Node.Sequence)
+        {
+            List<Node> nodes = ((Node.Sequence) node).getNodes();
+            for(int i=0;i<nodes.size();i++)
+            {
+                if(isSafe(nodes.get(i)) == false)
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if(node instanceof Node.Group)
+        {
+            Node.Group group = (Node.Group) node;
+            return group.isClosed() && isSafe(group.getContent());
+        }
+        if(node instanceof Node.Quantifier)
+        {
+            Node element = ((Node.Quantifier) node).getElement();
+            return element != null && isSafe(element);
+        }
+        return true;
+    }
+
+    private static Node.Sequence sequence(List<Node> nodes)
+    {
+        List<Node> result = new ArrayList<>(nodes.size());
+        for(int i=0;i<nodes.size();i++)
+        {
+            Node node = optimize(nodes.get(i));
+            if(canRemoveGroup(node, result, nodes, i))
+            {
+                List<Node> content = ((Node.Group) node).getContent().getNodes();
+                for(int x=0;x<content.size();x++)
+                {
+                    append(result, content.get(x));
+                }
+            }
+            else
+            {
+                append(result, node);
+            }
+        }
+        return new Node.Sequence(result);
+    }
+
+    /**
+     * Adds the node to the sequence. Adjacent texts are merged.
+     */
+    private static void append(List<Node> result, Node node)
+    {
+        int last = result.size() - 1;
+        if(node instanceof Node.Literal && last >= 0 && result.get(last) instanceof Node.Literal)
+        {
+            result.set(last, ((Node.Literal) result.get(last)).append((Node.Literal) node));
+        }
+        else
+        {
+            result.add(node);
+        }
+    }
+
+    private static Node optimize(Node node)
+    {
+        if(node instanceof Node.Group)
+        {
+            Node.Group group = (Node.Group) node;
+            return group.withContent(sequence(group.getContent().getNodes()));
+        }
+        if(node instanceof Node.Quantifier)
+        {
+            Node.Quantifier quantifier = (Node.Quantifier) node;
+            Node element = optimize(quantifier.getElement());
+            if(element instanceof Node.Group && element instanceof Node.Capture == false)
+            {
+                List<Node> content = ((Node.Group) element).getContent().getNodes();
+                if(content.size() == 1 && isAtom(content.get(0)))
+                {
+                    element = content.get(0);
+                }
+            }
+            return quantifier.withElement(element);
+        }
+        if(node instanceof Node.Alternation)
+        {
+            return alternation((Node.Alternation) node);
+        }
+        return node;
+    }
+
+    /**
+     * true, if a quantifier after the node applies to the whole node.
+     */
+    private static boolean isAtom(Node node)
+    {
+        return node instanceof Node.CharClass || node instanceof Node.Alternation || node instanceof Node.Group
+            || node instanceof Node.Literal && ((Node.Literal) node).getText().length() == 1;
+    }
+
+    /**
+     * Checks if the non capturing group at index in nodes can be replaced by it's content.
+     * @param result the optimized nodes before the group.
+     */
+    private static boolean canRemoveGroup(Node node, List<Node> result, List<Node> nodes, int index)
+    {
+        if(node instanceof Node.Group == false || node instanceof Node.Capture)
+        {
+            return false;
+        }
+        List<Node> content = ((Node.Group) node).getContent().getNodes();
+        for(int i=0;i<content.size();i++)
+        {
+            Node element = content.get(i);
+            while(element instanceof Node.Quantifier)
+            {
+                element = ((Node.Quantifier) element).getElement();
+            }
+            if(element instanceof Node.Raw)
+            {
+                String regex = ((Node.Raw) element).getRegex();
+                // The group limits the scope of alternatives and flags.
+                if(hasAlternative(regex) || hasInlineFlags(regex, false))
+                {
+                    return false;
+                }
+            }
+        }
+        // A quantifier would apply to the last element of the content instead of the group.
+        if(startsWithQuantifier(next(nodes, index + 1)) || startsWithQuantifier(next(content, 0)))
+        {
+            return false;
+        }
+        // \1(?:0) must not become \10
+        return endsWithDigit(last(result)) == false && endsWithDigit(last(content)) == false;
+    }
+
+    /**
+     * @return the last node, which adds something to the regex, or null.
+     */
+    private static Node last(List<Node> nodes)
+    {
+        for(int i=nodes.size()-1;i>=0;i--)
+        {
+            if(nodes.get(i).isEmpty() == false)
+            {
+                return nodes.get(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the first node from index on, which adds something to the regex, or null.
+     */
+    private static Node next(List<Node> nodes, int index)
+    {
+        for(int i=index;i<nodes.size();i++)
+        {
+            if(nodes.get(i).isEmpty() == false)
+            {
+                return nodes.get(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * true, if the regex of the node starts with a quantifier, which applies to the element before the node.
+     */
+    private static boolean startsWithQuantifier(Node node)
+    {
+        if(node instanceof Node.Raw)
+        {
+            String regex = ((Node.Raw) node).getRegex();
+            return regex.length() > 0 && "?*+{".indexOf(regex.charAt(0)) >= 0;
+        }
+        if(node instanceof Node.Quantifier)
+        {
+            Node element = ((Node.Quantifier) node).getElement();
+            return element == null || element.isEmpty() || startsWithQuantifier(element);
+        }
+        return false;
+    }
+
+    private static boolean endsWithDigit(Node node)
+    {
+        if(node instanceof Node.Raw)
+        {
+            String regex = ((Node.Raw) node).getRegex();
+            return regex.length() > 0 && Character.isDigit(regex.charAt(regex.length() - 1));
+        }
+        return false;
+    }
+
+    /**
+     * Writes alternatives of plain texts as a trie, and removes the groups around other alternatives.
+     */
+    private static Node alternation(Node.Alternation alternation)
+    {
+        if(alternation.getTrie() != null)
+        {
+            return alternation;
+        }
+        String[] alternatives = alternation.getAlternatives();
+        boolean literal = true;
+        for(int i=0;i<alternatives.length;i++)
+        {
+            literal &= alternatives[i].isEmpty() == false && LiteralTracker.isLiteral(alternatives[i]);
+        }
+        if(literal)
+        {
+            String trie = KeywordTrie.toRegex(alternatives);
+            if(trie != null)
+            {
+                return alternation.withTrie(trie);
+            }
+        }
+        for(int i=0;i<alternatives.length;i++)
+        {
+            String regex = alternatives[i];
+            if(isComplete(regex) == false || hasInlineFlags(regex, false) || regex.contains("\\Q")
+                || regex.length() > 0 && "?*+{".indexOf(regex.charAt(0)) >= 0)
+            {
+                return alternation;
+            }
+        }
+        return alternation.withoutGroups();
+    }
+
+    /**
+     * Checks that braces, character classes, quantifiers and escapes are complete, so that the regex does not
+     * change the meaning of the regex around it.
+     */
+    static boolean isComplete(String regex)
+    {
+        int depth = 0;
+        int classDepth = 0;
+        boolean counted = false;
+        for(int i=0;i<regex.length();i++)
+        {
+            char c = regex.charAt(i);
+            if(c == '\\')
+            {
+                i++;
+                if(i >= regex.length())
+                {
+                    return false;
+                }
+            }
+            else if(c == '[')
+            {
+                classDepth++;
+            }
+            else if(c == ']' && classDepth > 0)
+            {
+                classDepth--;
+            }
+            else if(classDepth > 0)
+            {
+                continue;
+            }
+            else if(c == '(')
+            {
+                depth++;
+            }
+            else if(c == ')')
+            {
+                depth--;
+                if(depth < 0)
+                {
+                    return false;
+                }
+            }
+            else if(c == '{')
+            {
+                counted = true;
+            }
+            else if(c == '}')
+            {
+                counted = false;
+            }
+        }
+        return depth == 0 && classDepth == 0 && counted == false;
+    }
+
+    /**
+     * Checks for an alternative on the top level of the regex, like in a|b.
+     */
+    private static boolean hasAlternative(String regex)
+    {
+        int depth = 0;
+        int classDepth = 0;
+        for(int i=0;i<regex.length();i++)
+        {
+            char c = regex.charAt(i);
+            if(c == '\\')
+            {
+                i++;
+            }
+            else if(c == '[')
+            {
+                classDepth++;
+            }
+            else if(c == ']' && classDepth > 0)
+            {
+                classDepth--;
+            }
+            else if(classDepth > 0)
+            {
+                continue;
+            }
+            else if(c == '(')
+            {
+                depth++;
+            }
+            else if(c == ')')
+            {
+                depth--;
+            }
+            else if(c == '|' && depth == 0)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks for flags like (?i) or (?s:...), which change the meaning of the regex.
+     * @param commentsOnly only check for the comments flag x, which changes the meaning of whitespace and #.
+     */
+    private static boolean hasInlineFlags(String regex, boolean commentsOnly)
+    {
+        int index = regex.indexOf("(?");
+        while(index >= 0)
+        {
+            int i = index + 2;
+            boolean comments = false;
+            while(i < regex.length() && "idmsuxU-".indexOf(regex.charAt(i)) >= 0)
+            {
+                comments |= regex.charAt(i) == 'x';
+                i++;
+            }
+            if(i > index + 2 && i < regex.length() && (regex.charAt(i) == ')' || regex.charAt(i) == ':')
+                && (comments || commentsOnly == false))
+            {
+                return true;
+            }
+            index = regex.indexOf("(?", index + 2);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,81 @@
+package de.exware.rre;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Processes a collection of texts with an Executor. The texts are split into ranges, so that each task
+ * handles several texts and the cost for scheduling stays low. The results are returned in the order of the input.
+ */
+class ParallelBatch
+{
+    /** Number of tasks per processor, so that slow texts do not keep the other processors waiting. */
+    private static final int TASKS_PER_PROCESSOR = 4;
+
+    private ParallelBatch()
+    {
+    }
+
+    /**
+     * Applies the function to each text and waits until all texts are done.
+     * @throws RuntimeException the first exception thrown by the function.
+     */
+    static <T> List<T> map(Collection<? extends CharSequence> texts, Function<CharSequence, T> function, Executor executor)
+    {
+        CharSequence[] input = texts.toArray(new CharSequence[texts.size()]);
+        Object[] results = new Object[input.length];
+        int tasks = Math.min(input.length, Runtime.getRuntime().availableProcessors() * TASKS_PER_PROCESSOR);
+        List<Runnable> runnables = new ArrayList<>(tasks);
+        for(int t=0;t<tasks;t++)
+        {
+            int from = (int) ((long) input.length * t / tasks);
+            int to = (int) ((long) input.length * (t + 1) / tasks);
+            runnables.add(() ->
+            {
+                for(int i=from;i<to;i++)
+                {
+                    results[i] = function.apply(input[i]);
+                }
+            });
+        }
+        run(runnables, executor);
+        @SuppressWarnings("unchecked")
+        List<T> list = (List<T>) Arrays.asList(results);
+        return list;
+    }
+
+    /**
+     * Runs the tasks with the Executor and waits until all tasks are done.
+     * @throws RuntimeException the first exception thrown by a task.
+     */
+    static void run(List<Runnable> tasks, Executor executor)
+    {
+        List<CompletableFuture<Void>> futures = new ArrayList<>(tasks.size());
+        for(int i=0;i<tasks.size();i++)
+        {
+            futures.add(CompletableFuture.runAsync(tasks.get(i), executor));
+        }
+        try
+        {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        }
+        catch(CompletionException ex)
+        {
+            if(ex.getCause() instanceof RuntimeException)
+            {
+                throw (RuntimeException) ex.getCause();
+            }
+            if(ex.getCause() instanceof Error)
+            {
+                throw (Error) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package de.exware.rre;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Searches a single large text with several threads. The text is split into chunks, and each chunk
+ * is searched for matches, which start inside the chunk. The region of a chunk reaches maxLength chars into the next chunk,
+ * so matches crossing the border are complete. Transparent bounds let look arounds see the text outside of the region.
+ * <BR>A match at the end of a chunk may overlap matches, that the next chunk has found. The results are merged from
+ * the first chunk to the last. Matches which start before the end of the last accepted match are dropped, and
+ * the chunk is searched again from that position, until a match is found, which the chunk has found too. From there on,
+ * the results of the chunk are the same as those of a sequential search. So the result is always the same as
+ * the one of Matcher.find() on the whole text.
+ */
+class ParallelSearch
+{
+    private final ReadablePattern readablePattern;
+    private final Pattern pattern;
+    private final CharSequence text;
+    private final int maxLength;
+
+    private ParallelSearch(ReadablePattern readablePattern, CharSequence text)
+    {
+        this.readablePattern = readablePattern;
+        this.pattern = readablePattern.getPattern();
+        this.text = text;
+        this.maxLength = readablePattern.getMaxMatchLength();
+    }
+
+    /**
+     * @param pattern a Pattern with a limited match length.
+     */
+    static List<ReadableMatch> findAll(ReadablePattern pattern, CharSequence text, Executor executor, int chunkSize)
+    {
+        ParallelSearch search = new ParallelSearch(pattern, text);
+        int chunks = Math.max(1, (int) (((long) text.length() + chunkSize - 1) / chunkSize));
+        List<List<Found>> results = new ArrayList<>(chunks);
+        List<Runnable> tasks = new ArrayList<>(chunks);
+        for(int c=0;c<chunks;c++)
+        {
+            List<Found> found = new ArrayList<>();
+            results.add(found);
+            int from = c * chunkSize;
+            int to = search.chunkEnd(from, chunkSize);
+            tasks.add(() -> search.scan(from, to, found));
+        }
+        ParallelBatch.run(tasks, executor);
+        return search.merge(results, chunkSize);
+    }
+
+    /**
+     * The end of the range, in which matches of the chunk may start. The last chunk also contains
+     * empty matches at the end of the text.
+     */
+    private int chunkEnd(int from, int chunkSize)
+    {
+        long to = (long) from + chunkSize;
+        return to >= text.length() ? text.length() + 1 : (int) to;
+    }
+
+    private Matcher matcher(int from, int to)
+    {
+        // Each chunk gets the time and step limit of the Pattern.
+        Matcher matcher = pattern.matcher(readablePattern.limit(text));
+        matcher.useTransparentBounds(true);
+        matcher.useAnchoringBounds(false);
+        matcher.region(from, (int) Math.min(text.length(), (long) to + maxLength));
+        return matcher;
+    }
+
+    /**
+     * Finds all matches, that start in the range from - to, when the search starts at from.
+     */
+    private void scan(int from, int to, List<Found> found)
+    {
+        Matcher matcher = matcher(from, to);
+        while(matcher.find() && matcher.start() < to)
+        {
+            found.add(new Found(matcher));
+        }
+    }
+
+    private List<ReadableMatch> merge(List<List<Found>> results, int chunkSize)
+    {
+        List<ReadableMatch> matches = new ArrayList<>();
+        // The position where a sequential search would continue.
+        int position = 0;
+        for(int c=0;c<results.size() && position <= text.length();c++)
+        {
+            List<Found> found = results.get(c);
+            int from = c * chunkSize;
+            int to = chunkEnd(from, chunkSize);
+            int index = 0;
+            while(true)
+            {
+                while(index < found.size() && found.get(index).start < position)
+                {
+                    index++;
+                }
+                // The chunk has searched the next match from the same position or before, so it found the same match.
+                if(index == 0 || found.get(index - 1).next <= position)
+                {
+                    for(int i=index;i<found.size();i++)
+                    {
+                        matches.add(found.get(i).match);
+                        position = found.get(i).next;
+                    }
+                    break;
+                }
+                Matcher matcher = matcher(position, to);
+                if(matcher.find() == false || matcher.start() >= to)
+                {
+                    break;
+                }
+                Found match = new Found(matcher);
+                matches.add(match.match);
+                position = match.next;
+                if(position > text.length())
+                {
+                    break;
+                }
+            }
+        }
+        return matches;
+    }
+
+    private static class Found
+    {
+        private final ReadableMatch match;
+        private final int start;
+        /** The position where Matcher.find() continues after this match. */
+        private final int next;
+
+        Found(Matcher matcher)
+        {
+            match = ReadableMatch.create(matcher, 0);
+            start = matcher.start();
+            next = matcher.end() == matcher.start() ? matcher.end() + 1 : matcher.end();
+        }
+    }
+}
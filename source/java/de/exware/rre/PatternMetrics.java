@@ -0,0 +1,158 @@
+package de.exware.rre;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The numbers, which ReadablePatternMetrics has recorded for all Patterns with the same textual representation.
+ * Times are in nanoseconds. The numbers are updated without locks, so they may change while they are read.
+ */
+public class PatternMetrics
+{
+    private final String readableRegex;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder textLength = new LongAdder();
+    private final LongAccumulator maxTextLength = new LongAccumulator(Math::max, 0);
+    private final LongAdder compileCount = new LongAdder();
+    private final LongAdder compileNanos = new LongAdder();
+
+    PatternMetrics(String readableRegex)
+    {
+        this.readableRegex = readableRegex;
+    }
+
+    void compiled(long nanos)
+    {
+        compileCount.increment();
+        compileNanos.add(nanos);
+    }
+
+    void matched(long nanos, int length, boolean found)
+    {
+        latencies.record(nanos);
+        if(found)
+        {
+            hits.increment();
+        }
+        textLength.add(length);
+        maxTextLength.accumulate(length);
+    }
+
+    /**
+     * The textual representation of the Pattern.
+     * @return
+     */
+    public String getReadableRegex()
+    {
+        return readableRegex;
+    }
+
+    /**
+     * How often a Pattern with this textual representation has been compiled.
+     * @return
+     */
+    public long getCompileCount()
+    {
+        return compileCount.sum();
+    }
+
+    /**
+     * The time needed for all compilations.
+     * @return
+     */
+    public long getCompileNanos()
+    {
+        return compileNanos.sum();
+    }
+
+    /**
+     * The number of calls of matches(), find() and findAll().
+     * @return
+     */
+    public long getMatchCount()
+    {
+        return latencies.getCount();
+    }
+
+    /**
+     * The number of calls, which have found a match.
+     * @return
+     */
+    public long getHitCount()
+    {
+        return hits.sum();
+    }
+
+    /**
+     * The number of calls, which have found nothing.
+     * @return
+     */
+    public long getMissCount()
+    {
+        return getMatchCount() - getHitCount();
+    }
+
+    /**
+     * The part of the calls, which have found a match, between 0 and 1.
+     * @return
+     */
+    public double getHitRatio()
+    {
+        long count = getMatchCount();
+        return count == 0 ? 0 : (double) getHitCount() / count;
+    }
+
+    /**
+     * The time needed by all calls together.
+     * @return
+     */
+    public long getTotalNanos()
+    {
+        return latencies.getSum();
+    }
+
+    public long getMeanNanos()
+    {
+        long count = getMatchCount();
+        return count == 0 ? 0 : getTotalNanos() / count;
+    }
+
+    public long getMaxNanos()
+    {
+        return latencies.getMax();
+    }
+
+    /**
+     * The time, which is not exceeded by the given percentage of the calls. It is accurate to about 12%.
+     * @param percentile like 99.9
+     * @return
+     */
+    public long getNanosAtPercentile(double percentile)
+    {
+        return latencies.getValueAtPercentile(percentile);
+    }
+
+    /**
+     * The sum of the lengths of all matched texts in characters.
+     * @return
+     */
+    public long getTotalTextLength()
+    {
+        return textLength.sum();
+    }
+
+    public long getMaxTextLength()
+    {
+        return maxTextLength.get();
+    }
+
+    @Override
+    public String toString()
+    {
+        long count = getMatchCount();
+        return String.format("%,d us total, %,d calls, mean %,d ns, p99 %,d ns, max %,d ns, %.1f%% hits, mean text %,d chars, compiled %d times in %,d us: %s",
+            getTotalNanos() / 1000, count, getMeanNanos(), getNanosAtPercentile(99), getMaxNanos(), getHitRatio() * 100,
+            count == 0 ? 0 : getTotalTextLength() / count, getCompileCount(), getCompileNanos() / 1000, readableRegex);
+    }
+}
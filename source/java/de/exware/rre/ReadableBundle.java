@@ -0,0 +1,262 @@
+package de.exware.rre;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A binary file with precompiled ReadablePatterns. Parsing thousands of rules at startup takes
+ * seconds. A bundle contains everything the Builder has computed for each rule: the normalized textual representation,
+ * the regular expression, the flags, the limits of the matching time and the literal texts, which are used to reject texts fast.
+ * Loading a bundle does not parse the rules again. Only the regular expressions are compiled, or with read(file, true)
+ * not even those, until a rule is used.
+ * <BR>Bundles may be created at build time with the main method of this class, which reads one rule per line:
+ * <pre>
+ * java de.exware.rre.ReadableBundle rules.txt rules.rre
+ * </pre>
+ * and are loaded at runtime with
+ * <pre>
+ * ReadableRuleSet rules = new ReadableRuleSet(ReadableBundle.read(Paths.get("rules.rre")));
+ * </pre>
+ * The format starts with the magic number "RRE" and a version. A bundle of another version is rejected,
+ * so the rules need to be compiled again, if the format changes.
+ * All numbers are big endian, texts are stored as length and UTF-8 bytes.
+ * <pre>
+ * int magic, int version, int ruleCount
+ * for each rule:
+ *   text readableRegex, text regex, int flags, int maxMatchLength, long timeoutNanos, long stepLimit
+ *   int requirementCount, for each requirement: int alternativeCount, text ... alternatives
+ *   int keywordCount (-1 if the rule has no keywords), text ... keywords
+ * </pre>
+ */
+public class ReadableBundle
+{
+    /** "RRE" followed by a 0 byte. */
+    private static final int MAGIC = 0x52524500;
+    /** The version of the format. Increase it with each change. */
+    static final int VERSION = 2;
+
+    private ReadableBundle()
+    {
+    }
+
+    /**
+     * Writes the Patterns to a file.
+     */
+    public static void write(List<ReadablePattern> patterns, Path file) throws IOException
+    {
+        try(OutputStream out = Files.newOutputStream(file))
+        {
+            write(patterns, out);
+        }
+    }
+
+    /**
+     * Writes the Patterns to the stream. The stream is not closed.
+     */
+    public static void write(List<ReadablePattern> patterns, OutputStream out) throws IOException
+    {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(patterns.size());
+        for(int i=0;i<patterns.size();i++)
+        {
+            ReadablePattern pattern = patterns.get(i);
+            writeText(data, pattern.getReadableRegex());
+            writeText(data, pattern.getRegex());
+            data.writeInt(pattern.getFlags());
+            data.writeInt(pattern.getMaxMatchLength());
+            data.writeLong(pattern.getTimeoutNanos());
+            data.writeLong(pattern.getStepLimit());
+            String[][] required = pattern.getRequiredLiterals();
+            data.writeInt(required.length);
+            for(int r=0;r<required.length;r++)
+            {
+                writeTexts(data, required[r]);
+            }
+            String[] keywords = pattern.getKeywords();
+            if(keywords == null)
+            {
+                data.writeInt(-1);
+            }
+            else
+            {
+                writeTexts(data, keywords);
+            }
+        }
+        data.flush();
+    }
+
+    private static void writeTexts(DataOutputStream data, String[] texts) throws IOException
+    {
+        data.writeInt(texts.length);
+        for(int i=0;i<texts.length;i++)
+        {
+            writeText(data, texts[i]);
+        }
+    }
+
+    /**
+     * DataOutputStream.writeUTF() is limited to 64KB, which is too small for large oneOf() lists.
+     */
+    private static void writeText(DataOutputStream data, String text) throws IOException
+    {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        data.writeInt(bytes.length);
+        data.write(bytes);
+    }
+
+    /**
+     * Reads all Patterns of a bundle file. The file is mapped into memory, so that it is not copied
+     * into a buffer before it is read.
+     */
+    public static List<ReadablePattern> read(Path file) throws IOException
+    {
+        return read(file, false);
+    }
+
+    /**
+     * Reads all Patterns of a bundle file.
+     * @param lazy true, if the regular expressions are compiled on first use. See Builder.setLazy().
+     */
+    public static List<ReadablePattern> read(Path file, boolean lazy) throws IOException
+    {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), lazy);
+        }
+    }
+
+    /**
+     * Reads all Patterns of a bundle from the buffer, starting at it's position.
+     * @throws IOException if the buffer does not contain a bundle of the current version.
+     */
+    public static List<ReadablePattern> read(ByteBuffer buffer) throws IOException
+    {
+        return read(buffer, false);
+    }
+
+    /**
+     * Reads all Patterns of a bundle from the buffer, starting at it's position.
+     * @param lazy true, if the regular expressions are compiled on first use. See Builder.setLazy().
+     * @throws IOException if the buffer does not contain a bundle of the current version.
+     */
+    public static List<ReadablePattern> read(ByteBuffer buffer, boolean lazy) throws IOException
+    {
+        try
+        {
+            if(buffer.getInt() != MAGIC)
+            {
+                throw new IOException("Not a ReadablePattern bundle");
+            }
+            int version = buffer.getInt();
+            if(version != VERSION)
+            {
+                throw new IOException("Unsupported bundle version " + version + ", expected " + VERSION);
+            }
+            int count = readCount(buffer);
+            List<ReadablePattern> patterns = new ArrayList<>(count);
+            for(int i=0;i<count;i++)
+            {
+                String readableRegex = readText(buffer);
+                String regex = readText(buffer);
+                int flags = buffer.getInt();
+                int maxMatchLength = buffer.getInt();
+                long timeoutNanos = buffer.getLong();
+                long stepLimit = buffer.getLong();
+                String[][] required = new String[readCount(buffer)][];
+                for(int r=0;r<required.length;r++)
+                {
+                    required[r] = readTexts(buffer, readCount(buffer));
+                }
+                int keywordCount = buffer.getInt();
+                String[] keywords = keywordCount < 0 ? null : readTexts(buffer, keywordCount);
+                patterns.add(ReadablePattern.create(readableRegex, regex, flags, required, keywords, maxMatchLength, timeoutNanos, stepLimit, lazy));
+            }
+            return Collections.unmodifiableList(patterns);
+        }
+        catch(BufferUnderflowException ex)
+        {
+            throw new IOException("Unexpected end of bundle", ex);
+        }
+    }
+
+    /**
+     * Reads a count and checks that it is not larger than the rest of the buffer, so that a broken file
+     * does not lead to huge allocations.
+     */
+    private static int readCount(ByteBuffer buffer) throws IOException
+    {
+        int count = buffer.getInt();
+        if(count < 0 || count > buffer.remaining())
+        {
+            throw new IOException("Invalid count " + count + " at position " + (buffer.position() - 4));
+        }
+        return count;
+    }
+
+    private static String[] readTexts(ByteBuffer buffer, int count) throws IOException
+    {
+        String[] texts = new String[count];
+        for(int i=0;i<count;i++)
+        {
+            texts[i] = readText(buffer);
+        }
+        return texts;
+    }
+
+    private static String readText(ByteBuffer buffer) throws IOException
+    {
+        int length = readCount(buffer);
+        if(buffer.hasArray())
+        {
+            String text = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+            return text;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Precompiles a rule file into a bundle. The rule file contains one rule per line in UTF-8. Empty lines
+     * and lines starting with # are ignored.
+     * <BR>Arguments: ruleFile bundleFile [german]
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if(args.length < 2 || args.length > 3 || args.length == 3 && "german".equals(args[2]) == false)
+        {
+            System.err.println("Usage: ReadableBundle ruleFile bundleFile [german]");
+            System.exit(1);
+        }
+        Language language = args.length == 3 ? Language.german() : Language.DEFAULT;
+        List<String> lines = Files.readAllLines(Paths.get(args[0]), StandardCharsets.UTF_8);
+        List<ReadablePattern> patterns = new ArrayList<>();
+        for(int i=0;i<lines.size();i++)
+        {
+            String line = lines.get(i).trim();
+            if(line.isEmpty() || line.startsWith("#"))
+            {
+                continue;
+            }
+            patterns.add(ReadablePattern.compile(line, language));
+        }
+        write(patterns, Paths.get(args[1]));
+        System.out.println(patterns.size() + " rules written to " + args[1]);
+    }
+}
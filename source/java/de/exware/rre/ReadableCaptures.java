@@ -0,0 +1,158 @@
+package de.exware.rre;
+
+import java.nio.CharBuffer;
+import java.util.regex.Matcher;
+
+/**
+ * The capturing groups of the current match of a ReadablePattern, like the fields, which capture() and captureEnd()
+ * pull out of a document. Unlike Matcher.group(), nothing is copied: start() and end() return the offsets of a group,
+ * and group() returns a view of the text. A ReadableCaptures is created once and reused for all texts, so finding
+ * the matches does not allocate anything.
+ * Example:
+ * <pre>
+ * ReadablePattern pattern = ReadablePattern.compile("add(Rechnung).whitespace().capture(number).digit().oneOrMore().captureEnd()");
+ * int number = pattern.getGroupIndex("number");
+ * ReadableCaptures captures = pattern.captures();
+ * while(captures.findNext(text))
+ * {
+ *     store(text, captures.start(number), captures.end(number));
+ * }
+ * </pre>
+ * The time and step limits of the Pattern apply to each search. A ReadableCaptures is not thread safe.
+ */
+public class ReadableCaptures
+{
+    private final ReadablePattern pattern;
+    private final Matcher matcher;
+    private CharSequence text;
+    private boolean found;
+
+    public ReadableCaptures(ReadablePattern pattern)
+    {
+        this.pattern = pattern;
+        matcher = pattern.getPattern().matcher("");
+    }
+
+    /**
+     * Finds the first match in the text.
+     * @param text
+     * @return true, if a match has been found.
+     */
+    public boolean find(CharSequence text)
+    {
+        return find(text, 0);
+    }
+
+    /**
+     * Finds the first match, which starts at or after from.
+     * @param text
+     * @param from
+     * @return true, if a match has been found.
+     * @throws IndexOutOfBoundsException if from is less than zero or greater than the length of the text.
+     */
+    public boolean find(CharSequence text, int from)
+    {
+        this.text = text;
+        matcher.reset(pattern.limit(text));
+        found = matcher.find(from);
+        return found;
+    }
+
+    /**
+     * Finds the next match in the text. The search starts at the beginning, if the text is another one than
+     * the text of the last search, or if the last search has not found anything.
+     * @param text
+     * @return true, if a match has been found.
+     */
+    public boolean findNext(CharSequence text)
+    {
+        if(text != this.text || found == false)
+        {
+            return find(text, 0);
+        }
+        found = matcher.find();
+        return found;
+    }
+
+    /**
+     * The number of capturing groups of the Pattern.
+     * @return
+     */
+    public int groupCount()
+    {
+        return pattern.getGroupCount();
+    }
+
+    /**
+     * The start index of a group in the text.
+     * @param group the index of the group. 0 is the whole match.
+     * @return the index or -1, if the group did not take part in the match.
+     * @throws IllegalStateException if the last search did not find a match.
+     */
+    public int start(int group)
+    {
+        checkMatch();
+        return matcher.start(group);
+    }
+
+    /**
+     * The end index (exclusive) of a group in the text.
+     * @param group the index of the group. 0 is the whole match.
+     * @return the index or -1, if the group did not take part in the match.
+     * @throws IllegalStateException if the last search did not find a match.
+     */
+    public int end(int group)
+    {
+        checkMatch();
+        return matcher.end(group);
+    }
+
+    public int start(String name)
+    {
+        return start(pattern.getGroupIndex(name));
+    }
+
+    public int end(String name)
+    {
+        return end(pattern.getGroupIndex(name));
+    }
+
+    /**
+     * Writes the start and end index of each group into offsets, like ReadablePattern.find(text, from, offsets).
+     * @param offsets an array with at least 2 * (groupCount() + 1) elements.
+     */
+    public void getOffsets(int[] offsets)
+    {
+        checkMatch();
+        for(int group=0;group<=matcher.groupCount();group++)
+        {
+            offsets[2 * group] = matcher.start(group);
+            offsets[2 * group + 1] = matcher.end(group);
+        }
+    }
+
+    /**
+     * A view of the text of a group, which does not copy the chars. It is only valid as long as the text is not changed.
+     * @param group the index of the group. 0 is the whole match.
+     * @return the text or null, if the group did not take part in the match.
+     * @throws IllegalStateException if the last search did not find a match.
+     */
+    public CharSequence group(int group)
+    {
+        int start = start(group);
+        return start < 0 ? null : CharBuffer.wrap(text, start, end(group));
+    }
+
+    public CharSequence group(String name)
+    {
+        return group(pattern.getGroupIndex(name));
+    }
+
+    private void checkMatch()
+    {
+        if(found == false)
+        {
+            throw new IllegalStateException("No match found");
+        }
+    }
+}
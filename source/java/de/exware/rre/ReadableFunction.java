@@ -0,0 +1,69 @@
+package de.exware.rre;
+
+import java.util.regex.Pattern;
+
+import de.exware.rre.ReadablePattern.Builder;
+import de.exware.rre.ReadablePattern.ReadablePatternExtension;
+
+/**
+ * A function of the textual representation like iban(), which adds a fixed regular expression. The regex is checked
+ * and turned into an element of the expression tree once, when the function is created. Each use in a rule only adds
+ * that element, so rules do not pay for building the regex again.
+ * <BR>The function has no parameters and it is written like iban() in the textual representation of the Pattern.
+ * Instances are immutable and may be used by many threads.
+ * @see ReadableFunctionLibrary
+ */
+public class ReadableFunction implements ReadablePatternExtension
+{
+    private final String name;
+    private final String regex;
+    private final Node node;
+
+    /**
+     * @param name the name in the textual representation.
+     * @param regex the regular expression, which is added for the function.
+     * @throws java.util.regex.PatternSyntaxException if the regex is not valid.
+     */
+    public ReadableFunction(String name, String regex)
+    {
+        Pattern.compile(regex);
+        this.name = name;
+        this.regex = regex;
+        node = new Node.Raw("(?:" + regex + ")", "." + name + "()");
+    }
+
+    @Override
+    public String getFunctionName()
+    {
+        return name;
+    }
+
+    /**
+     * The regular expression of the function.
+     * @return
+     */
+    public String getRegex()
+    {
+        return regex;
+    }
+
+    /**
+     * Adds the function to the Builder. The parameter is ignored.
+     */
+    @Override
+    public void createRegEx(Builder builder, String param)
+    {
+        builder.add(this);
+    }
+
+    Node getNode()
+    {
+        return node;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "ReadableFunction: " + name + "() ; regex:" + regex;
+    }
+}
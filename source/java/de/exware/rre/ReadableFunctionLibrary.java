@@ -0,0 +1,26 @@
+package de.exware.rre;
+
+import java.util.List;
+
+import de.exware.rre.ReadablePattern.ReadablePatternExtension;
+
+/**
+ * A set of functions, which can be used in every textual representation without passing them to compile().
+ * Libraries are found with the ServiceLoader, when the Builder class is loaded. To register a library, add the
+ * name of the implementing class to the file META-INF/services/de.exware.rre.ReadableFunctionLibrary of the jar.
+ * The implementing class needs a public constructor without parameters. A library, which can not be loaded, for
+ * example because the class is missing or has no such constructor, is skipped silently, so that it does not break all other Patterns.
+ * Its functions are unknown then.
+ * <BR>A function with the same name as a builtin command, like date(), is ignored. If two libraries contain a
+ * function with the same name, the first one found wins. Extensions, which are passed to compile(), take precedence
+ * over all of them.
+ * @see StandardFunctions
+ */
+public interface ReadableFunctionLibrary
+{
+    /**
+     * The functions of this library. Usually ReadableFunctions, which are created once.
+     * @return
+     */
+    public List<ReadablePatternExtension> getFunctions();
+}
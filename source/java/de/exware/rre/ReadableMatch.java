@@ -0,0 +1,111 @@
+package de.exware.rre;
+
+import java.time.LocalDate;
+import java.util.regex.Matcher;
+
+/**
+ * A single match of a ReadablePattern. The offsets are counted in characters from the beginning of
+ * the input, which may be larger than 2GB for streams.
+ * Instances are immutable and keep a copy of the matched texts, not the input.
+ */
+public class ReadableMatch
+{
+    private final long start;
+    private final long end;
+    /** The text of group 0 (the whole match) and of all capturing groups. Entries of groups which did not match are null. */
+    private final String[] groups;
+
+    private ReadableMatch(long start, long end, String[] groups)
+    {
+        this.start = start;
+        this.end = end;
+        this.groups = groups;
+    }
+
+    /**
+     * Creates a match from the current match of the Matcher.
+     * @param offset is added to the indexes of the Matcher.
+     */
+    static ReadableMatch create(Matcher matcher, long offset)
+    {
+        String[] groups = new String[matcher.groupCount() + 1];
+        for(int i=0;i<groups.length;i++)
+        {
+            groups[i] = matcher.group(i);
+        }
+        return new ReadableMatch(offset + matcher.start(), offset + matcher.end(), groups);
+    }
+
+    /**
+     * Creates a match without capturing groups.
+     */
+    static ReadableMatch create(long start, long end, String text)
+    {
+        return new ReadableMatch(start, end, new String[] {text});
+    }
+
+    /**
+     * @return a copy of this match, which is moved by delta chars.
+     */
+    ReadableMatch move(long delta)
+    {
+        return new ReadableMatch(start + delta, end + delta, groups);
+    }
+
+    /**
+     * Start index of the match.
+     */
+    public long getStart()
+    {
+        return start;
+    }
+
+    /**
+     * End index of the match (exclusive).
+     */
+    public long getEnd()
+    {
+        return end;
+    }
+
+    /**
+     * The matched text.
+     */
+    public String getText()
+    {
+        return groups[0];
+    }
+
+    /**
+     * The text of a capturing group.
+     * @param group the number of the group. 0 is the whole match.
+     * @return the text or null, if the group did not take part in the match.
+     */
+    public String getGroup(int group)
+    {
+        return groups[group];
+    }
+
+    /**
+     * The matched text as a date, if it is written in one of the forms of date(), like 31.12.2020 or 2020-12-31.
+     * @return the date or null, if the text is not written like a date, or if the date does not exist, like 31.02.2020.
+     */
+    public LocalDate getDate()
+    {
+        return DateScanner.toDate(groups[0]);
+    }
+
+    /**
+     * Number of capturing groups of the Pattern.
+     */
+    public int getGroupCount()
+    {
+        return groups.length - 1;
+    }
+
+    @Override
+    public String toString()
+    {
+        return start + "-" + end + ": " + groups[0];
+    }
+}
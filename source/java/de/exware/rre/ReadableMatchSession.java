@@ -0,0 +1,179 @@
+package de.exware.rre;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+
+/**
+ * Keeps the matches of a ReadablePattern in a text, which is edited, for example by OCR corrections. After an edit
+ * only the region around the edit is searched again. A match attempt only looks at the chars within the reach of
+ * the Pattern around its start, so matches far enough before the edit are kept, and matches behind it are moved by
+ * the length difference. Like in ParallelSearch, the new search continues behind the edit, until it reaches a
+ * position, from which the old search has found the same next match. So the matches are always the same as those
+ * of findAll() on the whole text.
+ * <BR>Patterns with an unlimited length, like digit().oneOrMore(), or with back references are searched again in the
+ * whole text after each edit.
+ * Example:
+ * <pre>
+ * ReadableMatchSession session = pattern.matchSession(text);
+ * List&lt;ReadableMatch&gt; matches = session.edit(120, 3, "2020");
+ * </pre>
+ * A ReadableMatchSession is not thread safe.
+ */
+public class ReadableMatchSession
+{
+    /** Anchors and word boundaries look at up to two chars beside the position, like \r\n for $. */
+    private static final int NEIGHBOURS = 2;
+    private final ReadablePattern pattern;
+    private final StringBuilder text;
+    /** The number of chars around the start of a match attempt, which it may look at, or -1 if unbounded. */
+    private final int reach;
+    private List<ReadableMatch> matches;
+
+    public ReadableMatchSession(ReadablePattern pattern, CharSequence text)
+    {
+        this.pattern = pattern;
+        this.text = new StringBuilder(text);
+        int reach = MaxMatchLength.reach(pattern.getRegex());
+        this.reach = reach < 0 ? reach : reach + NEIGHBOURS;
+        matches = pattern.findAll(this.text);
+    }
+
+    /**
+     * Replaces a part of the text and updates the matches.
+     * @param offset the index of the first replaced char.
+     * @param removedLength the number of chars, which are removed.
+     * @param insertedText the text, which is inserted at the offset.
+     * @return the matches in the new text.
+     * @throws ReadablePatternTimeoutException if the search exceeds the time or step limit of the Pattern.
+     * The edit is not applied then.
+     */
+    public List<ReadableMatch> edit(int offset, int removedLength, CharSequence insertedText)
+    {
+        if(offset < 0 || removedLength < 0 || offset > text.length() - removedLength)
+        {
+            throw new IndexOutOfBoundsException("Illegal edit: " + offset + "+" + removedLength + " in text of length " + text.length());
+        }
+        String removed = text.substring(offset, offset + removedLength);
+        text.replace(offset, offset + removedLength, insertedText.toString());
+        try
+        {
+            if(reach < 0)
+            {
+                matches = pattern.findAll(text);
+            }
+            else
+            {
+                matches = rematch(offset, offset + insertedText.length(), insertedText.length() - removedLength);
+            }
+        }
+        catch(ReadablePatternTimeoutException ex)
+        {
+            // Keep the text and the matches consistent.
+            text.replace(offset, offset + insertedText.length(), removed);
+            throw ex;
+        }
+        return getMatches();
+    }
+
+    /**
+     * @param from the start of the changed chars in the new text.
+     * @param to the end of the changed chars in the new text.
+     * @param delta the difference between the new and the old length.
+     */
+    private List<ReadableMatch> rematch(int from, int to, int delta)
+    {
+        List<ReadableMatch> old = matches;
+        List<ReadableMatch> result = new ArrayList<>(old.size() + 1);
+        // Attempts, which start before this, do not see the changed chars.
+        long unchangedBefore = (long) from - reach;
+        int index = 0;
+        // The position where a sequential search would continue.
+        long position = 0;
+        while(index < old.size() && old.get(index).getStart() < unchangedBefore)
+        {
+            ReadableMatch match = old.get(index++);
+            result.add(match);
+            position = next(match);
+        }
+        // The old search has not found a match, which starts between position and unchangedBefore.
+        position = Math.max(position, unchangedBefore);
+        // Attempts, which start at or after this, do not see the changed chars.
+        long unchangedAfter = (long) to + reach;
+        int length = text.length();
+        Matcher matcher = pattern.getPattern().matcher(pattern.limit(text));
+        matcher.useTransparentBounds(true);
+        matcher.useAnchoringBounds(false);
+        while(position <= length)
+        {
+            if(position >= unchangedAfter)
+            {
+                long oldPosition = position - delta;
+                while(index < old.size() && old.get(index).getStart() < oldPosition)
+                {
+                    index++;
+                }
+                // The old search has searched the next match from the same position or before, so it found the same match.
+                if(index == 0 || next(old.get(index - 1)) <= oldPosition)
+                {
+                    if(delta == 0)
+                    {
+                        result.addAll(old.subList(index, old.size()));
+                    }
+                    else
+                    {
+                        for(int i=index;i<old.size();i++)
+                        {
+                            result.add(old.get(i).move(delta));
+                        }
+                    }
+                    break;
+                }
+            }
+            // Only matches, which start before end, are accepted, so that the region can be limited.
+            long end = position < unchangedAfter ? Math.min(unchangedAfter, length + 1L) : length + 1L;
+            matcher.region((int) position, (int) Math.min(length, end + reach));
+            if(matcher.find() == false || matcher.start() >= end)
+            {
+                position = end;
+                continue;
+            }
+            ReadableMatch match = ReadableMatch.create(matcher, 0);
+            result.add(match);
+            position = next(match);
+        }
+        return result;
+    }
+
+    /**
+     * @return the position, where Matcher.find() continues after the match.
+     */
+    private static long next(ReadableMatch match)
+    {
+        return match.getEnd() == match.getStart() ? match.getEnd() + 1 : match.getEnd();
+    }
+
+    /**
+     * The matches in the current text, in the order of the text.
+     * @return
+     */
+    public List<ReadableMatch> getMatches()
+    {
+        return Collections.unmodifiableList(matches);
+    }
+
+    /**
+     * The current text, with all edits.
+     * @return
+     */
+    public String getText()
+    {
+        return text.toString();
+    }
+
+    public ReadablePattern getPattern()
+    {
+        return pattern;
+    }
+}
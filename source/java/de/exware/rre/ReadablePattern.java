@@ -1,10 +1,36 @@
 package de.exware.rre;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.ref.SoftReference;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -34,8 +60,38 @@ public class ReadablePattern
     public static final String NON_WORD_CHARACTER = "\\W";
     public static final String DIGIT = "\\d";
     public static final String NON_DIGIT = "\\D";
+    /** Texts smaller than this are not searched in parallel. */
+    private static final int PARALLEL_CHUNK_SIZE = 64 * 1024;
+    /** Gets the compile and match times of all Patterns, or null. */
+    private static volatile ReadablePatternListener listener;
+    /** The compiled regex, or null if it is compiled lazily. */
     private Pattern pattern;
+    /** The lazily compiled regex, which may be dropped by the garbage collector, if memory is low. */
+    private volatile SoftReference<Pattern> lazyPattern;
+    private String regex;
+    private int flags;
     private String readableRegex;
+    private String[][] requiredLiterals;
+    private LiteralFilter literalFilter;
+    /** Set if the Pattern consists of nothing else but a large oneOf() with literal texts. */
+    private AhoCorasick keywords;
+    private Set<String> keywordSet;
+    private int maxMatchLength;
+    /** Answers matches() and find() without backtracking, or null if the regex needs java.util.regex. */
+    private LazyDfa dfa;
+    /** true, if the DFA of a lazy Pattern has not been created yet. */
+    private volatile boolean dfaPending;
+    /** Finds the dates of a Pattern, which is nothing else but date(), or null. */
+    private DateScanner dateScanner;
+    /** The number of capturing groups and the indexes of the named groups. */
+    private CaptureGroups groups;
+    /** The time limit of matches(), find() and findAll() in nanoseconds, or 0. */
+    private long timeoutNanos;
+    /** The maximum number of characters, which the Matcher may read in matches(), find() and findAll(), or 0. */
+    private long stepLimit;
+    private volatile List<String> warnings;
+    /** Each thread reuses it's own Matcher, so that matches() and find() do not allocate anything. */
+    private final ThreadLocal<Matcher> matchers = new ThreadLocal<>();
     
     /**
      * Create a ReadablePattern by calling ReadablePattern.compile(pattern) or by using a Builder.
@@ -44,51 +100,196 @@ public class ReadablePattern
     {
     }
     
+    /**
+     * Creates a ReadablePattern from the results of an earlier build(), for example from a ReadableBundle.
+     * Nothing is parsed or analyzed, except the regular expression by Pattern.compile().
+     * @param keywords the texts of a Pattern, which is nothing else but a large oneOf(), or null.
+     * @param lazy true, if the regular expression is compiled on first use. It has been checked by build() before.
+     */
+    static ReadablePattern create(String readableRegex, String regex, int flags, String[][] requiredLiterals, String[] keywords, int maxMatchLength,
+        long timeoutNanos, long stepLimit, boolean lazy)
+    {
+        ReadablePatternListener listener = ReadablePattern.listener;
+        long start = listener == null ? 0 : System.nanoTime();
+        ReadablePattern rpat = new ReadablePattern();
+        rpat.regex = regex;
+        rpat.flags = flags;
+        if(lazy == false)
+        {
+            rpat.pattern = Pattern.compile(regex, flags);
+        }
+        rpat.readableRegex = readableRegex;
+        rpat.requiredLiterals = requiredLiterals;
+        rpat.literalFilter = LiteralFilter.create(requiredLiterals);
+        rpat.maxMatchLength = maxMatchLength;
+        rpat.timeoutNanos = timeoutNanos;
+        rpat.stepLimit = stepLimit;
+        rpat.dfa = lazy ? null : LazyDfa.of(regex, flags);
+        rpat.dfaPending = lazy;
+        rpat.dateScanner = DateScanner.of(regex, flags);
+        rpat.groups = CaptureGroups.of(regex, flags);
+        if(keywords != null)
+        {
+            rpat.keywords = new AhoCorasick(keywords);
+            rpat.keywordSet = new HashSet<>(Arrays.asList(keywords));
+        }
+        if(listener != null)
+        {
+            listener.compiled(rpat, System.nanoTime() - start);
+        }
+        return rpat;
+    }
+    
     /**
      * Used to create an ReadablePattern with an fluent API.
      */
     public static class Builder
     {
         int groupCount;
-        StringBuilder regex = new StringBuilder();
-        StringBuilder remaining;
-        StringBuilder readableRegex = new StringBuilder();
+        /** The groups, which are not closed yet. The first entry contains the elements of the whole expression. */
+        private final List<Frame> frames = new ArrayList<>();
+        private String text;
+        private int position;
+        private int dotIndex = -1;
         int flags = Pattern.MULTILINE;
-        private static Map<String, String> translation = new HashMap<>();
+        /** The language used, if none is given. addLanguage() replaces it with an extended copy. */
+        private static volatile Language defaultLanguage;
+        private final Language language;
         private boolean treatUnknownTokenAsRegex;
         private ReadablePattern rpat = new ReadablePattern();
-        private List<ReadablePatternExtension> extensions;
-        
-        static
-        {
-            translation.put("add", "add");
-            translation.put("addRegEx", "addRegEx");
-            translation.put("addGroup", "addGroup");
-            translation.put("oneOf", "oneOf");
-            translation.put("range", "range");
-            translation.put("count", "count");
-            translation.put("zeroOrMore", "zeroOrMore");
-            translation.put("zeroOrMoreShortest", "zeroOrMoreShortest");
-            translation.put("oneOrMore", "oneOrMore");
-            translation.put("oneOrMoreShortest", "oneOrMoreShortest");
-            translation.put("zeroOrOne", "zeroOrOne");
-            translation.put("lazy", "lazy");
-            translation.put("digit", "digit");
-            translation.put("notDigit", "notDigit");
-            translation.put("alpha", "alpha");
-            translation.put("notAlpha", "notAlpha");
-            translation.put("lineBreak", "lineBreak");
-            translation.put("dot", "dot");
-            translation.put("tab", "tab");
-            translation.put("whitespace", "whitespace");
-            translation.put("capture", "capture");
-            translation.put("captureEnd", "captureEnd");
-            translation.put("anyCharacter", "anyCharacter");
-            translation.put("startOfLine", "startOfLine");
-            translation.put("endOfLine", "endOfLine");
-            translation.put("ignoreCase", "ignoreCase");
-            translation.put("singleLine", "singleLine");
-            translation.put("date", "date");
+        private Map<String, Command> commands;
+        private LiteralTracker literals = new LiteralTracker();
+        /** oneOf() with at least this number of literal texts is written as a trie. */
+        private static final int KEYWORD_TRIE_SIZE = 16;
+        /** The texts of a large oneOf(), that was the first element of the Builder. */
+        private String[] keywords;
+        /** The regex of the large oneOf(). If the regex is different, other elements have been added. */
+        private String keywordsRegex;
+        private boolean optimize = true;
+        private boolean strict;
+        private boolean lazy;
+        /** The time needed to parse the textual representation, if a listener is set. */
+        private long parseNanos;
+        private static final Map<String, Command> BUILTIN_COMMANDS = createBuiltinCommands();
+        
+        /**
+         * Creates the table of all commands which can be used in the textual representation.
+         * The key is the name of the method.
+         */
+        private static Map<String, Command> createBuiltinCommands()
+        {
+            Map<String, Command> commands = new HashMap<>();
+            commands.put("add", (builder, param) -> builder.add(removeParagraph(param)));
+            commands.put("addGroup", (builder, param) -> builder.addGroup(removeParagraph(param)));
+            commands.put("addRegEx", (builder, param) -> builder.addRegEx(removeParagraph(param)));
+            commands.put("oneOf", (builder, param) -> builder.handleOneOf(param));
+            commands.put("range", (builder, param) -> builder.handleRange(param));
+            commands.put("count", (builder, param) -> builder.handleCount(param));
+            commands.put("zeroOrMore", (builder, param) -> builder.zeroOrMore());
+            commands.put("zeroOrMoreShortest", (builder, param) -> builder.zeroOrMoreShortest());
+            commands.put("zeroOrOne", (builder, param) -> builder.zeroOrOne());
+            commands.put("oneOrMore", (builder, param) -> builder.oneOrMore());
+            commands.put("oneOrMoreShortest", (builder, param) -> builder.oneOrMoreShortest());
+            commands.put("lazy", (builder, param) -> builder.lazy());
+            commands.put("digit", (builder, param) -> builder.digit());
+            commands.put("notDigit", (builder, param) -> builder.notDigit());
+            commands.put("alpha", (builder, param) -> builder.alpha());
+            commands.put("notAlpha", (builder, param) -> builder.notAlpha());
+            commands.put("lineBreak", (builder, param) -> builder.lineBreak());
+            commands.put("tab", (builder, param) -> builder.tab());
+            commands.put("dot", (builder, param) -> builder.dot());
+            commands.put("whitespace", (builder, param) -> builder.whitespace());
+            commands.put("capture", (builder, param) -> builder.handleCapture(param));
+            commands.put("captureEnd", (builder, param) -> builder.captureEnd());
+            commands.put("anyCharacter", (builder, param) -> builder.anyCharacter());
+            commands.put("startOfLine", (builder, param) -> builder.startOfLine());
+            commands.put("endOfLine", (builder, param) -> builder.endOfLine());
+            commands.put("ignoreCase", (builder, param) -> builder.ignoreCase(builder.isEmptyOrTrue(param)));
+            commands.put("singleLine", (builder, param) -> builder.singleLine());
+            commands.put("date", (builder, param) -> builder.date());
+            for(ReadablePatternExtension function : loadLibraryFunctions())
+            {
+                commands.putIfAbsent(function.getFunctionName(), (builder, param) -> function.createRegEx(builder, param));
+            }
+            return Collections.unmodifiableMap(commands);
+        }
+        
+        /**
+         * Finds the functions of all ReadableFunctionLibraries, which are registered for the ServiceLoader.
+         * A library, which can not be loaded, is skipped, so that it does not break all other Patterns.
+         */
+        private static List<ReadablePatternExtension> loadLibraryFunctions()
+        {
+            List<ReadablePatternExtension> functions = new ArrayList<>();
+            Iterator<ReadableFunctionLibrary> libraries = ServiceLoader.load(ReadableFunctionLibrary.class).iterator();
+            while(true)
+            {
+                try
+                {
+                    if(libraries.hasNext() == false)
+                    {
+                        break;
+                    }
+                    functions.addAll(libraries.next().getFunctions());
+                }
+                catch(ServiceConfigurationError ex)
+                {
+                    // The library is skipped, see ReadableFunctionLibrary.
+                }
+            }
+            return functions;
+        }
+        
+        /**
+         * Creates the lookup table from every known command name (including the translated names) to the
+         * command which will be executed. Extensions take precedence over the builtin commands with the same name.
+         * A translated name always refers to the command it has been translated to.
+         * @param translation the words of a Language.
+         * @param extensions may be null.
+         */
+        static Map<String, Command> resolveCommands(Map<String, String> translation, List<ReadablePatternExtension> extensions)
+        {
+            Map<String, Command> extensionCommands = new HashMap<>();
+            for(int i=0;extensions != null && i<extensions.size();i++)
+            {
+                ReadablePatternExtension ext = extensions.get(i);
+                extensionCommands.putIfAbsent(ext.getFunctionName(), (builder, param) -> ext.createRegEx(builder, param));
+            }
+            Map<String, Command> commands = new HashMap<>(extensionCommands);
+            for(Map.Entry<String, String> entry : translation.entrySet())
+            {
+                Command command = extensionCommands.get(entry.getValue());
+                if(command == null)
+                {
+                    command = BUILTIN_COMMANDS.get(entry.getValue());
+                }
+                if(command == null)
+                {
+                    commands.remove(entry.getKey());
+                }
+                else
+                {
+                    commands.put(entry.getKey(), command);
+                }
+            }
+            return Collections.unmodifiableMap(commands);
+        }
+        
+        /**
+         * The names of all builtin commands.
+         */
+        static Set<String> getBuiltinCommandNames()
+        {
+            return BUILTIN_COMMANDS.keySet();
+        }
+        
+        /**
+         * The Language, which is used if none is given.
+         */
+        static Language getDefaultLanguage()
+        {
+            Language language = defaultLanguage;
+            return language != null ? language : Language.DEFAULT;
         }
         
         /**
@@ -96,6 +297,8 @@ public class ReadablePattern
          */
         public Builder()
         {
+            language = getDefaultLanguage();
+            frames.add(new Frame(null, false, null));
         }
         
         /**
@@ -113,10 +316,29 @@ public class ReadablePattern
          */
         public Builder(List<ReadablePatternExtension> extensions, String readableRegExp, boolean treatUnknownTokenAsRegex)
         {
-            this.extensions = extensions;
+            this(extensions, readableRegExp, treatUnknownTokenAsRegex, getDefaultLanguage());
+        }
+        
+        /**
+         * Create a new Builder which parses the Expression from Text.
+         * @param readableRegExp the textual representation of the expression.
+         * @param language the vocabulary of the textual representation.
+         */
+        public Builder(List<ReadablePatternExtension> extensions, String readableRegExp, boolean treatUnknownTokenAsRegex, Language language)
+        {
+            long start = listener == null ? 0 : System.nanoTime();
+            this.language = language;
+            frames.add(new Frame(null, false, null));
+            if(extensions == null || extensions.isEmpty())
+            {
+                commands = language.getCommands();
+            }
+            else
+            {
+                commands = resolveCommands(language.getTranslation(), extensions);
+            }
             this.treatUnknownTokenAsRegex = treatUnknownTokenAsRegex;
-            readableRegExp = readableRegExp.replaceAll("(?s)\\)[ \\r\\n\\t]+\\.", ")."); //replace whitespace between methods.
-            remaining = new StringBuilder(readableRegExp);
+            text = readableRegExp;
             String token = nextToken();
             while(token != null)
             {
@@ -137,6 +359,10 @@ public class ReadablePattern
                 }
                 token = nextToken();
             }
+            if(listener != null)
+            {
+                parseNanos = System.nanoTime() - start;
+            }
         }
         
         /**
@@ -154,143 +380,12 @@ public class ReadablePattern
             }
             int ei = token.lastIndexOf(')');            
             String param = token.substring(i+1, ei);
-            if(translation != null)
-            {
-                String command = token.substring(0, i);
-                String ncommand = translation.get(command);
-                if(ncommand != null)
-                {
-                    token = ncommand + "(";
-                }
-            }
-            for(int x=0;extensions != null && x<extensions.size();x++)
-            {
-                ReadablePatternExtension ext = extensions.get(x);
-                if( token.startsWith(ext.getFunctionName()+"("))
-                {
-                    ext.createRegEx(this, param);
-                    return;
-                }
-            }
-            if(token.startsWith("add("))
-            {
-                param = removeParagraph(param);
-                add(param);
-            }
-            else if(token.startsWith("addGroup("))
-            {
-                param = removeParagraph(param);
-                addGroup(param);
-            }
-            else if(token.startsWith("addRegEx("))
-            {
-                param = removeParagraph(param);
-                addRegEx(param);
-            }
-            else if(token.startsWith("oneOf("))
-            {
-                handleOneOf(param);
-            }
-            else if(token.startsWith("range("))
-            {
-                handleRange(param);
-            }
-            else if(token.startsWith("count("))
-            {
-                handleCount(param);
-            }
-            else if(token.startsWith("zeroOrMore("))
-            {
-                zeroOrMore();
-            }
-            else if(token.startsWith("zeroOrMoreShortest("))
-            {
-                zeroOrMoreShortest();
-            }
-            else if(token.startsWith("zeroOrOne("))
-            {
-                zeroOrOne();
-            }
-            else if(token.startsWith("oneOrMore("))
-            {
-                oneOrMore();
-            }
-            else if(token.startsWith("oneOrMoreShortest("))
-            {
-                oneOrMoreShortest();
-            }
-            else if(token.startsWith("lazy("))
-            {
-                lazy();
-            }
-            else if(token.startsWith("digit("))
-            {
-                digit();
-            }
-            else if(token.startsWith("notDigit("))
-            {
-                notDigit();
-            }
-            else if(token.startsWith("alpha("))
-            {
-                alpha();
-            }
-            else if(token.startsWith("notAlpha("))
-            {
-                notAlpha();
-            }
-            else if(token.startsWith("lineBreak("))
-            {
-                lineBreak();
-            }
-            else if(token.startsWith("tab("))
-            {
-                tab();
-            }
-            else if(token.startsWith("dot("))
-            {
-                dot();
-            }
-            else if(token.startsWith("whitespace("))
-            {
-                whitespace();
-            }
-            else if(token.startsWith("capture("))
-            {
-                capture();
-            }
-            else if(token.startsWith("captureEnd("))
-            {
-                captureEnd();
-            }
-            else if(token.startsWith("anyCharacter("))
-            {
-                anyCharacter();
-            }
-            else if(token.startsWith("startOfLine("))
-            {
-                startOfLine();
-            }
-            else if(token.startsWith("endOfLine("))
-            {
-                endOfLine();
-            }
-            else if(token.startsWith("ignoreCase("))
-            {
-                ignoreCase(isEmptyOrTrue(param));
-            }
-            else if(token.startsWith("singleLine("))
-            {
-                singleLine();
-            }
-            else if(token.startsWith("date("))
-            {
-                date();
-            }
-            else
+            Command command = commands.get(token.substring(0, i));
+            if(command == null)
             {
                 throw new IllegalArgumentException("Unknown token: " + token);
             }
+            command.execute(this, param);
         }
 
         /**
@@ -404,43 +499,32 @@ public class ReadablePattern
          */
         public Builder count(int from, int to)
         {
-            _appendRRE(".count(");
-            _appendRRE(from);
-            _appendRRE(",");
-            _appendRRE(to);
-            _appendRRE(")");
-            _add("{" + from);
-            _add("," +to);
-            _add("}");
+            _quantify("{" + from + "," + to + "}", from, to, ".count(" + from + "," + to + ")");
+            literals.quantifier(from == 0);
             return this;
         }
         
         /**
          * Adds some language specific key Words to the Parser. All of the defaults will work like before.
+         * The words are added to the default Language, which is used if no Language is given. Patterns compiled
+         * with an explicit Language, like compile(text, Language.german()), are not affected.
          * @param langMappings Each pair consists of the language specific command and the original command.
          * For example for german there may be an entry "einsVon" - "oneOf". So you could write einsVon(a,b,c)
          */
-        public static void addLanguage(Map<String, String> langMappings)
+        public static synchronized void addLanguage(Map<String, String> langMappings)
         {
-            if(translation == null)
-            {
-                translation = new HashMap<>();
-            }
-            translation.putAll(langMappings);
+            defaultLanguage = getDefaultLanguage().extend(langMappings);
         }
         
         /**
          * Adds some language specific key Words to the Parser. All of the defaults will work like before.
+         * The words are added to the default Language, which is used if no Language is given.
          * @param langMappings Each pair consists of the language specific command and the original command.
          * For example for german there may be an entry "einsVon" - "oneOf". So you could write einsVon(a,b,c)
          */
-        public static void addLanguage(Properties langMappings)
+        public static synchronized void addLanguage(Properties langMappings)
         {
-            if(translation == null)
-            {
-                translation = new HashMap<>();
-            }
-            translation.putAll(new HashMap(langMappings));
+            defaultLanguage = getDefaultLanguage().extend(langMappings);
         }
         
         /**
@@ -450,11 +534,8 @@ public class ReadablePattern
          */
         public Builder count(int count)
         {
-            _appendRRE(".count(");
-            _appendRRE(count);
-            _appendRRE(")");
-            _add("{" + count);
-            _add("}");
+            _quantify("{" + count + "}", count, count, ".count(" + count + ")");
+            literals.quantifier(count == 0);
             return this;
         }
         
@@ -466,9 +547,7 @@ public class ReadablePattern
          */
         public Builder ignoreCase(boolean ignoreCase)
         {
-            _appendRRE(".ignoreCase(");
-            _appendRRE(ignoreCase);
-            _appendRRE(")");
+            _add(new Node.Raw("", ".ignoreCase(" + ignoreCase + ")"));
             if(ignoreCase)
             {
                 flags = flags | Pattern.CASE_INSENSITIVE;
@@ -488,8 +567,7 @@ public class ReadablePattern
          */
         public Builder singleLine()
         {
-            _appendRRE(".singleLine(");
-            _appendRRE(")");
+            _add(new Node.Raw("", ".singleLine()"));
             flags = flags | Pattern.DOTALL;
             flags = flags & ~Pattern.MULTILINE;
             return this;
@@ -502,8 +580,8 @@ public class ReadablePattern
          */
         public Builder date()
         {
-            _appendRRE(".date()");
-            _add("(?:(?:(?<=\\s)\\d{4}\\-[01]{0,1}[0-9]-[0-3]{0,1}[0-9](?=\\s))|(?:(?<=\\s)[0-3]{0,1}[0-9]/[01]{0,1}[0-9]/\\d{4}(?=\\s))|(?:(?<=\\s)[0-3]{0,1}[0-9]\\.[01]{0,1}[0-9]\\.\\d{4}(?=\\s))|(?:(?<=\\s)[0-3]{0,1}[0-9]\\. (?:Jan|Feb|Mar|Apr|May|Mai|Jun|Jul|Aug|Sep|Oct|Okt|Nov|Dec|Dez){1}\\. \\d{4}(?=\\s)))");
+            literals.atom();
+            _add(new Node.Raw(DateScanner.REGEX, ".date()"));
             return this;
         }
         
@@ -513,8 +591,8 @@ public class ReadablePattern
          */
         public Builder addRegEx(String plainRegEx)
         {
-            addRRE(".addRegEx(", plainRegEx);
-            _add(plainRegEx);
+            _add(new Node.Raw(plainRegEx, ".addRegEx('" + plainRegEx + "')"));
+            literals.raw(plainRegEx);
             return this;
         }
         
@@ -526,9 +604,8 @@ public class ReadablePattern
          */
         public Builder add(String text)
         {
-            addRRE(".add(", text);
-            text = text.replaceAll("\\W", "\\\\$0");
-            _add(text);
+            _add(new Node.Literal(text, ".add('" + text + "')"));
+            literals.literal(text, true);
             return this;
         }
         
@@ -542,11 +619,9 @@ public class ReadablePattern
          */
         public Builder addGroup(String text)
         {
-            addRRE(".addGroup(", text);
-            text = text.replaceAll("\\W", "\\\\$0");
-            _add("(?:");
-            _add(text);
-            _add(")");
+            Node.Sequence content = new Node.Sequence(Collections.<Node>singletonList(new Node.Literal(text, "")));
+            _add(new Node.Group(content, ".addGroup('" + text + "')", "", true, false));
+            literals.literal(text, false);
             return this;
         }
         
@@ -561,81 +636,76 @@ public class ReadablePattern
             return add(String.valueOf(text));
         }
         
-        /**
-         * helper method.
-         * @param command
-         * @param text
-         */
-        private void addRRE(String command, String text)
-        {
-            _appendRRE(command);
-            _appendRRE('\'');
-            _appendRRE(text);
-            _appendRRE('\'');
-            _appendRRE(")");
-        }
-        
-        /**
-         * helper method to make other methods simpler and more readable.
-         * @param text
-         */
-        private void _appendRRE(String text)
-        {
-            readableRegex.append(text);
-        }
-        
         /**
          * helper method to make other methods simpler and more readable.
-         * @param text
+         * Adds the node to the innermost open group.
+         * @param node
          */
-        private void _appendRRE(char c)
+        private void _add(Node node)
         {
-            readableRegex.append(c);
+            current().nodes.add(node);
         }
         
-        /**
-         * helper method to make other methods simpler and more readable.
-         * @param text
-         */
-        private void _appendRRE(int c)
+        private Frame current()
         {
-            readableRegex.append(c);
+            return frames.get(frames.size() - 1);
         }
         
         /**
-         * helper method to make other methods simpler and more readable.
-         * @param text
+         * helper method which attaches a quantifier to the previous element. After add(text)
+         * the quantifier only applies to the last character of the text.
+         * @param syntax the quantifier in the regex, like * or {2,5}
          */
-        private void _appendRRE(boolean c)
+        private void _quantify(String syntax, int min, int max, String readable)
         {
-            readableRegex.append(c);
+            List<Node> nodes = current().nodes;
+            Node element = nodes.isEmpty() ? null : nodes.remove(nodes.size() - 1);
+            if(element instanceof Node.Literal && ((Node.Literal) element).length() > 1)
+            {
+                Node.Literal literal = (Node.Literal) element;
+                nodes.add(literal.head());
+                element = literal.last();
+            }
+            nodes.add(new Node.Quantifier(element, syntax, min, max, syntax.endsWith("?") && syntax.length() > 1, readable));
         }
         
         /**
-         * helper method to make other methods simpler and more readable.
-         * @param text
+         * Ends the innermost group.
          */
-        private void _add(String plainRegEx)
+        private void closeGroup(String readable)
         {
-            regex.append(plainRegEx);
+            if(frames.size() == 1)
+            {
+                // There's no open group, so the regex is invalid.
+                _add(new Node.Raw(")", readable));
+                return;
+            }
+            Frame frame = frames.remove(frames.size() - 1);
+            _add(frame.toNode(frame.nodes, readable, true));
         }
         
         /**
-         * helper method to make other methods simpler and more readable.
-         * @param text
+         * Returns the expression tree of the elements, which have been added so far. Groups which
+         * are not closed yet are contained without their end.
          */
-        private void _add(int index, String plainRegEx)
+        Node.Sequence tree()
         {
-            regex.insert(index, plainRegEx);
+            Node group = null;
+            for(int i=frames.size()-1;i>0;i--)
+            {
+                group = frames.get(i).toNode(nodes(i, group), "", false);
+            }
+            return new Node.Sequence(nodes(0, group));
         }
         
-        /**
-         * helper method to make other methods simpler and more readable.
-         * @param text
-         */
-        private void _add(char plainRegEx)
+        private List<Node> nodes(int frame, Node openGroup)
         {
-            regex.append(plainRegEx);
+            List<Node> nodes = new ArrayList<>(frames.get(frame).nodes);
+            if(openGroup != null)
+            {
+                nodes.add(openGroup);
+            }
+            return nodes;
         }
         
         /**
@@ -643,8 +713,8 @@ public class ReadablePattern
          */
         public Builder digit()
         {
-            _appendRRE(".digit()");
-            _add("\\d");
+            literals.atom();
+            _add(new Node.CharClass("\\d", ".digit()"));
             return this;
         }
         
@@ -653,8 +723,8 @@ public class ReadablePattern
          */
         public Builder tab()
         {
-            _appendRRE(".tab()");
-            _add(TAB_CHARACTER);
+            literals.atom();
+            _add(new Node.CharClass(TAB_CHARACTER, ".tab()"));
             return this;
         }
         
@@ -663,8 +733,8 @@ public class ReadablePattern
          */
         public Builder dot()
         {
-            _appendRRE(".dot()");
-            _add(DOT_CHARACTER);
+            literals.atom();
+            _add(new Node.CharClass(DOT_CHARACTER, ".dot()"));
             return this;
         }
         
@@ -673,8 +743,8 @@ public class ReadablePattern
          */
         public Builder whitespace()
         {
-            _appendRRE(".whitespace()");
-            _add(WHITESPACE_CHARACTER);
+            literals.atom();
+            _add(new Node.CharClass(WHITESPACE_CHARACTER, ".whitespace()"));
             return this;
         }
         
@@ -683,8 +753,8 @@ public class ReadablePattern
          */
         public Builder lineBreak()
         {
-            _appendRRE(".lineBreak()");
-            _add("(?:\\r|\\r\\n|\\n)");
+            literals.atom();
+            _add(new Node.Raw("(?:\\r|\\r\\n|\\n)", ".lineBreak()"));
             return this;
         }
         
@@ -693,8 +763,8 @@ public class ReadablePattern
          */
         public Builder notDigit()
         {
-            _appendRRE(".notDigit()");
-            _add("\\D");
+            literals.atom();
+            _add(new Node.CharClass("\\D", ".notDigit()"));
             return this;
         }
         
@@ -704,8 +774,8 @@ public class ReadablePattern
          */
         public Builder zeroOrMore()
         {
-            _appendRRE(".zeroOrMore()");
-            _add("*");
+            _quantify("*", 0, Node.Quantifier.UNBOUNDED, ".zeroOrMore()");
+            literals.quantifier(true);
             return this;
         }
 
@@ -715,8 +785,8 @@ public class ReadablePattern
          */
         public Builder zeroOrMoreShortest()
         {
-            _appendRRE(".zeroOrMoreShortest()");
-            _add("*?");
+            _quantify("*?", 0, Node.Quantifier.UNBOUNDED, ".zeroOrMoreShortest()");
+            literals.quantifier(true);
             return this;
         }
 
@@ -726,8 +796,17 @@ public class ReadablePattern
          */
         public Builder lazy()
         {
-            _appendRRE(".lazy()");
-            _add("?");
+            List<Node> nodes = current().nodes;
+            Node last = nodes.isEmpty() ? null : nodes.get(nodes.size() - 1);
+            if(last instanceof Node.Quantifier && ((Node.Quantifier) last).isLazy() == false)
+            {
+                nodes.set(nodes.size() - 1, ((Node.Quantifier) last).toLazy(".lazy()"));
+            }
+            else
+            {
+                _quantify("?", 0, 1, ".lazy()");
+            }
+            literals.lazy();
             return this;
         }
 
@@ -737,8 +816,8 @@ public class ReadablePattern
          */
         public Builder zeroOrOne()
         {
-            _appendRRE(".zeroOrOne()");
-            _add("?");
+            _quantify("?", 0, 1, ".zeroOrOne()");
+            literals.quantifier(true);
             return this;
         }
         
@@ -754,23 +833,20 @@ public class ReadablePattern
             {
                 throw new IllegalArgumentException("Parameter count must always be a multiple of 2");
             }
-            _appendRRE(".range(");
-            _add('[');
+            literals.atom();
+            StringBuilder readable = new StringBuilder(".range(");
+            String[] members = new String[chars.length / 2];
             for(int i=0;i<chars.length;i+=2)
             {
                 if(i>0)
                 {
-                    _appendRRE(",");  
+                    readable.append(",");  
                 }
-                _appendRRE(chars[i]);
-                _appendRRE(",");
-                _appendRRE(chars[i+1]);
-                _add(chars[i]);
-                _add("-");
-                _add(chars[i+1]);
-            }
-            _appendRRE(")");
-            _add(']');
+                readable.append(chars[i]).append(",").append(chars[i+1]);
+                members[i / 2] = chars[i] + "-" + chars[i+1];
+            }
+            readable.append(")");
+            _add(new Node.CharClass(members, true, readable.toString()));
             return this;
         }
         
@@ -780,8 +856,8 @@ public class ReadablePattern
          */
         public Builder oneOrMore()
         {
-            _appendRRE(".oneOrMore()");
-            _add("+");
+            _quantify("+", 1, Node.Quantifier.UNBOUNDED, ".oneOrMore()");
+            literals.quantifier(false);
             return this;
         }
         
@@ -791,8 +867,8 @@ public class ReadablePattern
          */
         public Builder oneOrMoreShortest()
         {
-            _appendRRE(".oneOrMoreShortest()");
-            _add("+?");
+            _quantify("+?", 1, Node.Quantifier.UNBOUNDED, ".oneOrMoreShortest()");
+            literals.quantifier(false);
             return this;
         }
         
@@ -803,8 +879,7 @@ public class ReadablePattern
         public Builder startOfLine()
         {
             groupCount++;
-            readableRegex.insert(0, ".startOfLine()");
-            _add(0, "^");
+            frames.get(0).nodes.add(0, new Node.Anchor("^", ".startOfLine()"));
             return this;
         }
         
@@ -815,8 +890,8 @@ public class ReadablePattern
         public Builder endOfLine()
         {
             groupCount++;
-            _appendRRE(".endOfLine()");
-            _add("$");
+            literals.atom();
+            _add(new Node.Anchor("$", ".endOfLine()"));
             return this;
         }
         
@@ -826,19 +901,50 @@ public class ReadablePattern
         public Builder capture()
         {
             groupCount++;
-            _appendRRE(".capture()");
-            _add("(");
+            frames.add(new Frame(".capture()", true, null));
+            literals.openGroup();
+            return this;
+        }
+        
+        /**
+         * Start of a named capturing group. The index of the group is looked up once by build(),
+         * see getGroupIndex(name).
+         * @param name ASCII letters and digits, starting with a letter.
+         * @return
+         */
+        public Builder capture(String name)
+        {
+            if(CaptureGroups.isValidName(name) == false)
+            {
+                throw new IllegalArgumentException("Invalid group name: " + name);
+            }
+            groupCount++;
+            frames.add(new Frame(".capture('" + name + "')", true, name));
+            literals.openGroup();
             return this;
         }
         
+        private void handleCapture(String param)
+        {
+            String name = removeParagraph(param);
+            if(name.isEmpty())
+            {
+                capture();
+            }
+            else
+            {
+                capture(name);
+            }
+        }
+        
         /**
          * Start of a non capturing group. Use capture() for capturing groups.
          */
         public Builder group()
         {
             groupCount++;
-            _appendRRE(".group()");
-            _add("(?:");
+            frames.add(new Frame(".group()", false, null));
+            literals.openGroup();
             return this;
         }
         
@@ -853,8 +959,8 @@ public class ReadablePattern
                 throw new IllegalStateException("captureEnd without capture");
             }
             groupCount--;
-            _appendRRE(".captureEnd()");
-            _add(")");
+            closeGroup(".captureEnd()");
+            literals.closeGroup();
             return this;
         }
         
@@ -869,8 +975,8 @@ public class ReadablePattern
                 throw new IllegalStateException("groupEnd without group");
             }
             groupCount--;
-            _appendRRE(".groupEnd()");
-            _add(")");
+            closeGroup(".groupEnd()");
+            literals.closeGroup();
             return this;
         }
         
@@ -879,8 +985,8 @@ public class ReadablePattern
          */
         public Builder alpha()
         {
-            _appendRRE(".alpha()");
-            _add("\\w");
+            literals.atom();
+            _add(new Node.CharClass("\\w", ".alpha()"));
             return this;
         }
         
@@ -889,8 +995,8 @@ public class ReadablePattern
          */
         public Builder notAlpha()
         {
-            _appendRRE(".notAlpha()");
-            _add("\\W");
+            literals.atom();
+            _add(new Node.CharClass("\\W", ".notAlpha()"));
             return this;
         }
         
@@ -900,8 +1006,8 @@ public class ReadablePattern
          */
         public Builder anyCharacter()
         {
-            _appendRRE(".anyCharacter()");
-            _add(".");
+            literals.atom();
+            _add(new Node.CharClass(Node.CharClass.ANY, ".anyCharacter()"));
             return this;
         }
         
@@ -913,22 +1019,12 @@ public class ReadablePattern
          */
         public Builder oneOf(char ... param)
         {
-            _add("[");
-            _appendRRE(".oneOf(");
+            String[] members = new String[param.length];
             for(int i=0;i<param.length;i++)
             {
-                if(i>0)
-                {
-                    _appendRRE(","); 
-                }
-                _appendRRE("\"");
-                _add(param[i]);
-                _appendRRE(param[i]);
-                _appendRRE("\"");
+                members[i] = String.valueOf(param[i]);
             }
-            _add("]");
-            _appendRRE(")");
-            return this;
+            return _oneOf(members);
         }
 
         /**
@@ -939,27 +1035,26 @@ public class ReadablePattern
          */
         private Builder _oneOf(String ... param)
         {
-            _add("[");
-            _appendRRE(".oneOf(");
+            literals.atom();
+            StringBuilder readable = new StringBuilder(".oneOf(");
             for(int i=0;i<param.length;i++)
             {
                 if(i>0)
                 {
-                    _appendRRE(","); 
+                    readable.append(","); 
                 }
-                _appendRRE("\"");
-                _add(param[i]);
-                _appendRRE(param[i]);
-                _appendRRE("\"");
+                readable.append("\"").append(param[i]).append("\"");
             }
-            _add("]");
-            _appendRRE(")");
+            readable.append(")");
+            _add(new Node.CharClass(param, true, readable.toString()));
             return this;
         }
 
         /**
          * Match one of the Strings given in param.
          * oneOf('abc','fgh','xyz') is like (?:(?:abc)|(?:fgh)|(?:xyz))
+         * <BR>Large lists of plain texts are written as a trie, for example (?:ab[cd]|xyz), so that the time
+         * for matching does not grow with the number of texts.
          * @param param
          * @return
          */
@@ -981,118 +1076,329 @@ public class ReadablePattern
             }
             else
             {
-                _add("(?:");
-                _appendRRE(".oneOf(");
+                for(int i=0;i<param.length;i++)
+                {
+                    literals.checkBalanced(param[i]);
+                }
+                literals.alternatives(param);
+                String trie = keywordTrie(param);
+                if(trie != null && regexIsEmpty())
+                {
+                    keywords = param.clone();
+                    keywordsRegex = trie;
+                }
+                StringBuilder readable = new StringBuilder(".oneOf(");
                 for(int i=0;i<param.length;i++)
                 {
                     if(i>0)
                     {
-                        _appendRRE(",");    
-                        _add("|");
-                    }
-                    if(param[i].length() > 1)
-                    {
-                        _add("(?:");
-                        _add(param[i]);
-                        _add(")");
-                    }
-                    else
-                    {
-                        _add(param[i]);
+                        readable.append(",");    
                     }
-                    _appendRRE(param[i]);
+                    readable.append(param[i]);
                 }
-                _add(")");
-                _appendRRE(")");
+                readable.append(")");
+                _add(new Node.Alternation(param, trie, readable.toString()));
             }
             return this;
         }
 
         /**
-         * get next token from text representation
-         * @return
+         * @return the trie regex for a large list of plain texts, or null if the list should be written as a normal alternation.
          */
-        private String nextToken()
+        private static String keywordTrie(String[] param)
         {
-            String token = null;
-            int index = remaining.indexOf(".");
-            if(index > 0)
-            {
-                int index2 = remaining.indexOf("(");
-                if(index2 < index)
-                {
-                    String cmd = remaining.substring(0, index2);
-                    if(translation.containsKey(cmd))
-                    {
-                        int braceIndex = findClosingBrace(index2+1);
-                        token = remaining.substring(0, braceIndex).trim();
-                        remaining.delete(0, braceIndex+1);
-                    }
-                    else
-                    {
-                        token = remaining.substring(0, index).trim();
-                        remaining.delete(0, index+1);
-                    }
-                }
-                else
-                {
-                    token = remaining.substring(0, index).trim();
-                    remaining.delete(0, index+1);
-                }
-            }
-            else if((index = remaining.indexOf(".")) > 0)
+            if(param.length < KEYWORD_TRIE_SIZE)
             {
-                token = remaining.substring(0, index).trim();
-                remaining.delete(0, index+1);
+                return null;
             }
-            else if(remaining.length() > 0)
+            for(int i=0;i<param.length;i++)
             {
-                token = remaining.toString().trim();
-                remaining.setLength(0);
+                if(LiteralTracker.isLiteral(param[i]) == false)
+                {
+                    return null;
+                }
             }
-            return token;
+            return KeywordTrie.toRegex(param);
         }
 
-        private int findClosingBrace(int i)
+        /**
+         * true, if nothing has been added to the regex so far.
+         */
+        private boolean regexIsEmpty()
         {
-            int openingCount = 1;
-            boolean escape = false;
-            while(i < remaining.length() && openingCount > 0)
+            List<Node> nodes = frames.get(0).nodes;
+            for(int i=0;i<nodes.size();i++)
             {
-                char c = remaining.charAt(i);
-                if(c == '(' && escape == false)
+                if(nodes.get(i).isEmpty() == false)
                 {
-                    openingCount++;
-                }
-                if(c == ')' && escape == false)
-                {
-                    openingCount--;
+                    return false;
                 }
-                escape = c == '\\';
-                i++;
             }
-            return i;
+            return frames.size() == 1;
         }
 
         /**
-         * Create the ReadablePattern of this Builder.
+         * get next token from text representation.
+         * The text is read in a single pass. position always points to the first character
+         * which has not been consumed yet.
          * @return
          */
-        public ReadablePattern build()
+        private String nextToken()
         {
-            rpat.pattern = Pattern.compile(regex.toString(), flags);
-            rpat.readableRegex = readableRegex.toString();
-            return rpat;
-        }
-        
-        /**
-         * Add the Contents of the given Builder to this Builder.
+            int length = text.length();
+            if(position >= length)
+            {
+                return null;
+            }
+            if(dotIndex < position)
+            {
+                dotIndex = text.indexOf('.', position);
+                if(dotIndex < 0)
+                {
+                    dotIndex = length;
+                }
+            }
+            String token;
+            if(dotIndex > position && dotIndex < length)
+            {
+                int braceIndex = indexOf('(', position, dotIndex);
+                if(braceIndex >= 0 && language.getTranslation().containsKey(text.substring(position, braceIndex)))
+                {
+                    int closingIndex = findClosingBrace(braceIndex+1);
+                    token = text.substring(position, closingIndex).trim();
+                    position = skipMethodSeparator(closingIndex) + 1;
+                }
+                else
+                {
+                    token = text.substring(position, dotIndex).trim();
+                    position = dotIndex + 1;
+                }
+            }
+            else
+            {
+                token = text.substring(position).trim();
+                position = length;
+            }
+            return token;
+        }
+
+        /**
+         * Search a character between from (inclusive) and to (exclusive).
+         * @return the index or -1 if not found.
+         */
+        private int indexOf(char c, int from, int to)
+        {
+            for(int i=from;i<to;i++)
+            {
+                if(text.charAt(i) == c)
+                {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Whitespace between the closing brace of a method and the dot of the next method is ignored.
+         * @param i the index after the closing brace.
+         * @return the index of the dot, if there's only whitespace between the brace and the dot. Otherwise i.
+         */
+        private int skipMethodSeparator(int i)
+        {
+            if(i == 0 || i >= text.length() || text.charAt(i-1) != ')')
+            {
+                return i;
+            }
+            int x = i;
+            while(x < text.length() && isMethodSeparator(text.charAt(x)))
+            {
+                x++;
+            }
+            if(x > i && x < text.length() && text.charAt(x) == '.')
+            {
+                return x;
+            }
+            return i;
+        }
+        
+        private static boolean isMethodSeparator(char c)
+        {
+            return c == ' ' || c == '\r' || c == '\n' || c == '\t';
+        }
+
+        private int findClosingBrace(int i)
+        {
+            int openingCount = 1;
+            boolean escape = false;
+            while(i < text.length() && openingCount > 0)
+            {
+                char c = text.charAt(i);
+                if(c == '(' && escape == false)
+                {
+                    openingCount++;
+                }
+                if(c == ')' && escape == false)
+                {
+                    openingCount--;
+                }
+                escape = c == '\\';
+                i++;
+            }
+            return i;
+        }
+
+        /**
+         * Create the ReadablePattern of this Builder.
+         * @return
+         */
+        public ReadablePattern build()
+        {
+            ReadablePatternListener listener = ReadablePattern.listener;
+            long start = listener == null ? 0 : System.nanoTime();
+            Node.Sequence tree = tree();
+            String regex = tree.toRegex();
+            String optimizedRegex = optimize ? Optimizer.optimize(tree).toRegex() : regex;
+            // The Builder returns the same Pattern on each call, so nothing of an earlier build may be kept.
+            rpat.keywords = null;
+            rpat.keywordSet = null;
+            rpat.pattern = null;
+            rpat.dfa = null;
+            rpat.dfaPending = false;
+            rpat.lazyPattern = null;
+            rpat.warnings = null;
+            rpat.regex = optimizedRegex;
+            rpat.flags = flags;
+            rpat.readableRegex = tree.toReadable();
+            if((flags & Pattern.CASE_INSENSITIVE) == 0)
+            {
+                rpat.requiredLiterals = literals.getRequiredLiterals();
+            }
+            else
+            {
+                rpat.requiredLiterals = new String[0][];
+            }
+            rpat.literalFilter = LiteralFilter.create(rpat.requiredLiterals);
+            rpat.maxMatchLength = MaxMatchLength.of(optimizedRegex);
+            rpat.dateScanner = DateScanner.of(optimizedRegex, flags);
+            rpat.groups = CaptureGroups.of(optimizedRegex, flags);
+            if(lazy == false)
+            {
+                rpat.dfa = LazyDfa.of(optimizedRegex, flags);
+                rpat.pattern = Pattern.compile(optimizedRegex, flags);
+            }
+            else
+            {
+                rpat.dfaPending = true;
+                if(rpat.dateScanner == null && RegexParser.parse(optimizedRegex, flags, false) == null)
+                {
+                    // The parser only accepts valid regular expressions. Others are compiled to check their syntax, but only kept softly.
+                    rpat.lazyPattern = new SoftReference<>(Pattern.compile(optimizedRegex, flags));
+                }
+            }
+            if(strict && rpat.getWarnings().isEmpty() == false)
+            {
+                throw new IllegalArgumentException(rpat.getWarnings().get(0));
+            }
+            if(keywords != null && regex.equals(keywordsRegex) && (flags & Pattern.CASE_INSENSITIVE) == 0)
+            {
+                rpat.keywords = new AhoCorasick(keywords);
+                rpat.keywordSet = new HashSet<>(Arrays.asList(keywords));
+            }
+            if(listener != null)
+            {
+                listener.compiled(rpat, parseNanos + System.nanoTime() - start);
+            }
+            return rpat;
+        }
+        
+        /**
+         * Switches the optimization of the regular expression on or off. It is on by default.
+         * The optimized regex matches the same texts with the same groups, but it is written in a shorter form,
+         * for example (?:ab[cd]) instead of (?:(?:abc)|(?:abd)). See getRegex().
+         * @return
+         */
+        public Builder setOptimize(boolean optimize)
+        {
+            this.optimize = optimize;
+            return this;
+        }
+        
+        /**
+         * Lets build() leave the compilation of the regular expression and the creation of the DFA to their first use.
+         * The compiled regex is only kept softly, so the garbage collector may drop it again, if memory is low.
+         * This is meant for large sets of rules, of which most are rarely used. The syntax is still checked by build(),
+         * by compiling the regex only if it can't be parsed for the DFA.
+         * Matches, which need java.util.regex, use a new Matcher for each call.
+         * @return
+         */
+        public Builder setLazy(boolean lazy)
+        {
+            this.lazy = lazy;
+            return this;
+        }
+        
+        /**
+         * Lets build() throw an IllegalArgumentException, if the regular expression may backtrack exponentially
+         * or with a high polynomial degree. See getWarnings().
+         * @return
+         */
+        public Builder setStrict(boolean strict)
+        {
+            this.strict = strict;
+            return this;
+        }
+        
+        /**
+         * Limits the time of each call of matches(), find() and findAll(). A call, which takes longer, throws a
+         * ReadablePatternTimeoutException. The time is checked while the Matcher reads the text, so the call
+         * may take a bit longer than the limit. Patterns, which are matched by a DFA, need linear time and are not limited.
+         * @param millis the time limit in milliseconds, or 0 for no limit.
+         * @return
+         */
+        public Builder setMatchTimeout(long millis)
+        {
+            rpat.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+            return this;
+        }
+        
+        /**
+         * Limits the work of each call of matches(), find() and findAll() to the given number of character reads.
+         * Unlike a time limit, this gives the same result on fast and slow machines. A call, which needs more steps,
+         * throws a ReadablePatternTimeoutException. Patterns, which are matched by a DFA, are not limited.
+         * @param steps the maximum number of reads, or 0 for no limit. Each character of the text is read at least
+         * once, and again each time the Matcher backtracks over it.
+         * @return
+         */
+        public Builder setMatchStepLimit(long steps)
+        {
+            rpat.stepLimit = steps;
+            return this;
+        }
+        
+        /**
+         * Add a function, which has been created once, like StandardFunctions.IBAN.
+         * @param function
+         * @return
+         */
+        public Builder add(ReadableFunction function)
+        {
+            literals.atom();
+            _add(function.getNode());
+            return this;
+        }
+        
+        /**
+         * Add the Contents of the given Builder to this Builder.
          * @param builder
          * @return
          */
         public Builder add(Builder builder)
         {
-            addRegEx("(?:" + builder.regex.toString() + ")");
+            Node.Sequence content = builder.tree();
+            String plainRegEx = "(?:" + content.toRegex() + ")";
+            _add(new Node.Group(content, ".addRegEx('" + plainRegEx + "')", "", true, false));
+            literals.raw(plainRegEx);
+            literals.embed(builder.literals.getRequiredLiterals());
             return this;
         }
         
@@ -1104,6 +1410,36 @@ public class ReadablePattern
         {
             return new Builder();
         }
+        
+        /**
+         * A group, which is not closed yet.
+         */
+        private static class Frame
+        {
+            /** The call which opened the group. null for the whole expression. */
+            private final String readable;
+            private final boolean capturing;
+            /** The name of a capturing group, or null. */
+            private final String name;
+            private final List<Node> nodes = new ArrayList<>();
+            
+            Frame(String readable, boolean capturing, String name)
+            {
+                this.readable = readable;
+                this.capturing = capturing;
+                this.name = name;
+            }
+            
+            Node toNode(List<Node> content, String closeReadable, boolean closed)
+            {
+                Node.Sequence sequence = new Node.Sequence(content);
+                if(capturing)
+                {
+                    return new Node.Capture(sequence, readable, closeReadable, closed, name);
+                }
+                return new Node.Group(sequence, readable, closeReadable, closed, true);
+            }
+        }
     }
     
     /**
@@ -1146,6 +1482,31 @@ public class ReadablePattern
     {
         return compile(readableRegex, false);
     }
+    
+    /**
+     * Create a ReadablePattern from Text representation in the given Language.
+     * @param readableRegex
+     * @param language the vocabulary of the text. For example Language.german() allows to write datum() instead of date().
+     * @return
+     */
+    public static ReadablePattern compile(String readableRegex, Language language)
+    {
+        return compile(null, readableRegex, false, language);
+    }
+    
+    /**
+     * Create a ReadablePattern from Text representation in the given Language.
+     * @param extensions
+     * @param readableRegex
+     * @param treatUnknownTokenAsRegex
+     * @param language the vocabulary of the text.
+     * @return
+     */
+    public static ReadablePattern compile(List<ReadablePatternExtension> extensions, String readableRegex, boolean treatUnknownTokenAsRegex, Language language)
+    {
+        Builder builder = new Builder(extensions, readableRegex, treatUnknownTokenAsRegex, language);
+        return builder.build();
+    }
 
     /**
      * Return a Matcher for this ReadablePattern.
@@ -1154,33 +1515,716 @@ public class ReadablePattern
      */
     public Matcher matcher(String text)
     {
-        return pattern.matcher(text);
+        return getPattern().matcher(text);
+    }
+
+    /**
+     * Return a Matcher for this ReadablePattern. The Matcher can be reused for other texts by calling
+     * Matcher.reset(text), which avoids to create a new Matcher for each text.
+     * @param text
+     * @return
+     */
+    public Matcher matcher(CharSequence text)
+    {
+        return getPattern().matcher(text);
+    }
+
+    /**
+     * Return a ReadableMatchSession, which keeps the matches of this Pattern in a text, while the text is edited.
+     * After each edit only the region around the edit is searched again.
+     * @param text
+     * @return
+     */
+    public ReadableMatchSession matchSession(CharSequence text)
+    {
+        return new ReadableMatchSession(this, text);
+    }
+
+    /**
+     * Return a ReadableStreamMatcher, which finds the matches of this Pattern in the text of the Reader
+     * without loading the whole text into memory.
+     * @param reader
+     * @return
+     */
+    public ReadableStreamMatcher streamMatcher(Reader reader)
+    {
+        return new ReadableStreamMatcher(this, reader);
+    }
+
+    /**
+     * Return a ReadableStreamMatcher for the text of an InputStream.
+     * Malformed input is replaced by the replacement character of the charset.
+     * @param in
+     * @param charset
+     * @return
+     */
+    public ReadableStreamMatcher streamMatcher(InputStream in, Charset charset)
+    {
+        return streamMatcher(new InputStreamReader(in, charset));
+    }
+
+    /**
+     * Return a ReadableStreamMatcher for the text of a Channel, for example a FileChannel.
+     * Malformed input is replaced by the replacement character of the charset.
+     * @param channel
+     * @param charset
+     * @return
+     */
+    public ReadableStreamMatcher streamMatcher(ReadableByteChannel channel, Charset charset)
+    {
+        CharsetDecoder decoder = charset.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        return streamMatcher(Channels.newReader(channel, decoder, -1));
     }
 
     /**
      * Shortcut for matcher(text).matches()
+     * Texts that do not contain the literals required by this Pattern are rejected without using the Matcher.
      * @param text
      * @return
      */
     public boolean matches(String text)
     {
-        return matcher(text).matches();
+        return matches((CharSequence) text);
+    }
+    
+    /**
+     * Shortcut for matcher(text).matches(), but without creating a new Matcher.
+     * Texts that do not contain the literals required by this Pattern are rejected without using the Matcher.
+     * @param text
+     * @return
+     */
+    public boolean matches(CharSequence text)
+    {
+        ReadablePatternListener listener = ReadablePattern.listener;
+        if(listener == null)
+        {
+            return matchesUnmeasured(text);
+        }
+        long start = System.nanoTime();
+        boolean found = false;
+        try
+        {
+            found = matchesUnmeasured(text);
+            return found;
+        }
+        finally
+        {
+            listener.matched(this, System.nanoTime() - start, text.length(), found);
+        }
+    }
+    
+    private boolean matchesUnmeasured(CharSequence text)
+    {
+        if(keywordSet != null && text instanceof String)
+        {
+            return keywordSet.contains(text);
+        }
+        return mayMatch(text) && runMatcher(text, 0, true);
     }
     
     /**
      * Shortcut for matcher(text).find()
+     * Texts that do not contain the literals required by this Pattern are rejected without using the Matcher.
      * @param text
      * @return
      */
     public boolean find(String text)
     {
-        return matcher(text).find();
+        return find((CharSequence) text, 0);
+    }
+    
+    /**
+     * Shortcut for matcher(text).find(), but without creating a new Matcher.
+     * Texts that do not contain the literals required by this Pattern are rejected without using the Matcher.
+     * @param text
+     * @return
+     */
+    public boolean find(CharSequence text)
+    {
+        return find(text, 0);
+    }
+    
+    /**
+     * Shortcut for matcher(text).find(from), but without creating a new Matcher.
+     * @param text
+     * @param from the index, where the search starts.
+     * @return true, if a match starts at or after from.
+     * @throws IndexOutOfBoundsException if from is less than zero or greater than the length of the text.
+     */
+    public boolean find(CharSequence text, int from)
+    {
+        if(from < 0 || from > text.length())
+        {
+            throw new IndexOutOfBoundsException("Illegal start index: " + from);
+        }
+        ReadablePatternListener listener = ReadablePattern.listener;
+        if(listener == null)
+        {
+            return findUnmeasured(text, from);
+        }
+        long start = System.nanoTime();
+        boolean found = false;
+        try
+        {
+            found = findUnmeasured(text, from);
+            return found;
+        }
+        finally
+        {
+            listener.matched(this, System.nanoTime() - start, text.length() - from, found);
+        }
+    }
+    
+    private boolean findUnmeasured(CharSequence text, int from)
+    {
+        if(keywords != null)
+        {
+            return keywords.containsAny(text, from, text.length());
+        }
+        if(literalFilter != null && literalFilter.mayMatch(text, from) == false)
+        {
+            return false;
+        }
+        return runMatcher(text, from, false);
+    }
+    
+    /**
+     * Like find(text, from), but writes the start and end index of each capturing group into offsets, without creating
+     * Strings: offsets[2 * group] is the start and offsets[2 * group + 1] the end of the group. Group 0 is the whole match.
+     * Groups, which did not take part in the match, get -1. If nothing is found, offsets is not changed.
+     * @param text
+     * @param from the index, where the search starts.
+     * @param offsets an array with at least 2 * (getGroupCount() + 1) elements. It may be reused for each call.
+     * @return true, if a match starts at or after from.
+     * @see ReadableCaptures
+     */
+    public boolean find(CharSequence text, int from, int[] offsets)
+    {
+        if(from < 0 || from > text.length())
+        {
+            throw new IndexOutOfBoundsException("Illegal start index: " + from);
+        }
+        if(offsets.length < 2 * (groups.getCount() + 1))
+        {
+            throw new IllegalArgumentException("offsets needs " + 2 * (groups.getCount() + 1) + " elements");
+        }
+        ReadablePatternListener listener = ReadablePattern.listener;
+        if(listener == null)
+        {
+            return findUnmeasured(text, from, offsets);
+        }
+        long start = System.nanoTime();
+        boolean found = false;
+        try
+        {
+            found = findUnmeasured(text, from, offsets);
+            return found;
+        }
+        finally
+        {
+            listener.matched(this, System.nanoTime() - start, text.length() - from, found);
+        }
+    }
+    
+    private boolean findUnmeasured(CharSequence text, int from, int[] offsets)
+    {
+        if(literalFilter != null && literalFilter.mayMatch(text, from) == false)
+        {
+            return false;
+        }
+        if(dateScanner != null)
+        {
+            int start = dateScanner.find(text, from);
+            if(start < 0)
+            {
+                return false;
+            }
+            offsets[0] = start;
+            offsets[1] = dateScanner.matchEnd(text, start);
+            return true;
+        }
+        LazyDfa dfa = dfa();
+        if(dfa != null && dfa.find(text, from) == false)
+        {
+            // Most texts do not match, and the DFA knows that without backtracking.
+            return false;
+        }
+        Matcher matcher = threadMatcher(limit(text));
+        try
+        {
+            if(matcher.find(from) == false)
+            {
+                return false;
+            }
+            for(int group=0;group<=groups.getCount();group++)
+            {
+                offsets[2 * group] = matcher.start(group);
+                offsets[2 * group + 1] = matcher.end(group);
+            }
+            return true;
+        }
+        finally
+        {
+            matcher.reset("");
+        }
+    }
+    
+    /**
+     * Returns a ReadableCaptures, which finds the matches of this Pattern and gives access to the groups
+     * without copying the texts. It may be reused for many texts.
+     * @return
+     */
+    public ReadableCaptures captures()
+    {
+        return new ReadableCaptures(this);
+    }
+    
+    /**
+     * Finds all matches in the text.
+     * @param text
+     * @return the matches in the order of the text.
+     */
+    public List<ReadableMatch> findAll(CharSequence text)
+    {
+        ReadablePatternListener listener = ReadablePattern.listener;
+        if(listener == null)
+        {
+            return findAllUnmeasured(text);
+        }
+        long start = System.nanoTime();
+        List<ReadableMatch> matches = null;
+        try
+        {
+            matches = findAllUnmeasured(text);
+            return matches;
+        }
+        finally
+        {
+            listener.matched(this, System.nanoTime() - start, text.length(), matches != null && matches.isEmpty() == false);
+        }
+    }
+    
+    private List<ReadableMatch> findAllUnmeasured(CharSequence text)
+    {
+        List<ReadableMatch> matches = new ArrayList<>();
+        if(literalFilter != null && literalFilter.mayMatch(text, 0) == false)
+        {
+            return matches;
+        }
+        if(dateScanner != null)
+        {
+            for(int start=dateScanner.find(text, 0);start>=0;)
+            {
+                int end = dateScanner.matchEnd(text, start);
+                matches.add(ReadableMatch.create(start, end, text.subSequence(start, end).toString()));
+                start = dateScanner.find(text, end);
+            }
+            return matches;
+        }
+        Matcher matcher = threadMatcher(limit(text));
+        try
+        {
+            while(matcher.find())
+            {
+                matches.add(ReadableMatch.create(matcher, 0));
+            }
+        }
+        finally
+        {
+            matcher.reset("");
+        }
+        return matches;
+    }
+    
+    /**
+     * Finds all matches in each of the texts. The texts are distributed over the processors with the common ForkJoinPool.
+     * @param texts
+     * @return the matches of each text, in the order of the texts.
+     */
+    public List<List<ReadableMatch>> findAll(Collection<? extends CharSequence> texts)
+    {
+        return findAll(texts, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Finds all matches in each of the texts. The texts are processed by tasks of the Executor. For work, that
+     * waits for I/O, for example texts that are loaded on access, an Executor with virtual threads can be used.
+     * @param texts
+     * @param executor
+     * @return the matches of each text, in the order of the texts.
+     */
+    public List<List<ReadableMatch>> findAll(Collection<? extends CharSequence> texts, Executor executor)
+    {
+        return ParallelBatch.map(texts, text -> findAll(text), executor);
+    }
+    
+    /**
+     * Finds all matches in an UTF-8 encoded file.
+     * @see #findAll(Path, Charset)
+     */
+    public List<ReadableMatch> findAll(Path file) throws IOException
+    {
+        return findAll(file, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Finds all matches in a file. The file is mapped into memory. Files in ISO-8859-1 or US-ASCII, and
+     * UTF-8 files which only contain ASCII characters, are matched directly on the mapped bytes without copying them.
+     * Other files are decoded in windows by a ReadableStreamMatcher, so matches must not be longer than
+     * ReadableStreamMatcher.DEFAULT_WINDOW_SIZE then.
+     * @param file
+     * @param charset
+     * @return the matches in the order of the text. The indexes are counted in characters.
+     */
+    public List<ReadableMatch> findAll(Path file, Charset charset) throws IOException
+    {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            long size = channel.size();
+            boolean singleByte = StandardCharsets.ISO_8859_1.equals(charset) || StandardCharsets.US_ASCII.equals(charset);
+            if(size <= Integer.MAX_VALUE && (singleByte || StandardCharsets.UTF_8.equals(charset)))
+            {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                boolean ascii = ByteCharSequence.isAscii(buffer);
+                if(ascii || singleByte)
+                {
+                    return findAll(new ByteCharSequence(buffer, StandardCharsets.US_ASCII.equals(charset)));
+                }
+            }
+            List<ReadableMatch> matches = new ArrayList<>();
+            ReadableStreamMatcher matcher = streamMatcher(channel, charset);
+            while(matcher.find())
+            {
+                matches.add(matcher.match());
+            }
+            return matches;
+        }
+    }
+    
+    /**
+     * Finds all matches in a large text with all processors of the common ForkJoinPool.
+     * @see #findAllParallel(CharSequence, Executor)
+     */
+    public List<ReadableMatch> findAllParallel(CharSequence text)
+    {
+        return findAllParallel(text, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Finds all matches in a large text with several threads. The text is split into chunks, which are searched
+     * by tasks of the Executor. The result is the same as the one of findAll(text).
+     * <BR>This needs a Pattern with a limited match length. Otherwise, or if the text is small, the text is searched by the current thread.
+     * @param text
+     * @param executor
+     * @return the matches in the order of the text.
+     * @see #getMaxMatchLength()
+     */
+    public List<ReadableMatch> findAllParallel(CharSequence text, Executor executor)
+    {
+        int chunks = Runtime.getRuntime().availableProcessors() * 4;
+        int chunkSize = Math.max(PARALLEL_CHUNK_SIZE, text.length() / chunks + 1);
+        return findAllParallel(text, executor, Math.max(chunkSize, maxMatchLength * 4));
+    }
+    
+    List<ReadableMatch> findAllParallel(CharSequence text, Executor executor, int chunkSize)
+    {
+        if(maxMatchLength < 0 || text.length() <= chunkSize)
+        {
+            return findAll(text);
+        }
+        if(literalFilter != null && literalFilter.mayMatch(text, 0) == false)
+        {
+            return new ArrayList<>();
+        }
+        return ParallelSearch.findAll(this, text, executor, chunkSize);
+    }
+    
+    /**
+     * The maximum length of a match in chars, or -1 if the length is unlimited, like for
+     * digit().oneOrMore(). The value may be larger than the real maximum, for example because
+     * a dot may match a supplementary character, which has two chars.
+     * @return
+     */
+    public int getMaxMatchLength()
+    {
+        return maxMatchLength;
+    }
+    
+    /**
+     * Returns the Matcher of the current thread for the text. It must be reset to "" after use,
+     * so that it does not keep a reference to the text. Lazy Patterns return a new Matcher each time.
+     */
+    Matcher threadMatcher(CharSequence text)
+    {
+        if(pattern == null)
+        {
+            // A cached Matcher would keep the lazy Pattern from being dropped.
+            return getPattern().matcher(text);
+        }
+        Matcher matcher = matchers.get();
+        if(matcher == null || matcher.pattern() != pattern)
+        {
+            matcher = pattern.matcher(text);
+            matchers.set(matcher);
+        }
+        else
+        {
+            matcher.reset(text);
+        }
+        return matcher;
+    }
+    
+    /**
+     * Runs the Matcher of the current thread without checking the literal filter.
+     * The Matcher does not keep a reference to the text afterwards.
+     * Patterns without lookarounds, anchors and back references are matched by a DFA instead, which needs
+     * linear time even for texts, that let the Matcher backtrack. A Pattern, which is nothing else but date(),
+     * is matched by a DateScanner.
+     * @param wholeText true for matches(), false for find(from).
+     */
+    boolean runMatcher(CharSequence text, int from, boolean wholeText)
+    {
+        if(dateScanner != null)
+        {
+            return wholeText ? dateScanner.matches(text) : dateScanner.find(text, from) >= 0;
+        }
+        LazyDfa dfa = dfa();
+        if(dfa != null)
+        {
+            return wholeText ? dfa.matches(text) : dfa.find(text, from);
+        }
+        Matcher matcher = threadMatcher(limit(text));
+        try
+        {
+            return wholeText ? matcher.matches() : matcher.find(from);
+        }
+        finally
+        {
+            matcher.reset("");
+        }
+    }
+    
+    /**
+     * Wraps the text, so that the Matcher is aborted, when the time or step limit is exceeded.
+     */
+    CharSequence limit(CharSequence text)
+    {
+        if(timeoutNanos == 0 && stepLimit == 0)
+        {
+            return text;
+        }
+        return new BudgetCharSequence(text, readableRegex, timeoutNanos, stepLimit);
+    }
+    
+    /**
+     * Sets the listener, which gets the compile and match times of all Patterns, like ReadablePatternMetrics.
+     * Without a listener, which is the default, nothing is measured.
+     * @param listener the listener or null.
+     */
+    public static void setListener(ReadablePatternListener listener)
+    {
+        ReadablePattern.listener = listener;
+    }
+    
+    /**
+     * The listener, which gets the compile and match times of all Patterns, or null.
+     * @return
+     */
+    public static ReadablePatternListener getListener()
+    {
+        return listener;
+    }
+    
+    /**
+     * Fast check if the text may contain a match. This checks if the literal texts, which are
+     * required by this Pattern, like the text of add('Invoice'), are contained in the text.
+     * @param text
+     * @return false if the text can't contain a match. true if it may contain a match.
+     */
+    public boolean mayMatch(CharSequence text)
+    {
+        return literalFilter == null || literalFilter.mayMatch(text, 0);
+    }
+    
+    /**
+     * Returns the normalized textual representation of this Pattern.
+     * @return
+     */
+    public String getReadableRegex()
+    {
+        return readableRegex;
+    }
+    
+    /**
+     * Returns the regular Expression, which is used for matching.
+     * @return
+     */
+    public String getRegex()
+    {
+        return regex;
+    }
+    
+    /**
+     * Describes the parts of the regular expression, which may let the Matcher backtrack exponentially,
+     * like (?:\w+\s?)+!, or polynomially with a degree of three or more, like .*.*.*x. Texts, which almost match,
+     * can take hours then. The analysis is a warning, not a proof. Patterns, which are matched by a DFA,
+     * have no such problem in matches() and find(), but in the Matcher of matcher(text) they have.
+     * @return the warnings, or an empty list.
+     */
+    public List<String> getWarnings()
+    {
+        List<String> result = warnings;
+        if(result == null)
+        {
+            result = Collections.unmodifiableList(BacktrackingAnalysis.analyze(regex, flags));
+            warnings = result;
+        }
+        return result;
+    }
+    
+    /**
+     * The compiled Pattern. A lazy Pattern is compiled on first use and again after the garbage collector has dropped it.
+     * Concurrent threads may compile it twice, which does no harm.
+     */
+    Pattern getPattern()
+    {
+        Pattern compiled = pattern;
+        if(compiled != null)
+        {
+            return compiled;
+        }
+        SoftReference<Pattern> reference = lazyPattern;
+        compiled = reference == null ? null : reference.get();
+        if(compiled == null)
+        {
+            compiled = Pattern.compile(regex, flags);
+            lazyPattern = new SoftReference<>(compiled);
+        }
+        return compiled;
+    }
+    
+    /**
+     * The DFA, which is created on first use for lazy Patterns.
+     * @return the DFA or null, if the regex needs java.util.regex.
+     */
+    private LazyDfa dfa()
+    {
+        if(dfaPending)
+        {
+            dfa = LazyDfa.of(regex, flags);
+            dfaPending = false;
+        }
+        return dfa;
+    }
+    
+    /**
+     * true, if the regular expression is compiled on first use.
+     */
+    boolean isLazy()
+    {
+        return pattern == null;
+    }
+    
+    /**
+     * The number of capturing groups of this Pattern, like Matcher.groupCount().
+     * @return
+     */
+    public int getGroupCount()
+    {
+        return groups.getCount();
+    }
+    
+    /**
+     * The index of a group, which has been created with capture(name). The indexes are known since build(),
+     * so they can be looked up once and used for all matches.
+     * @param name
+     * @return the index of the group.
+     * @throws IllegalArgumentException if there is no group with the name.
+     */
+    public int getGroupIndex(String name)
+    {
+        int index = groups.indexOf(name);
+        if(index < 0)
+        {
+            throw new IllegalArgumentException("No group with name <" + name + ">");
+        }
+        return index;
+    }
+    
+    /**
+     * Describes everything, that decides about the matches of this Pattern: the regular expression, the flags and the
+     * limits of the matching time. Patterns with the same canonical form find the same matches, even if they have been
+     * written in different ways, like add(a), add('a') and einfuegen("a").
+     */
+    String getCanonicalForm()
+    {
+        return flags + ":" + timeoutNanos + ":" + stepLimit + ":" + regex;
+    }
+    
+    /**
+     * The literal texts which are contained in each match of this Pattern. Each entry
+     * contains alternatives, from which at least one must be found.
+     */
+    String[][] getRequiredLiterals()
+    {
+        return requiredLiterals;
+    }
+    
+    /**
+     * true, if matches() and find() use a DFA instead of java.util.regex.
+     */
+    boolean usesDfa()
+    {
+        return dfa() != null;
+    }
+    
+    /**
+     * The flags of the compiled Pattern.
+     */
+    int getFlags()
+    {
+        return flags;
+    }
+    
+    /**
+     * The time limit of the matching in nanoseconds, or 0.
+     */
+    long getTimeoutNanos()
+    {
+        return timeoutNanos;
+    }
+    
+    /**
+     * The step limit of the matching, or 0.
+     */
+    long getStepLimit()
+    {
+        return stepLimit;
+    }
+    
+    /**
+     * The texts of a Pattern, which is nothing else but a large oneOf().
+     * @return the texts or null, if the Pattern is not such a Pattern.
+     */
+    String[] getKeywords()
+    {
+        return keywords == null ? null : keywords.getKeywords();
     }
     
     @Override
     public String toString()
     {
-        return "ReadablePattern: " + readableRegex + " ; compiled:" + pattern.pattern();
+        return "ReadablePattern: " + readableRegex + " ; compiled:" + regex;
+    }
+    
+    /**
+     * A command of the textual representation, which is executed on the Builder.
+     */
+    interface Command
+    {
+        public void execute(Builder builder, String param);
     }
     
     public interface ReadablePatternExtension
@@ -0,0 +1,270 @@
+package de.exware.rre;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import de.exware.rre.ReadablePattern.Builder;
+import de.exware.rre.ReadablePattern.ReadablePatternExtension;
+
+/**
+ * A thread safe cache for compiled ReadablePatterns. Useful if the same rules are compiled
+ * again and again, for example once for each scanned document.
+ * The cache is bounded by the number of entries and by the estimated heap usage of the
+ * cached Patterns. If one of the limits is reached, the least recently used entries will be evicted.
+ * <BR>Patterns are cached per rule text, treatUnknownTokenAsRegex flag, extensions and
+ * Language. So adding a language with Builder.addLanguage() will never return Patterns
+ * parsed with the old vocabulary. Call invalidate() after adding a language to free the old entries.
+ * Example:
+ * <pre>
+ * ReadablePatternCache cache = new ReadablePatternCache(1000, 10 * 1024 * 1024);
+ * ReadablePattern pattern = cache.compile("add(xyz)");
+ * </pre>
+ */
+public class ReadablePatternCache
+{
+    private final int maxEntries;
+    private final long maxHeapSize;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long heapSize;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * Creates a new cache.
+     * @param maxEntries maximum number of cached Patterns.
+     * @param maxHeapSize maximum estimated heap size in bytes of all cached Patterns.
+     */
+    public ReadablePatternCache(int maxEntries, long maxHeapSize)
+    {
+        if(maxEntries <= 0 || maxHeapSize <= 0)
+        {
+            throw new IllegalArgumentException("Limits must be greater than 0");
+        }
+        this.maxEntries = maxEntries;
+        this.maxHeapSize = maxHeapSize;
+    }
+
+    /**
+     * Cached version of ReadablePattern.compile(readableRegex)
+     * @param readableRegex
+     * @return
+     */
+    public ReadablePattern compile(String readableRegex)
+    {
+        return compile(null, readableRegex, false);
+    }
+
+    /**
+     * Cached version of ReadablePattern.compile(readableRegex, treatUnknownTokenAsRegex)
+     * @param readableRegex
+     * @param treatUnknownTokenAsRegex
+     * @return
+     */
+    public ReadablePattern compile(String readableRegex, boolean treatUnknownTokenAsRegex)
+    {
+        return compile(null, readableRegex, treatUnknownTokenAsRegex);
+    }
+
+    /**
+     * Cached version of ReadablePattern.compile(extensions, readableRegex, treatUnknownTokenAsRegex)
+     * @param extensions
+     * @param readableRegex
+     * @param treatUnknownTokenAsRegex
+     * @return
+     */
+    public ReadablePattern compile(List<ReadablePatternExtension> extensions, String readableRegex, boolean treatUnknownTokenAsRegex)
+    {
+        return compile(extensions, readableRegex, treatUnknownTokenAsRegex, Builder.getDefaultLanguage());
+    }
+
+    /**
+     * Cached version of ReadablePattern.compile(readableRegex, language)
+     * @param readableRegex
+     * @param language
+     * @return
+     */
+    public ReadablePattern compile(String readableRegex, Language language)
+    {
+        return compile(null, readableRegex, false, language);
+    }
+
+    /**
+     * Cached version of ReadablePattern.compile(extensions, readableRegex, treatUnknownTokenAsRegex, language)
+     * @param extensions
+     * @param readableRegex
+     * @param treatUnknownTokenAsRegex
+     * @param language
+     * @return
+     */
+    public ReadablePattern compile(List<ReadablePatternExtension> extensions, String readableRegex, boolean treatUnknownTokenAsRegex, Language language)
+    {
+        Key key = new Key(extensions, readableRegex, treatUnknownTokenAsRegex, language);
+        synchronized(this)
+        {
+            Entry entry = entries.get(key);
+            if(entry != null)
+            {
+                hitCount++;
+                return entry.pattern;
+            }
+            missCount++;
+        }
+        ReadablePattern pattern = ReadablePattern.compile(extensions, readableRegex, treatUnknownTokenAsRegex, language);
+        Entry entry = new Entry(pattern, estimateSize(readableRegex, pattern));
+        synchronized(this)
+        {
+            Entry old = entries.put(key, entry);
+            if(old != null)
+            {
+                heapSize -= old.size;
+            }
+            heapSize += entry.size;
+            evict();
+        }
+        return pattern;
+    }
+
+    /**
+     * Remove least recently used entries until the limits are satisfied.
+     */
+    private void evict()
+    {
+        Iterator<Entry> it = entries.values().iterator();
+        while(it.hasNext() && (entries.size() > maxEntries || heapSize > maxHeapSize))
+        {
+            Entry entry = it.next();
+            it.remove();
+            heapSize -= entry.size;
+            evictionCount++;
+        }
+    }
+
+    /**
+     * Rough estimation of the memory used by a cached pattern. The compiled Pattern
+     * needs much more memory than the plain text of the regex.
+     */
+    private static long estimateSize(String readableRegex, ReadablePattern pattern)
+    {
+        long size = 128;
+        size += 2L * readableRegex.length();
+        size += 2L * pattern.getReadableRegex().length();
+        size += 16L * pattern.getRegex().length();
+        return size;
+    }
+
+    /**
+     * Removes all Patterns from the cache. Should be called after adding a language to the
+     * Builder, because Patterns compiled with an older vocabulary won't be used anymore.
+     */
+    public synchronized void invalidate()
+    {
+        entries.clear();
+        heapSize = 0;
+    }
+
+    /**
+     * Number of compile calls which have been answered from the cache.
+     */
+    public synchronized long getHitCount()
+    {
+        return hitCount;
+    }
+
+    /**
+     * Number of compile calls which needed to parse and compile the Pattern.
+     */
+    public synchronized long getMissCount()
+    {
+        return missCount;
+    }
+
+    /**
+     * Number of Patterns which have been removed, because one of the limits was reached.
+     */
+    public synchronized long getEvictionCount()
+    {
+        return evictionCount;
+    }
+
+    /**
+     * Number of Patterns in the cache.
+     */
+    public synchronized int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * The estimated heap size of all cached Patterns in bytes.
+     */
+    public synchronized long getEstimatedHeapSize()
+    {
+        return heapSize;
+    }
+
+    private static class Entry
+    {
+        private final ReadablePattern pattern;
+        private final long size;
+
+        Entry(ReadablePattern pattern, long size)
+        {
+            this.pattern = pattern;
+            this.size = size;
+        }
+    }
+
+    private static class Key
+    {
+        private final List<ReadablePatternExtension> extensions;
+        private final String readableRegex;
+        private final boolean treatUnknownTokenAsRegex;
+        private final Language language;
+        private final int hash;
+
+        Key(List<ReadablePatternExtension> extensions, String readableRegex, boolean treatUnknownTokenAsRegex, Language language)
+        {
+            if(extensions == null || extensions.isEmpty())
+            {
+                this.extensions = Collections.emptyList();
+            }
+            else
+            {
+                this.extensions = new ArrayList<>(extensions);
+            }
+            this.readableRegex = readableRegex;
+            this.treatUnknownTokenAsRegex = treatUnknownTokenAsRegex;
+            this.language = language;
+            int h = readableRegex.hashCode();
+            h = 31 * h + this.extensions.hashCode();
+            h = 31 * h + (treatUnknownTokenAsRegex ? 1 : 0);
+            h = 31 * h + System.identityHashCode(language);
+            hash = h;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if(obj instanceof Key == false)
+            {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hash == other.hash
+                && treatUnknownTokenAsRegex == other.treatUnknownTokenAsRegex
+                && language == other.language
+                && readableRegex.equals(other.readableRegex)
+                && extensions.equals(other.extensions);
+        }
+    }
+}
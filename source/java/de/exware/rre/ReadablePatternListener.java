@@ -0,0 +1,27 @@
+package de.exware.rre;
+
+/**
+ * Gets informed about the compilation and the matching of all ReadablePatterns, when it has been set with
+ * ReadablePattern.setListener(). The methods are called by the threads, which compile or match, so they must be
+ * thread safe and fast. Without a listener, Patterns do not measure anything.
+ * @see ReadablePatternMetrics
+ */
+public interface ReadablePatternListener
+{
+    /**
+     * Called after a Pattern has been built by a Builder or loaded from a ReadableBundle.
+     * @param pattern
+     * @param nanos the time needed to parse the textual representation and to build the Pattern.
+     */
+    public void compiled(ReadablePattern pattern, long nanos);
+
+    /**
+     * Called after each call of matches(), find() and findAll() of a Pattern, and for each rule, that a
+     * ReadableRuleSet has matched against a text. Matchers, which are returned by matcher(text), are not measured.
+     * @param pattern
+     * @param nanos the time needed by the call.
+     * @param textLength the length of the text in characters.
+     * @param found true, if the call has found a match.
+     */
+    public void matched(ReadablePattern pattern, long nanos, int textLength, boolean found);
+}
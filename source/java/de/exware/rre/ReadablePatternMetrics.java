@@ -0,0 +1,147 @@
+package de.exware.rre;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records compile times, match times, hits and text lengths of all Patterns, to find the rules, which need the most time.
+ * The numbers are kept per textual representation, so all Patterns, which have been compiled from the same rule,
+ * are counted together. Recording needs no locks.
+ * <pre>
+ * ReadablePatternMetrics metrics = new ReadablePatternMetrics();
+ * ReadablePattern.setListener(metrics);
+ * ...
+ * System.out.println(metrics.report(10));
+ * ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, new ObjectName("de.exware.rre:type=ReadablePatternMetrics"));
+ * </pre>
+ */
+public class ReadablePatternMetrics implements ReadablePatternListener, ReadablePatternMetricsMXBean
+{
+    private static final int REPORTED_PATTERNS = 10;
+    private final ConcurrentHashMap<String, PatternMetrics> patterns = new ConcurrentHashMap<>();
+
+    @Override
+    public void compiled(ReadablePattern pattern, long nanos)
+    {
+        metrics(pattern).compiled(nanos);
+    }
+
+    @Override
+    public void matched(ReadablePattern pattern, long nanos, int textLength, boolean found)
+    {
+        metrics(pattern).matched(nanos, textLength, found);
+    }
+
+    private PatternMetrics metrics(ReadablePattern pattern)
+    {
+        String readableRegex = pattern.getReadableRegex();
+        PatternMetrics metrics = patterns.get(readableRegex);
+        if(metrics == null)
+        {
+            metrics = patterns.computeIfAbsent(readableRegex, PatternMetrics::new);
+        }
+        return metrics;
+    }
+
+    /**
+     * The numbers of the Patterns with the textual representation.
+     * @param readableRegex the textual representation as returned by getReadableRegex().
+     * @return the numbers or null, if no such Pattern has been recorded.
+     */
+    public PatternMetrics getMetrics(String readableRegex)
+    {
+        return patterns.get(readableRegex);
+    }
+
+    /**
+     * The numbers of all Patterns.
+     * @return
+     */
+    public List<PatternMetrics> getMetrics()
+    {
+        return new ArrayList<>(patterns.values());
+    }
+
+    /**
+     * The Patterns, which have needed the most time for matches(), find() and findAll() together.
+     * @param count the maximum number of Patterns.
+     * @return the slowest Pattern first.
+     */
+    public List<PatternMetrics> getSlowest(int count)
+    {
+        List<PatternMetrics> slowest = getMetrics();
+        // The times change while sorting, so the sort uses a copy of them.
+        Map<PatternMetrics, Long> totals = new IdentityHashMap<>();
+        for(PatternMetrics metrics : slowest)
+        {
+            totals.put(metrics, metrics.getTotalNanos());
+        }
+        Collections.sort(slowest, (a, b) -> Long.compare(totals.get(b), totals.get(a)));
+        return new ArrayList<>(slowest.subList(0, Math.min(count, slowest.size())));
+    }
+
+    /**
+     * A text with one line for each of the slowest Patterns.
+     * @param count the maximum number of Patterns.
+     * @return
+     */
+    public String report(int count)
+    {
+        StringBuilder report = new StringBuilder();
+        for(PatternMetrics metrics : getSlowest(count))
+        {
+            report.append(metrics).append('\n');
+        }
+        return report.toString();
+    }
+
+    @Override
+    public int getPatternCount()
+    {
+        return patterns.size();
+    }
+
+    @Override
+    public long getMatchCount()
+    {
+        long count = 0;
+        for(PatternMetrics metrics : patterns.values())
+        {
+            count += metrics.getMatchCount();
+        }
+        return count;
+    }
+
+    @Override
+    public long getTotalMillis()
+    {
+        long nanos = 0;
+        for(PatternMetrics metrics : patterns.values())
+        {
+            nanos += metrics.getTotalNanos();
+        }
+        return nanos / 1000000;
+    }
+
+    @Override
+    public String[] getSlowestPatterns()
+    {
+        List<PatternMetrics> slowest = getSlowest(REPORTED_PATTERNS);
+        String[] lines = new String[slowest.size()];
+        for(int i=0;i<lines.length;i++)
+        {
+            lines[i] = slowest.get(i).toString();
+        }
+        return lines;
+    }
+
+    @Override
+    public void reset()
+    {
+        patterns.clear();
+    }
+}
@@ -0,0 +1,32 @@
+package de.exware.rre;
+
+/**
+ * The view of ReadablePatternMetrics for JMX, for example for JConsole.
+ */
+public interface ReadablePatternMetricsMXBean
+{
+    /**
+     * The number of different textual representations, which have been recorded.
+     */
+    public int getPatternCount();
+
+    /**
+     * The number of calls of matches(), find() and findAll() of all Patterns.
+     */
+    public long getMatchCount();
+
+    /**
+     * The time needed by all calls of all Patterns in milliseconds.
+     */
+    public long getTotalMillis();
+
+    /**
+     * One line for each of the ten Patterns, which have needed the most time.
+     */
+    public String[] getSlowestPatterns();
+
+    /**
+     * Forgets all recorded numbers.
+     */
+    public void reset();
+}
@@ -0,0 +1,119 @@
+package de.exware.rre;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A thread safe pool, which lets equal ReadablePatterns share one instance. Many users write nearly the same rules,
+ * which only differ in spacing, quoting or the language of the commands. Their Patterns have the same canonical form:
+ * the same regular expression, flags and limits. intern() returns the first of these Patterns for all others,
+ * so only one compiled Pattern is kept in memory, and a ReadableRuleSet only needs to search it once.
+ * <BR>The pool only keeps weak references. A Pattern, which is not used anywhere else anymore, is removed.
+ * Example:
+ * <pre>
+ * ReadablePatternPool pool = new ReadablePatternPool();
+ * ReadablePattern pattern = pool.compile("add(xyz)");
+ * </pre>
+ */
+public class ReadablePatternPool
+{
+    private final Map<String, Entry> entries = new HashMap<>();
+    /** Gets the entries, whose Pattern has been garbage collected. */
+    private final ReferenceQueue<ReadablePattern> collected = new ReferenceQueue<>();
+    private long hitCount;
+    private long missCount;
+
+    /**
+     * Returns the Pattern of the pool with the same canonical form, or adds the Pattern to the pool, if there is none.
+     * The returned Pattern may have another readable representation, if it has been written in another way.
+     * @param pattern
+     * @return
+     */
+    public synchronized ReadablePattern intern(ReadablePattern pattern)
+    {
+        removeCollected();
+        String canonicalForm = pattern.getCanonicalForm();
+        Entry entry = entries.get(canonicalForm);
+        ReadablePattern interned = entry == null ? null : entry.get();
+        if(interned != null)
+        {
+            hitCount++;
+            return interned;
+        }
+        missCount++;
+        entries.put(canonicalForm, new Entry(canonicalForm, pattern, collected));
+        return pattern;
+    }
+
+    /**
+     * Interned version of ReadablePattern.compile(readableRegex)
+     * @param readableRegex
+     * @return
+     */
+    public ReadablePattern compile(String readableRegex)
+    {
+        return intern(ReadablePattern.compile(readableRegex));
+    }
+
+    /**
+     * Interned version of ReadablePattern.compile(readableRegex, language)
+     * @param readableRegex
+     * @param language
+     * @return
+     */
+    public ReadablePattern compile(String readableRegex, Language language)
+    {
+        return intern(ReadablePattern.compile(readableRegex, language));
+    }
+
+    private void removeCollected()
+    {
+        Entry entry;
+        while((entry = (Entry) collected.poll()) != null)
+        {
+            // The entry may have been replaced already.
+            if(entries.get(entry.canonicalForm) == entry)
+            {
+                entries.remove(entry.canonicalForm);
+            }
+        }
+    }
+
+    /**
+     * Number of intern calls, which returned another Pattern from the pool.
+     */
+    public synchronized long getHitCount()
+    {
+        return hitCount;
+    }
+
+    /**
+     * Number of intern calls, which added the Pattern to the pool.
+     */
+    public synchronized long getMissCount()
+    {
+        return missCount;
+    }
+
+    /**
+     * Number of Patterns in the pool, which have not been garbage collected yet.
+     */
+    public synchronized int size()
+    {
+        removeCollected();
+        return entries.size();
+    }
+
+    private static class Entry extends WeakReference<ReadablePattern>
+    {
+        private final String canonicalForm;
+
+        Entry(String canonicalForm, ReadablePattern pattern, ReferenceQueue<ReadablePattern> queue)
+        {
+            super(pattern, queue);
+            this.canonicalForm = canonicalForm;
+        }
+    }
+}
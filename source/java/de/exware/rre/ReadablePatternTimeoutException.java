@@ -0,0 +1,39 @@
+package de.exware.rre;
+
+/**
+ * Thrown by matches(), find() and findAll() of a ReadablePattern, if the matching takes longer than the
+ * time limit or needs more steps than the step limit of the Pattern. See Builder.setMatchTimeout(long)
+ * and Builder.setMatchStepLimit(long). A ReadableRuleSet, ReadableStreamMatcher and ReadableMatchSession
+ * throw it too, when one of their Patterns exceeds its limit.
+ */
+public class ReadablePatternTimeoutException extends RuntimeException
+{
+    private static final long serialVersionUID = 1L;
+    private final String readableRegex;
+    private final long steps;
+
+    ReadablePatternTimeoutException(String message, String readableRegex, long steps)
+    {
+        super(message + ": " + readableRegex);
+        this.readableRegex = readableRegex;
+        this.steps = steps;
+    }
+
+    /**
+     * The textual representation of the Pattern, which has been aborted.
+     * @return
+     */
+    public String getReadableRegex()
+    {
+        return readableRegex;
+    }
+
+    /**
+     * The number of characters, which the Matcher has read until it has been aborted.
+     * @return
+     */
+    public long getSteps()
+    {
+        return steps;
+    }
+}
@@ -0,0 +1,340 @@
+package de.exware.rre;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Matcher;
+
+/**
+ * A set of ReadablePatterns, which are matched together against the same text.
+ * Checking hundreds of rules one by one means to scan the text hundreds of times. A ReadableRuleSet
+ * searches the literal texts, that each rule requires, with a single pass over the text. Only the rules whose literals
+ * have been found, will be checked with their regular expression. Rules without required literals, like
+ * date(), will always be checked.
+ * <BR>As most rules do not match most documents, the cost mainly depends on the length of the text
+ * and not on the number of rules. Rules with the same canonical form, which only differ in the way they are written,
+ * are searched only once. Their matches are reported for each of them.
+ * Example:
+ * <pre>
+ * ReadableRuleSet rules = new ReadableRuleSet(
+ *     ReadablePattern.compile("add(Rechnung).whitespace().digit().oneOrMore()"),
+ *     ReadablePattern.compile("add(Lieferschein)"));
+ * BitSet matching = rules.matchingRules(text);
+ * </pre>
+ * Instances are immutable and may be used by many threads.
+ */
+public class ReadableRuleSet
+{
+    private final ReadablePattern[] rules;
+    private final AhoCorasick literals;
+    /** The rules, that are checked if the literal with the same index has been found. A rule is checked, if any of its alternatives is found. */
+    private final int[][] literalRules;
+    /** The rules, that need to be checked always, because they have no required literal. */
+    private final int[] uncheckedRules;
+    /** The other rules with the same canonical form for each rule, which is searched, or null if there are none. */
+    private final int[][] duplicates;
+
+    /**
+     * Creates a rule set from the given Patterns. The index of a rule is it's position in the list.
+     */
+    public ReadableRuleSet(List<ReadablePattern> rules)
+    {
+        this(rules.toArray(new ReadablePattern[rules.size()]));
+    }
+
+    /**
+     * Creates a rule set from the given Patterns. The index of a rule is it's position in the array.
+     */
+    public ReadableRuleSet(ReadablePattern ... rules)
+    {
+        this.rules = rules.clone();
+        Map<String, List<Integer>> literalMap = new HashMap<>();
+        List<String> literalList = new ArrayList<>();
+        List<Integer> unchecked = new ArrayList<>();
+        Map<String, List<Integer>> canonicalForms = new HashMap<>();
+        for(int i=0;i<this.rules.length;i++)
+        {
+            List<Integer> same = canonicalForms.get(this.rules[i].getCanonicalForm());
+            if(same != null)
+            {
+                // Only the first rule with the canonical form is searched.
+                same.add(i);
+                continue;
+            }
+            same = new ArrayList<>();
+            same.add(i);
+            canonicalForms.put(this.rules[i].getCanonicalForm(), same);
+            String[] alternatives = selectLiterals(this.rules[i].getRequiredLiterals());
+            if(alternatives == null)
+            {
+                unchecked.add(i);
+                continue;
+            }
+            for(int x=0;x<alternatives.length;x++)
+            {
+                List<Integer> ruleList = literalMap.get(alternatives[x]);
+                if(ruleList == null)
+                {
+                    ruleList = new ArrayList<>();
+                    literalMap.put(alternatives[x], ruleList);
+                    literalList.add(alternatives[x]);
+                }
+                if(ruleList.contains(i) == false)
+                {
+                    ruleList.add(i);
+                }
+            }
+        }
+        String[] keywords = literalList.toArray(new String[literalList.size()]);
+        literals = new AhoCorasick(keywords);
+        literalRules = new int[keywords.length][];
+        for(int i=0;i<keywords.length;i++)
+        {
+            literalRules[i] = toArray(literalMap.get(keywords[i]));
+        }
+        uncheckedRules = toArray(unchecked);
+        duplicates = new int[this.rules.length][];
+        for(List<Integer> same : canonicalForms.values())
+        {
+            if(same.size() > 1)
+            {
+                duplicates[same.get(0)] = toArray(same.subList(1, same.size()));
+            }
+        }
+    }
+
+    /**
+     * Select the required literals which are best suited to filter the rule. The longer the shortest
+     * alternative is, the less often it is expected to be found.
+     * @return the alternatives or null if the rule has no required literal.
+     */
+    private static String[] selectLiterals(String[][] required)
+    {
+        String[] best = null;
+        for(int i=0;i<required.length;i++)
+        {
+            if(best == null || LiteralFilter.selectivity(required[i]) > LiteralFilter.selectivity(best))
+            {
+                best = required[i];
+            }
+        }
+        return best;
+    }
+
+    private static int[] toArray(List<Integer> list)
+    {
+        int[] array = new int[list.size()];
+        for(int i=0;i<array.length;i++)
+        {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+
+    /**
+     * Number of rules in this set.
+     */
+    public int size()
+    {
+        return rules.length;
+    }
+
+    /**
+     * Returns the rule with the given index.
+     */
+    public ReadablePattern getRule(int index)
+    {
+        return rules[index];
+    }
+
+    /**
+     * Find the rules, which may match the text, because their required literals are contained in the text.
+     */
+    private BitSet candidates(CharSequence text)
+    {
+        BitSet foundLiterals = new BitSet();
+        literals.findAll(text, foundLiterals);
+        BitSet candidates = new BitSet(rules.length);
+        for(int i=foundLiterals.nextSetBit(0);i>=0;i=foundLiterals.nextSetBit(i+1))
+        {
+            int[] ruleIndexes = literalRules[i];
+            for(int x=0;x<ruleIndexes.length;x++)
+            {
+                candidates.set(ruleIndexes[x]);
+            }
+        }
+        for(int i=0;i<uncheckedRules.length;i++)
+        {
+            candidates.set(uncheckedRules[i]);
+        }
+        return candidates;
+    }
+
+    /**
+     * Returns the indexes of all rules, which can be found in the text.
+     * Same as calling find(text) on each rule, but the text is only scanned once for all rules.
+     * @throws ReadablePatternTimeoutException if a rule exceeds its time or step limit.
+     */
+    public BitSet matchingRules(CharSequence text)
+    {
+        BitSet candidates = candidates(text);
+        BitSet matching = new BitSet(rules.length);
+        ReadablePatternListener listener = ReadablePattern.getListener();
+        for(int i=candidates.nextSetBit(0);i>=0;i=candidates.nextSetBit(i+1))
+        {
+            long start = listener == null ? 0 : System.nanoTime();
+            boolean found = rules[i].runMatcher(text, 0, false);
+            if(found)
+            {
+                matching.set(i);
+                if(duplicates[i] != null)
+                {
+                    for(int x=0;x<duplicates[i].length;x++)
+                    {
+                        matching.set(duplicates[i][x]);
+                    }
+                }
+            }
+            if(listener != null)
+            {
+                listener.matched(rules[i], System.nanoTime() - start, text.length(), found);
+            }
+        }
+        return matching;
+    }
+
+    /**
+     * Finds all matches of all rules in the text. The result is ordered by the start of the matches.
+     * Matches with the same start are ordered by the index of the rule.
+     * @throws ReadablePatternTimeoutException if a rule exceeds its time or step limit.
+     */
+    public List<RuleMatch> findAll(CharSequence text)
+    {
+        BitSet candidates = candidates(text);
+        List<RuleMatch> matches = new ArrayList<>();
+        ReadablePatternListener listener = ReadablePattern.getListener();
+        for(int i=candidates.nextSetBit(0);i>=0;i=candidates.nextSetBit(i+1))
+        {
+            long start = listener == null ? 0 : System.nanoTime();
+            int count = matches.size();
+            Matcher matcher = rules[i].threadMatcher(rules[i].limit(text));
+            try
+            {
+                while(matcher.find())
+                {
+                    matches.add(new RuleMatch(i, matcher.start(), matcher.end()));
+                    if(duplicates[i] != null)
+                    {
+                        for(int x=0;x<duplicates[i].length;x++)
+                        {
+                            matches.add(new RuleMatch(duplicates[i][x], matcher.start(), matcher.end()));
+                        }
+                    }
+                }
+            }
+            finally
+            {
+                matcher.reset("");
+            }
+            if(listener != null)
+            {
+                listener.matched(rules[i], System.nanoTime() - start, text.length(), matches.size() > count);
+            }
+        }
+        Collections.sort(matches, RuleMatch.ORDER);
+        return matches;
+    }
+
+    /**
+     * Finds all matches of all rules in each of the texts. The texts are distributed over the processors
+     * with the common ForkJoinPool.
+     * @return the matches of each text, in the order of the texts.
+     */
+    public List<List<RuleMatch>> findAll(Collection<? extends CharSequence> texts)
+    {
+        return findAll(texts, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Finds all matches of all rules in each of the texts. The texts are processed by tasks of the Executor.
+     * @return the matches of each text, in the order of the texts.
+     */
+    public List<List<RuleMatch>> findAll(Collection<? extends CharSequence> texts, Executor executor)
+    {
+        return ParallelBatch.map(texts, text -> findAll(text), executor);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "ReadableRuleSet: " + rules.length + " rules, literals: " + Arrays.toString(literals.getKeywords())
+            + ", rules without literal: " + uncheckedRules.length;
+    }
+
+    /**
+     * A match of a single rule of a ReadableRuleSet.
+     */
+    public static class RuleMatch
+    {
+        static final Comparator<RuleMatch> ORDER = new Comparator<RuleMatch>()
+        {
+            @Override
+            public int compare(RuleMatch m1, RuleMatch m2)
+            {
+                if(m1.start != m2.start)
+                {
+                    return m1.start < m2.start ? -1 : 1;
+                }
+                return Integer.compare(m1.rule, m2.rule);
+            }
+        };
+        private final int rule;
+        private final int start;
+        private final int end;
+
+        RuleMatch(int rule, int start, int end)
+        {
+            this.rule = rule;
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * The index of the rule in the ReadableRuleSet.
+         */
+        public int getRule()
+        {
+            return rule;
+        }
+
+        /**
+         * Start index of the match.
+         */
+        public int getStart()
+        {
+            return start;
+        }
+
+        /**
+         * End index of the match (exclusive).
+         */
+        public int getEnd()
+        {
+            return end;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "Rule " + rule + ": " + start + "-" + end;
+        }
+    }
+}
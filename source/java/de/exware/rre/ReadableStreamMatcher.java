@@ -0,0 +1,209 @@
+package de.exware.rre;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.regex.Matcher;
+
+/**
+ * Finds the matches of a ReadablePattern in a text, which is read from a Reader, without loading
+ * the whole text into memory. The text is read in chunks into a window. Matches that reach the end
+ * of the window are completed by reading more text, so the results are the same as for a Matcher
+ * on the whole text, as long as no match is longer than the window size.
+ * <BR>Some characters before the current position are kept, so that look behinds like the one of date() work across chunks.
+ * Example:
+ * <pre>
+ * try(ReadableStreamMatcher matcher = pattern.streamMatcher(Files.newBufferedReader(path)))
+ * {
+ *     while(matcher.find())
+ *     {
+ *         System.out.println(matcher.start() + ": " + matcher.group());
+ *     }
+ * }
+ * </pre>
+ * A ReadableStreamMatcher is not thread safe.
+ */
+public class ReadableStreamMatcher implements Closeable
+{
+    /** The default for the window size in characters. */
+    public static final int DEFAULT_WINDOW_SIZE = 64 * 1024;
+    /** Number of characters before the current position, that are kept for look behinds. */
+    private static final int LOOKBEHIND = 64;
+    private final ReadablePattern pattern;
+    private final Reader reader;
+    private final Matcher matcher;
+    private final int windowSize;
+    private final char[] chunk;
+    private final StringBuilder buffer = new StringBuilder();
+    /** Offset of the first character in buffer. */
+    private long bufferStart;
+    /** Index in buffer, where the next search starts. May be buffer.length() + 1 after an empty match at the end. */
+    private int searchFrom;
+    private boolean eof;
+    private ReadableMatch match;
+
+    /**
+     * Creates a matcher with the default window size.
+     */
+    public ReadableStreamMatcher(ReadablePattern pattern, Reader reader)
+    {
+        this(pattern, reader, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * @param windowSize the number of characters, which are read at once. Matches which are longer than
+     * this, may not be found or may be cut. About three times this size is needed as memory.
+     */
+    public ReadableStreamMatcher(ReadablePattern pattern, Reader reader, int windowSize)
+    {
+        if(windowSize < 1)
+        {
+            throw new IllegalArgumentException("Window size must be positive: " + windowSize);
+        }
+        this.pattern = pattern;
+        this.reader = reader;
+        this.windowSize = windowSize;
+        chunk = new char[windowSize];
+        matcher = pattern.getPattern().matcher(buffer);
+        matcher.useTransparentBounds(true);
+        matcher.useAnchoringBounds(false);
+    }
+
+    /**
+     * Searches the next match.
+     * @return true, if a match has been found.
+     * @throws IOException if reading from the Reader fails.
+     * @throws ReadablePatternTimeoutException if the search exceeds the time or step limit of the Pattern.
+     */
+    public boolean find() throws IOException
+    {
+        match = null;
+        // The buffer grows while reading, but the limit applies to the whole call.
+        CharSequence text = pattern.limit(buffer);
+        while(true)
+        {
+            if(searchFrom > buffer.length())
+            {
+                if(eof)
+                {
+                    return false;
+                }
+                read();
+                continue;
+            }
+            matcher.reset(text);
+            matcher.region(searchFrom, buffer.length());
+            boolean found = matcher.find();
+            // A match, which needs the end of the input, like b$, is lost if more text follows.
+            if(found && (eof || matcher.hitEnd() == false
+                || matcher.requireEnd() == false && buffer.length() - matcher.start() >= windowSize))
+            {
+                match = ReadableMatch.create(matcher, bufferStart);
+                searchFrom = matcher.end() == matcher.start() ? matcher.end() + 1 : matcher.end();
+                return true;
+            }
+            if(eof)
+            {
+                return false;
+            }
+            if(matcher.hitEnd())
+            {
+                // A match, which starts before the last windowSize characters and is not complete yet, would be too long.
+                int keep = buffer.length() - windowSize;
+                if(found)
+                {
+                    // The match needs the end of the input, and the line terminator behind b$ may be outside of the window.
+                    keep = Math.min(keep, matcher.start());
+                }
+                searchFrom = Math.max(searchFrom, keep);
+            }
+            else
+            {
+                // No match can start before the end, even if more text is read.
+                searchFrom = buffer.length();
+            }
+            read();
+        }
+    }
+
+    /**
+     * Removes the characters, which are not needed anymore and appends the next chunk.
+     */
+    private void read() throws IOException
+    {
+        int keep = Math.max(0, Math.min(searchFrom, buffer.length()) - LOOKBEHIND);
+        if(keep > 0)
+        {
+            buffer.delete(0, keep);
+            bufferStart += keep;
+            searchFrom -= keep;
+        }
+        int count = reader.read(chunk, 0, chunk.length);
+        while(count == 0)
+        {
+            count = reader.read(chunk, 0, chunk.length);
+        }
+        if(count < 0)
+        {
+            eof = true;
+        }
+        else
+        {
+            buffer.append(chunk, 0, count);
+        }
+    }
+
+    /**
+     * The last match.
+     * @throws IllegalStateException if there's no match.
+     */
+    public ReadableMatch match()
+    {
+        if(match == null)
+        {
+            throw new IllegalStateException("No match available");
+        }
+        return match;
+    }
+
+    /**
+     * Start index of the last match, counted from the beginning of the stream.
+     */
+    public long start()
+    {
+        return match().getStart();
+    }
+
+    /**
+     * End index of the last match (exclusive), counted from the beginning of the stream.
+     */
+    public long end()
+    {
+        return match().getEnd();
+    }
+
+    /**
+     * The text of the last match.
+     */
+    public String group()
+    {
+        return match().getText();
+    }
+
+    /**
+     * The text of a capturing group of the last match.
+     */
+    public String group(int group)
+    {
+        return match().getGroup(group);
+    }
+
+    /**
+     * Closes the Reader.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        reader.close();
+    }
+}
@@ -0,0 +1,714 @@
+package de.exware.rre;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Parses a java.util.regex regular expression into a tree of character sets, concatenations, alternatives and
+ * repetitions, which is used to analyze and to match the regex without backtracking.
+ * <BR>In the strict mode everything, that can't be matched by a finite automaton, is rejected: anchors, lookarounds,
+ * back references, possessive quantifiers, atomic groups and inline flags. In the lenient mode these are kept as
+ * ZeroWidth and Atomic nodes, and unknown character classes are assumed to match any character. The lenient tree
+ * describes, how the regex may backtrack, but not exactly what it matches.
+ */
+class RegexParser
+{
+    private final String regex;
+    private final int flags;
+    private final boolean lenient;
+    private final Set<String> groupNames = new HashSet<>();
+    private int position;
+
+    private RegexParser(String regex, int flags, boolean lenient)
+    {
+        this.regex = regex;
+        this.flags = flags;
+        this.lenient = lenient;
+    }
+
+    /**
+     * @param lenient false to reject everything, that can't be matched by a finite automaton.
+     * @return the tree of the regex, or null if it is not supported.
+     */
+    static Expr parse(String regex, int flags, boolean lenient)
+    {
+        if((flags & (Pattern.COMMENTS | Pattern.LITERAL)) != 0)
+        {
+            return null;
+        }
+        try
+        {
+            RegexParser parser = new RegexParser(regex, flags, lenient);
+            Expr expr = parser.alternation();
+            return parser.more() ? null : expr;
+        }
+        catch(UnsupportedException ex)
+        {
+            return null;
+        }
+    }
+
+    private boolean more()
+    {
+        return position < regex.length();
+    }
+
+    private char peek()
+    {
+        return regex.charAt(position);
+    }
+
+    private boolean consume(char c)
+    {
+        if(more() && peek() == c)
+        {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Parses alternatives until the end of the regex or a closing brace.
+     */
+    private Expr alternation()
+    {
+        List<Expr> alternatives = new ArrayList<>();
+        alternatives.add(sequence());
+        while(consume('|'))
+        {
+            alternatives.add(sequence());
+        }
+        return alternatives.size() == 1 ? alternatives.get(0) : new Alternation(alternatives);
+    }
+
+    private Expr sequence()
+    {
+        List<Expr> elements = new ArrayList<>();
+        while(more() && peek() != '|' && peek() != ')')
+        {
+            elements.add(quantified());
+        }
+        return elements.size() == 1 ? elements.get(0) : new Concatenation(elements);
+    }
+
+    private Expr quantified()
+    {
+        int start = position;
+        Expr atom = atom();
+        if(more() == false)
+        {
+            return atom;
+        }
+        char c = peek();
+        int min;
+        int max;
+        if(c == '?' || c == '*' || c == '+')
+        {
+            position++;
+            min = c == '+' ? 1 : 0;
+            max = c == '?' ? 1 : Repetition.UNBOUNDED;
+        }
+        else if(c == '{')
+        {
+            int end = regex.indexOf('}', position);
+            if(end < 0)
+            {
+                throw new UnsupportedException();
+            }
+            String count = regex.substring(position + 1, end);
+            position = end + 1;
+            int comma = count.indexOf(',');
+            min = number(comma < 0 ? count : count.substring(0, comma));
+            max = comma < 0 ? min : comma == count.length() - 1 ? Repetition.UNBOUNDED : number(count.substring(comma + 1));
+            if(max != Repetition.UNBOUNDED && max < min)
+            {
+                throw new UnsupportedException();
+            }
+        }
+        else
+        {
+            return atom;
+        }
+        // The lazy quantifier finds other matches, but not other texts. The possessive one does.
+        boolean possessive = false;
+        if(consume('+'))
+        {
+            possessive = true;
+            strict();
+        }
+        else
+        {
+            consume('?');
+        }
+        if(more() && "?*+{".indexOf(peek()) >= 0)
+        {
+            throw new UnsupportedException();
+        }
+        if(atom instanceof Quote)
+        {
+            // The quantifier only applies to the last character of the quoted text.
+            List<Expr> elements = new ArrayList<>(((Quote) atom).elements);
+            if(elements.isEmpty())
+            {
+                throw new UnsupportedException();
+            }
+            Expr last = elements.remove(elements.size() - 1);
+            elements.add(new Repetition(last, min, max, possessive, start, position));
+            return new Concatenation(elements);
+        }
+        return new Repetition(atom, min, max, possessive, start, position);
+    }
+
+    /**
+     * Rejects the current construct in the strict mode.
+     */
+    private void strict()
+    {
+        if(lenient == false)
+        {
+            throw new UnsupportedException();
+        }
+    }
+
+    private static int number(String text)
+    {
+        if(text.isEmpty() || text.length() > 5)
+        {
+            throw new UnsupportedException();
+        }
+        for(int i=0;i<text.length();i++)
+        {
+            if(text.charAt(i) < '0' || text.charAt(i) > '9')
+            {
+                throw new UnsupportedException();
+            }
+        }
+        return Integer.parseInt(text);
+    }
+
+    private Expr atom()
+    {
+        char c = peek();
+        position++;
+        switch(c)
+        {
+            case '(':
+                return group();
+            case '[':
+                return new Chars(characterClass());
+            case '\\':
+                return escape();
+            case '.':
+                return new Chars(dot());
+            case '^':
+            case '$':
+                strict();
+                return new ZeroWidth();
+            case '?':
+            case '*':
+            case '+':
+            case '{':
+                throw new UnsupportedException();
+            default:
+                return new Chars(ignoreCase(CharSet.single(codePoint(c))));
+        }
+    }
+
+    /**
+     * Reads the low surrogate of a supplementary character.
+     */
+    private int codePoint(char c)
+    {
+        if(Character.isHighSurrogate(c) && more() && Character.isLowSurrogate(peek()))
+        {
+            return Character.toCodePoint(c, regex.charAt(position++));
+        }
+        return c;
+    }
+
+    private Expr group()
+    {
+        boolean zeroWidth = false;
+        boolean atomic = false;
+        if(consume('?') && consume(':') == false)
+        {
+            if(consume('=') || consume('!'))
+            {
+                strict();
+                zeroWidth = true;
+            }
+            else if(regex.startsWith("<=", position) || regex.startsWith("<!", position))
+            {
+                strict();
+                zeroWidth = true;
+                position += 2;
+            }
+            else if(consume('<'))
+            {
+                groupName();
+            }
+            else if(consume('>'))
+            {
+                strict();
+                atomic = true;
+            }
+            else
+            {
+                // inline flags like (?i) or (?i:...)
+                strict();
+                while(more() && "idmsuxU-".indexOf(peek()) >= 0)
+                {
+                    if(peek() == 'x')
+                    {
+                        throw new UnsupportedException();
+                    }
+                    position++;
+                }
+                if(consume(')'))
+                {
+                    return new ZeroWidth();
+                }
+                if(consume(':') == false)
+                {
+                    throw new UnsupportedException();
+                }
+            }
+        }
+        Expr expr = alternation();
+        if(consume(')') == false)
+        {
+            throw new UnsupportedException();
+        }
+        if(expr instanceof Quote)
+        {
+            // A quantifier after the group applies to the whole text.
+            expr = new Concatenation(((Quote) expr).elements);
+        }
+        return zeroWidth ? new ZeroWidth() : atomic ? new Atomic(expr) : expr;
+    }
+
+    /**
+     * Parses the name of a named group. Java only accepts unique names of ASCII letters and digits, which start with a letter.
+     */
+    private void groupName()
+    {
+        int start = position;
+        skipTo('>');
+        String name = regex.substring(start, position - 1);
+        boolean valid = name.isEmpty() == false && groupNames.add(name);
+        for(int i=0;i<name.length() && valid;i++)
+        {
+            char c = name.charAt(i);
+            valid = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (i > 0 && c >= '0' && c <= '9');
+        }
+        if(valid == false)
+        {
+            throw new UnsupportedException();
+        }
+    }
+
+    private void skipTo(char end)
+    {
+        int index = regex.indexOf(end, position);
+        if(index < 0)
+        {
+            throw new UnsupportedException();
+        }
+        position = index + 1;
+    }
+
+    private CharSet dot()
+    {
+        if((flags & Pattern.DOTALL) != 0)
+        {
+            return CharSet.ALL;
+        }
+        if((flags & Pattern.UNIX_LINES) != 0)
+        {
+            return CharSet.single('\n').complement();
+        }
+        return CharSet.LINE_TERMINATORS.complement();
+    }
+
+    private CharSet ignoreCase(CharSet set)
+    {
+        return (flags & Pattern.CASE_INSENSITIVE) != 0 ? set.ignoreCase() : set;
+    }
+
+    /**
+     * Parses a class like [a-z_\d] or [^,]. Nested classes and intersections are only supported in the lenient mode,
+     * which assumes that they match any character.
+     */
+    private CharSet characterClass()
+    {
+        int start = position;
+        boolean negated = consume('^');
+        CharSet set = CharSet.EMPTY;
+        boolean first = true;
+        while(true)
+        {
+            if(more() == false)
+            {
+                throw new UnsupportedException();
+            }
+            char c = peek();
+            if(c == ']' && first == false)
+            {
+                position++;
+                break;
+            }
+            if(c == '[' || c == ']' || regex.startsWith("&&", position))
+            {
+                strict();
+                position = start;
+                skipClass();
+                return CharSet.ALL;
+            }
+            first = false;
+            CharSet member = classMember();
+            int low = member.singleValue();
+            if(low >= 0 && more() && peek() == '-' && position + 1 < regex.length() && regex.charAt(position + 1) != ']')
+            {
+                position++;
+                if(peek() == '[' || regex.startsWith("&&", position))
+                {
+                    throw new UnsupportedException();
+                }
+                int high = classMember().singleValue();
+                if(high < low)
+                {
+                    throw new UnsupportedException();
+                }
+                member = CharSet.range(low, high);
+            }
+            set = set.union(member);
+        }
+        set = ignoreCase(set);
+        return negated ? set.complement() : set;
+    }
+
+    /**
+     * Skips a class, which may contain nested classes.
+     */
+    private void skipClass()
+    {
+        int depth = 1;
+        boolean first = true;
+        while(more() && depth > 0)
+        {
+            char c = peek();
+            position++;
+            if(c == '\\')
+            {
+                position++;
+            }
+            else if(c == '[')
+            {
+                depth++;
+            }
+            else if(c == ']' && first == false)
+            {
+                depth--;
+            }
+            first = c == '^' && first;
+        }
+        if(depth > 0)
+        {
+            throw new UnsupportedException();
+        }
+    }
+
+    private CharSet classMember()
+    {
+        char c = peek();
+        position++;
+        if(c == '\\')
+        {
+            Expr escape = escape();
+            if(escape instanceof Chars == false)
+            {
+                throw new UnsupportedException();
+            }
+            return ((Chars) escape).set;
+        }
+        return CharSet.single(codePoint(c));
+    }
+
+    /**
+     * Parses the escape sequence after a backslash.
+     */
+    private Expr escape()
+    {
+        if(more() == false)
+        {
+            throw new UnsupportedException();
+        }
+        char c = peek();
+        position++;
+        switch(c)
+        {
+            case 'd':
+                return new Chars(CharSet.DIGIT);
+            case 'D':
+                return new Chars(CharSet.DIGIT.complement());
+            case 'w':
+                return new Chars(CharSet.WORD);
+            case 'W':
+                return new Chars(CharSet.WORD.complement());
+            case 's':
+                return new Chars(CharSet.WHITESPACE);
+            case 'S':
+                return new Chars(CharSet.WHITESPACE.complement());
+            case 't':
+                return new Chars(CharSet.single('\t'));
+            case 'n':
+                return new Chars(CharSet.single('\n'));
+            case 'r':
+                return new Chars(CharSet.single('\r'));
+            case 'f':
+                return new Chars(CharSet.single('\f'));
+            case 'a':
+                return new Chars(CharSet.single('\u0007'));
+            case 'e':
+                return new Chars(CharSet.single('\u001B'));
+            case 'x':
+                if(more() && peek() == '{')
+                {
+                    int start = position + 1;
+                    skipTo('}');
+                    return new Chars(ignoreCase(number(regex.substring(start, position - 1), 16)));
+                }
+                return new Chars(ignoreCase(number(digits(2), 16)));
+            case 'u':
+                CharSet set = number(digits(4), 16);
+                if(Character.isSurrogate((char) set.singleValue()))
+                {
+                    throw new UnsupportedException();
+                }
+                return new Chars(ignoreCase(set));
+            case '0':
+                int start = position;
+                while(more() && peek() >= '0' && peek() <= '7' && position - start < 3
+                    && (position - start < 2 || regex.charAt(start) <= '3'))
+                {
+                    position++;
+                }
+                return new Chars(ignoreCase(number(regex.substring(start, position), 8)));
+            case 'Q':
+                return quote();
+            case 'b':
+            case 'B':
+            case 'A':
+            case 'z':
+            case 'Z':
+            case 'G':
+                strict();
+                if(c == 'b' && consume('{'))
+                {
+                    skipTo('}');
+                }
+                return new ZeroWidth();
+            case 'k':
+                strict();
+                consume('<');
+                skipTo('>');
+                return new ZeroWidth();
+            case 'p':
+            case 'P':
+            case 'N':
+                strict();
+                if(consume('{'))
+                {
+                    skipTo('}');
+                }
+                else
+                {
+                    position++;
+                }
+                return new Chars(CharSet.ALL);
+            case 'h':
+            case 'H':
+            case 'v':
+            case 'V':
+            case 'R':
+            case 'X':
+                strict();
+                return new Chars(CharSet.ALL);
+            default:
+                if(c >= '1' && c <= '9')
+                {
+                    // a back reference
+                    strict();
+                    while(more() && Character.isDigit(peek()))
+                    {
+                        position++;
+                    }
+                    return new ZeroWidth();
+                }
+                if(Character.isLetterOrDigit(c))
+                {
+                    throw new UnsupportedException();
+                }
+                return new Chars(ignoreCase(CharSet.single(codePoint(c))));
+        }
+    }
+
+    /**
+     * Parses the text between \Q and \E.
+     */
+    private Expr quote()
+    {
+        int end = regex.indexOf("\\E", position);
+        if(end < 0)
+        {
+            end = regex.length();
+        }
+        List<Expr> elements = new ArrayList<>();
+        while(position < end)
+        {
+            elements.add(new Chars(ignoreCase(CharSet.single(codePoint(regex.charAt(position++))))));
+        }
+        position = Math.min(end + 2, regex.length());
+        return new Quote(elements);
+    }
+
+    private String digits(int count)
+    {
+        if(position + count > regex.length())
+        {
+            throw new UnsupportedException();
+        }
+        position += count;
+        return regex.substring(position - count, position);
+    }
+
+    private static CharSet number(String digits, int radix)
+    {
+        try
+        {
+            int c = Integer.parseInt(digits, radix);
+            if(c < 0 || c > Character.MAX_CODE_POINT || digits.startsWith("+") || digits.startsWith("-"))
+            {
+                throw new UnsupportedException();
+            }
+            return CharSet.single(c);
+        }
+        catch(NumberFormatException ex)
+        {
+            throw new UnsupportedException();
+        }
+    }
+
+    /**
+     * A part of the parsed regular expression.
+     */
+    abstract static class Expr
+    {
+    }
+
+    /**
+     * A single character out of a set.
+     */
+    static class Chars extends Expr
+    {
+        final CharSet set;
+
+        Chars(CharSet set)
+        {
+            this.set = set;
+        }
+    }
+
+    static class Concatenation extends Expr
+    {
+        final List<Expr> elements;
+
+        Concatenation(List<Expr> elements)
+        {
+            this.elements = elements;
+        }
+    }
+
+    /**
+     * The text between \Q and \E.
+     */
+    private static class Quote extends Concatenation
+    {
+        Quote(List<Expr> elements)
+        {
+            super(elements);
+        }
+    }
+
+    static class Alternation extends Expr
+    {
+        final List<Expr> alternatives;
+
+        Alternation(List<Expr> alternatives)
+        {
+            this.alternatives = alternatives;
+        }
+    }
+
+    static class Repetition extends Expr
+    {
+        static final int UNBOUNDED = -1;
+        final Expr element;
+        final int min;
+        /** The maximum count or UNBOUNDED. */
+        final int max;
+        /** Only in the lenient mode. */
+        final boolean possessive;
+        /** The position of the element in the regex. */
+        final int start;
+        /** The position after the quantifier. */
+        final int end;
+
+        Repetition(Expr element, int min, int max, boolean possessive, int start, int end)
+        {
+            this.element = element;
+            this.min = min;
+            this.max = max;
+            this.possessive = possessive;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * A position like ^, a lookaround or a back reference. Only in the lenient mode.
+     */
+    static class ZeroWidth extends Expr
+    {
+    }
+
+    /**
+     * An atomic group like (?>...). Only in the lenient mode.
+     */
+    static class Atomic extends Expr
+    {
+        final Expr content;
+
+        Atomic(Expr content)
+        {
+            this.content = content;
+        }
+    }
+
+    /**
+     * Thrown to stop parsing, if the regex is not supported.
+     */
+    private static class UnsupportedException extends RuntimeException
+    {
+        private static final long serialVersionUID = 1L;
+
+        UnsupportedException()
+        {
+            super(null, null, false, false);
+        }
+    }
+}
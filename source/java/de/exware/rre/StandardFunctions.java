@@ -0,0 +1,54 @@
+package de.exware.rre;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import de.exware.rre.ReadablePattern.ReadablePatternExtension;
+
+/**
+ * The functions, which come with this library. They use possessive quantifiers and atomic groups, so that
+ * java.util.regex does not backtrack into the parts, that have already been matched. Each function checks, that
+ * it is not part of a longer number or word, so they can be used without whitespace() around them.
+ * <pre>
+ * ReadablePattern pattern = ReadablePattern.compile("add('IBAN:').whitespace().iban()");
+ * ReadablePattern pattern = new ReadablePattern.Builder().add(StandardFunctions.AMOUNT).build();
+ * </pre>
+ */
+public class StandardFunctions implements ReadableFunctionLibrary
+{
+    /**
+     * iban() matches an IBAN like DE89370400440532013000 or DE89 3704 0044 0532 0130 00. The check digits are not verified.
+     */
+    public static final ReadableFunction IBAN = new ReadableFunction("iban",
+        "(?<![A-Za-z0-9])[A-Z]{2}+\\d{2}+(?: ?+[A-Z0-9]{4}+){2,7}+(?: ?+[A-Z0-9]{1,4}+)?+(?![A-Za-z0-9])");
+    /**
+     * amount() matches an amount of money with two decimals, like 1.234,56 or 1,234.56 or -12.50 or 1'234.00.
+     */
+    public static final ReadableFunction AMOUNT = new ReadableFunction("amount",
+        "(?<!\\d)[-+]?+(?>\\d{1,3}+(?:[.']\\d{3}+)++|\\d{1,3}+(?:,\\d{3}+)++|\\d++)[.,]\\d{2}+(?!\\d)");
+    /**
+     * time() matches a time of the day like 9:30, 09:30 or 23:59:59.
+     */
+    public static final ReadableFunction TIME = new ReadableFunction("time",
+        "(?<!\\d)(?>2[0-3]|[01]?+\\d):[0-5]\\d(?::[0-5]\\d)?+(?!\\d)");
+    /**
+     * invoiceNumber() matches numbers with at least three digits and an optional prefix of up to four capital letters,
+     * like 4711, R-123456, RE2020/0815 or RE-2020-0001.
+     */
+    public static final ReadableFunction INVOICE_NUMBER = new ReadableFunction("invoiceNumber",
+        "(?<![\\w/-])[A-Z]{0,4}+[-/]?+\\d{3,}+(?:[-/]\\d++)*+(?![\\w/-])");
+    /**
+     * email() matches an email address like max.mustermann@example.com. A dot at the end of a sentence is not part of it.
+     */
+    public static final ReadableFunction EMAIL = new ReadableFunction("email",
+        "(?<![\\w.%+-])[\\w.%+-]++@(?:[A-Za-z0-9-]++\\.(?=[A-Za-z0-9]))++[A-Za-z]{2,}+(?![\\w-])");
+    private static final List<ReadablePatternExtension> FUNCTIONS = Collections.unmodifiableList(
+        Arrays.<ReadablePatternExtension>asList(IBAN, AMOUNT, TIME, INVOICE_NUMBER, EMAIL));
+
+    @Override
+    public List<ReadablePatternExtension> getFunctions()
+    {
+        return FUNCTIONS;
+    }
+}